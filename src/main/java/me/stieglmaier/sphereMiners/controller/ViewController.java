@@ -1,11 +1,14 @@
 package me.stieglmaier.sphereMiners.controller;
 
+import java.io.File;
 import java.net.URL;
 import java.util.List;
 import java.util.ResourceBundle;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import javafx.application.Platform;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
@@ -17,9 +20,11 @@ import javafx.scene.control.Slider;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableColumn.SortType;
 import javafx.scene.control.TableView;
+import javafx.stage.FileChooser;
 import javafx.util.Callback;
 import me.stieglmaier.sphereMiners.main.Constants;
 import me.stieglmaier.sphereMiners.model.ai.Player;
+import me.stieglmaier.sphereMiners.model.replay.ReplayReader;
 import me.stieglmaier.sphereMiners.model.util.GameSimulation;
 import me.stieglmaier.sphereMiners.view.DisplayGameHandler;
 
@@ -44,11 +49,13 @@ public class ViewController implements Initializable {
   @FXML private Button playButton;
   @FXML private Button simulateButton;
   @FXML private Button deleteSimulationButton;
+  @FXML private Button openReplayButton;
 
   @FXML private Slider progressBar;
   @FXML private Canvas viewGameCanvas;
 
   private boolean isSimulationPaused = false;
+  private boolean isReplay = false;
   private GameSimulation gameSimulation = null;
   private DisplayGameHandler displayGameHandler = null;
 
@@ -131,14 +138,26 @@ public class ViewController implements Initializable {
         e -> {
           if (gameSimulation == null) {
             gameSimulation = startMethod.apply(playingAIs.getItems());
+            GameSimulation simulation = gameSimulation;
+            // at most one update is queued, the simulation may be much faster than the GUI
+            AtomicBoolean isUpdateQueued = new AtomicBoolean();
             gameSimulation.addObserver(
-                t -> progressBar.setMax(gameSimulation.getSize() / constants.getFramesPerSecond()));
+                t -> {
+                  if (isUpdateQueued.compareAndSet(false, true)) {
+                    Platform.runLater(
+                        () -> {
+                          isUpdateQueued.set(false);
+                          progressBar.setMax(simulation.getSize() / constants.getFramesPerSecond());
+                        });
+                  }
+                });
             simulateButton.setText("Pause");
             deleteSimulationButton.setDisable(false);
             playButton.setDisable(false);
             addAIButton.setDisable(true);
             removeAIButton.setDisable(true);
             reloadAIButton.setDisable(true);
+            openReplayButton.setDisable(true);
           } else {
             if (isSimulationPaused) {
               simulateButton.setText("Pause");
@@ -160,14 +179,26 @@ public class ViewController implements Initializable {
           playButton.setText("Play");
           progressBar.setMax(0);
           progressBar.setValue(0);
-          progressBar.valueProperty().removeListener(displayGameHandler.getSliderChangedListener());
-          displayGameHandler.stopAnimation();
-          displayGameHandler = null;
+          // the game may have been deleted without playing it
+          if (displayGameHandler != null) {
+            progressBar
+                .valueProperty()
+                .removeListener(displayGameHandler.getSliderChangedListener());
+            displayGameHandler.stopAnimation();
+            displayGameHandler = null;
+          }
+          if (isReplay) {
+            // the players of the replay cannot play a new game
+            isReplay = false;
+            playingAIs.getItems().clear();
+          }
           addAIButton.setDisable(false);
-          removeAIButton.setDisable(false);
+          removeAIButton.setDisable(playingAIs.getItems().isEmpty());
+          simulateButton.setDisable(playingAIs.getItems().isEmpty());
           reloadAIButton.setDisable(false);
           playButton.setDisable(true);
           deleteSimulationButton.setDisable(true);
+          openReplayButton.setDisable(false);
         });
 
     reloadAIButton.setOnAction(
@@ -177,6 +208,47 @@ public class ViewController implements Initializable {
         });
   }
 
+  /**
+   * Sets the listener for opening a replay file, which can then be played
+   * like a simulation.
+   *
+   * @param openReplayMethod the method for opening a replay file, it returns
+   *                         null if the file could not be opened
+   */
+  public void setReplayListener(final Function<File, ReplayReader> openReplayMethod) {
+    openReplayButton.setOnAction(
+        e -> {
+          FileChooser chooser = new FileChooser();
+          chooser.setTitle("Open Replay");
+          chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Replays", "*.smr"));
+          File replayFolder = new File(constants.getReplayFolder());
+          if (replayFolder.isDirectory()) {
+            chooser.setInitialDirectory(replayFolder);
+          }
+          File file = chooser.showOpenDialog(viewGameCanvas.getScene().getWindow());
+          if (file == null) {
+            return;
+          }
+          ReplayReader replay = openReplayMethod.apply(file);
+          if (replay == null) {
+            return;
+          }
+
+          gameSimulation = new GameSimulation(replay);
+          isReplay = true;
+          playingAIs.getItems().setAll(replay.getPlayers());
+          progressBar.setMax(gameSimulation.getSize() / constants.getFramesPerSecond());
+          // a replay is complete, it cannot be simulated further
+          simulateButton.setDisable(true);
+          deleteSimulationButton.setDisable(false);
+          playButton.setDisable(false);
+          addAIButton.setDisable(true);
+          removeAIButton.setDisable(true);
+          reloadAIButton.setDisable(true);
+          openReplayButton.setDisable(true);
+        });
+  }
+
   private void createButtonListeners() {
     addAIButton.setOnAction(
         e -> {
@@ -1,6 +1,15 @@
 package me.stieglmaier.sphereMiners.main;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Set;
+
+import me.stieglmaier.sphereMiners.model.ai.TimeCalibration;
 import me.stieglmaier.sphereMiners.model.rules.WinningConditions;
+import me.stieglmaier.sphereMiners.model.util.TickStorage;
 
 import org.sosy_lab.common.configuration.Configuration;
 import org.sosy_lab.common.configuration.InvalidConfigurationException;
@@ -8,6 +17,11 @@ import org.sosy_lab.common.configuration.Option;
 import org.sosy_lab.common.configuration.Options;
 import org.sosy_lab.common.log.LogManager;
 
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
 @Options(prefix = "constants")
 public class Constants {
 
@@ -20,9 +34,61 @@ public class Constants {
   )
   private String aiFolderName = "";
 
+  @Option(
+    description =
+        "Watch the ai folder for changed ais, such that recompiled ais are used"
+            + " without restarting the framework"
+  )
+  private boolean watchAIFolder = true;
+
   @Option(description = "Timeout for the computation done by the ais in milliseconds")
   private int aiComputationTime = 50;
 
+  @Option(
+    description =
+        "Scale the computation time of the ais by the speed of the machine, such that"
+            + " it matches the computation time on the reference machine"
+  )
+  private boolean calibrateAIComputationTime = true;
+
+  @Option(
+    description =
+        "File where the calibrated speed factor of this machine is saved, delete it"
+            + " to force a recalibration"
+  )
+  private String calibrationFile = "sphereMiners-calibration.properties";
+
+  @Option(
+    description =
+        "Time in nanoseconds the calibration workload (10 turns of 50 spheres each searching"
+            + " the nearest of 800 dots) needs on the reference machine, i.e. the machine"
+            + " aiComputationTime was chosen for. Measure it there for a new reference"
+  )
+  private long calibrationReferenceTime = 1_200_000;
+
+  @Option(
+    description =
+        "Speed factor of this machine for the computation time of the ais, 0 for using the"
+            + " calibrated factor. Worker processes get the factor of their coordinator, such"
+            + " that they do not calibrate at the same time"
+  )
+  private double aiSpeedFactor = 0;
+
+  @Option(
+    description =
+        "Maximal number of turns each AI plays on a synthetic game before the real game"
+            + " starts, 0 disables the warm-up. These turns are only cut off after ten"
+            + " times the computation time"
+  )
+  private int aiWarmupTurns = 100;
+
+  @Option(
+    description =
+        "The warm-up of an AI ends early if its average turn time changes by"
+            + " less than this ratio"
+  )
+  private double aiWarmupTolerance = 0.1;
+
   @Option(description = "How far can a sphere see other enemies?")
   private int sightDistance = 50;
 
@@ -92,6 +158,95 @@ public class Constants {
   )
   private int totalSizeToReach = 10000;
 
+  /* Storage related constants */
+
+  @Option(
+    description =
+        "How the ticks of games are stored: LIST keeps all ticks, KEYFRAMES stores the ticks"
+            + " between keyframes as differences, RESIMULATE recomputes ticks from snapshots of"
+            + " the physics, SPILL writes old ticks to a temporary file, COMPACT compresses old"
+            + " ticks in the background and OFF_HEAP keeps the ticks outside of the Java heap."
+            + " RESIMULATE, SPILL, COMPACT and OFF_HEAP are only used for games started from"
+            + " the GUI, other games use LIST then"
+  )
+  private TickStorage tickStorage = TickStorage.LIST;
+
+  @Option(
+    description =
+        "Every how many ticks a tick is stored completely with the tick storage KEYFRAMES,"
+            + " the ticks in between are stored as difference to their predecessor"
+  )
+  private int tickKeyframeInterval = 50;
+
+  @Option(
+    description =
+        "How many ticks reconstructed from differences, recomputed or read again are cached,"
+            + " such that replaying and scrubbing stay fast"
+  )
+  private int tickCacheSize = 256;
+
+  @Option(
+    description =
+        "Every how many ticks the state of the physics is kept with the tick storage"
+            + " RESIMULATE"
+  )
+  private int tickSnapshotInterval = 250;
+
+  @Option(description = "How many of the last ticks are kept in memory with the tick storage SPILL")
+  private int tickHotWindow = 1000;
+
+  @Option(
+    description =
+        "How many ticks behind the last computed tick ticks are compressed with the tick"
+            + " storage COMPACT"
+  )
+  private int tickCompactionThreshold = 500;
+
+  @Option(
+    description =
+        "How many ticks are compressed together with the tick storage COMPACT, larger"
+            + " segments compress better but need longer for decompressing a single tick"
+  )
+  private int tickSegmentSize = 128;
+
+  @Option(
+    description =
+        "Folder where the ticks of games started from the GUI are written to as replay"
+            + " file while they are computed, empty for not writing replays"
+  )
+  private String replayFolder = "";
+
+  /**
+   * The options that do not influence the outcome of a game, they are not
+   * part of the configuration hash. Options are hashed unless they are
+   * listed here, such that a new option cannot lead to reusing wrong results.
+   * The calibration options are replaced by the computation time they result in.
+   */
+  private static final ImmutableSet<String> NON_SIMULATION_OPTIONS =
+      ImmutableSet.of(
+          "aiFolderName",
+          "watchAIFolder",
+          "aiComputationTime",
+          "calibrateAIComputationTime",
+          "calibrationFile",
+          "calibrationReferenceTime",
+          "aiSpeedFactor",
+          "tickStorage",
+          "tickKeyframeInterval",
+          "tickCacheSize",
+          "tickSnapshotInterval",
+          "tickHotWindow",
+          "tickCompactionThreshold",
+          "tickSegmentSize",
+          "replayFolder");
+
+  /**
+   * The options that only influence how the AIs compute their commands, but
+   * not what the commands do.
+   */
+  private static final ImmutableSet<String> AI_TIMING_OPTIONS =
+      ImmutableSet.of("aiWarmupTurns", "aiWarmupTolerance");
+
   private LogManager logger;
 
   /**
@@ -106,6 +261,64 @@ public class Constants {
       throws InvalidConfigurationException {
     configuration.inject(this);
     this.logger = logger;
+
+    if (tickKeyframeInterval < 1
+        || tickSnapshotInterval < 1
+        || tickHotWindow < 1
+        || tickCompactionThreshold < 1
+        || tickSegmentSize < 1) {
+      throw new InvalidConfigurationException(
+          "The tick keyframe interval, snapshot interval, hot window, compaction threshold"
+              + " and segment size have to be positive");
+    }
+    if (tickCacheSize < 0) {
+      throw new InvalidConfigurationException("The tick cache size must not be negative");
+    }
+  }
+
+  /**
+   * Returns a hash of the values of all options that influence the outcome
+   * of a game, including the ones that were not set explicitly, and of the
+   * computation time of the AIs on this machine. Results of games can only
+   * be reused for the same hash.
+   *
+   * @return the hash of the option values relevant for the outcome of a game
+   */
+  public String getConfigurationHash() {
+    Hasher hasher = Hashing.sha256().newHasher();
+    putOptions(hasher, NON_SIMULATION_OPTIONS);
+    hasher.putString(
+        "effectiveAIComputationTime=" + TimeCalibration.getAIComputationTime(this) + "\n", UTF_8);
+    return hasher.hash().toString();
+  }
+
+  /**
+   * Returns a hash of the values of all options that influence the physics
+   * of a game, i.e. the outcome of a game with given commands of the AIs.
+   * Recorded games can only be replayed exactly for the same hash.
+   *
+   * @return the hash of the option values relevant for the physics
+   */
+  public String getPhysicsConfigurationHash() {
+    Hasher hasher = Hashing.sha256().newHasher();
+    putOptions(
+        hasher, Sets.union(NON_SIMULATION_OPTIONS, AI_TIMING_OPTIONS).immutableCopy());
+    return hasher.hash().toString();
+  }
+
+  private void putOptions(Hasher hasher, Set<String> excluded) {
+    Field[] fields = Constants.class.getDeclaredFields();
+    Arrays.sort(fields, Comparator.comparing(Field::getName));
+    for (Field f : fields) {
+      if (f.isAnnotationPresent(Option.class) && !excluded.contains(f.getName())) {
+        try {
+          f.setAccessible(true);
+          hasher.putString(f.getName() + "=" + f.get(this) + "\n", UTF_8);
+        } catch (IllegalAccessException e) {
+          throw new AssertionError("Options of this class are always accessible", e);
+        }
+      }
+    }
   }
 
   /**
@@ -116,6 +329,14 @@ public class Constants {
     return aiFolderName;
   }
 
+  /**
+   * Should the ai folder be watched for changed ais?
+   * @return indicates whether the ai folder should be watched
+   */
+  public boolean isAIFolderWatched() {
+    return watchAIFolder;
+  }
+
   /**
    * The maximal computation time for one tick per AI.
    * @return the maximal computation time for one tick
@@ -124,6 +345,54 @@ public class Constants {
     return aiComputationTime;
   }
 
+  /**
+   * Should the computation time for the AIs be scaled by the speed of this machine?
+   * @return indicates whether the computation time should be calibrated
+   */
+  public boolean isAIComputationTimeCalibrated() {
+    return calibrateAIComputationTime;
+  }
+
+  /**
+   * The file where the calibrated speed factor is saved.
+   * @return the path to the calibration file
+   */
+  public String getCalibrationFile() {
+    return calibrationFile;
+  }
+
+  /**
+   * The time the calibration workload needs on the reference machine.
+   * @return the reference time of the calibration workload in nanoseconds
+   */
+  public long getCalibrationReferenceTime() {
+    return calibrationReferenceTime;
+  }
+
+  /**
+   * The given speed factor of this machine, which is used instead of calibrating it.
+   * @return the speed factor, 0 or less if it should be calibrated
+   */
+  public double getAISpeedFactor() {
+    return aiSpeedFactor;
+  }
+
+  /**
+   * The maximal number of turns an AI plays for warming up.
+   * @return the maximal number of warm-up turns
+   */
+  public int getAIWarmupTurns() {
+    return aiWarmupTurns;
+  }
+
+  /**
+   * The tolerated relative change of the average turn time of a warmed up AI.
+   * @return the tolerance for ending the warm-up of an AI
+   */
+  public double getAIWarmupTolerance() {
+    return aiWarmupTolerance;
+  }
+
   /**
    * The maximal distance a sphere can see enemies.
    * @return the maximal distance for seeing other spheres
@@ -262,6 +531,72 @@ public class Constants {
     return totalSizeToReach;
   }
 
+  /**
+   * How the ticks of games are stored.
+   * @return the tick storage
+   */
+  public TickStorage getTickStorage() {
+    return tickStorage;
+  }
+
+  /**
+   * Every how many ticks a tick is stored completely, the others are stored
+   * as difference to their predecessor.
+   * @return the keyframe interval
+   */
+  public int getTickKeyframeInterval() {
+    return tickKeyframeInterval;
+  }
+
+  /**
+   * Every how many ticks the state of the physics is kept, such that the
+   * other ticks can be recomputed.
+   * @return the snapshot interval
+   */
+  public int getTickSnapshotInterval() {
+    return tickSnapshotInterval;
+  }
+
+  /**
+   * How many of the last ticks of a game are kept in memory.
+   * @return the size of the hot window
+   */
+  public int getTickHotWindow() {
+    return tickHotWindow;
+  }
+
+  /**
+   * How many ticks behind the last tick ticks are compressed.
+   * @return the compaction threshold
+   */
+  public int getTickCompactionThreshold() {
+    return tickCompactionThreshold;
+  }
+
+  /**
+   * How many ticks are compressed together.
+   * @return the amount of ticks per compressed segment
+   */
+  public int getTickSegmentSize() {
+    return tickSegmentSize;
+  }
+
+  /**
+   * The folder replay files of games are written to.
+   * @return the replay folder, empty if no replays are written
+   */
+  public String getReplayFolder() {
+    return replayFolder;
+  }
+
+  /**
+   * How many ticks reconstructed from differences or recomputed are cached.
+   * @return the amount of cached ticks
+   */
+  public int getTickCacheSize() {
+    return tickCacheSize;
+  }
+
   /**
    * The LogManager used throughout the project.
    * @return the logger
@@ -0,0 +1,419 @@
+package me.stieglmaier.sphereMiners.main;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import me.stieglmaier.sphereMiners.model.MatchResult;
+import me.stieglmaier.sphereMiners.model.ai.AIManager;
+import me.stieglmaier.sphereMiners.model.rules.WinningConditions;
+import me.stieglmaier.sphereMiners.model.sweep.ParameterSweep;
+import me.stieglmaier.sphereMiners.model.sweep.SweepParameter;
+import me.stieglmaier.sphereMiners.model.tournament.CachingMatchRunner;
+import me.stieglmaier.sphereMiners.model.tournament.LocalMatchRunner;
+import me.stieglmaier.sphereMiners.model.tournament.MatchRunner;
+import me.stieglmaier.sphereMiners.model.tournament.MatchWorker;
+import me.stieglmaier.sphereMiners.model.tournament.Pairing;
+import me.stieglmaier.sphereMiners.model.tournament.ResultCache;
+import me.stieglmaier.sphereMiners.model.tournament.Standings;
+import me.stieglmaier.sphereMiners.model.tournament.Tournament;
+import me.stieglmaier.sphereMiners.model.tournament.WorkerPool;
+
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.ConfigurationBuilder;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.common.configuration.OptionCollector;
+import org.sosy_lab.common.log.BasicLogManager;
+import org.sosy_lab.common.log.LogManager;
+
+import com.google.common.base.Splitter;
+
+/**
+ * Entry point for simulating games without the GUI, e.g. for running many
+ * games on a server. The games are configured with the same configuration
+ * options as in the GUI, the results and timings are printed to stdout.
+ *
+ * Parameters are given in the form <code>--name=value</code>:
+ * <ul>
+ * <li><code>ais</code>: comma separated list of the AIs that play against each other</li>
+ * <li><code>matches</code>: the amount of games that are played (default 1), for a
+ *     sweep the amount of games per setting</li>
+ * <li><code>maxTicks</code>: the amount of ticks after which a game is stopped
+ *     without a winner (required for the winning condition OPEN_END)</li>
+ * <li><code>tournament</code>: plays a tournament with the given {@link Pairing}
+ *     instead of single games</li>
+ * <li><code>rounds</code>: the amount of tournament rounds (default 1)</li>
+ * <li><code>playersPerMatch</code>: the amount of AIs per free-for-all match (default 4)</li>
+ * <li><code>threads</code>: the amount of tournament or sweep matches played in parallel
+ *     (default the amount of processors)</li>
+ * <li><code>workers</code>: plays the tournament matches in the given amount of
+ *     worker JVMs started on this machine, instead of threads</li>
+ * <li><code>workerHosts</code>: plays the tournament matches on already running
+ *     workers, given as comma separated list of host:port, a worker may be
+ *     listed several times to play several matches at once on it</li>
+ * <li><code>worker</code>: runs as worker listening on the given port (0 for any
+ *     free port) and prints the port to stdout</li>
+ * <li><code>workerAddress</code>: the address a worker listens on (default
+ *     127.0.0.1, use 0.0.0.0 for accepting connections from other machines)</li>
+ * <li><code>aiSpeedFactor</code>: the speed factor of this machine for the computation
+ *     time of the AIs instead of the calibrated one, local workers get it from the
+ *     process that started them</li>
+ * <li><code>seed</code>: the seed for the matches and pairings, such that they can be
+ *     reproduced (default a random seed, it is printed)</li>
+ * <li><code>sweep</code>: plays the matches for every combination of the given
+ *     option values, e.g. <code>maxSpeed=10:30:5;dotAmount=400,800</code>, see
+ *     {@link SweepParameter}</li>
+ * <li><code>sweepOutput</code>: the CSV file the results of the sweep are written to
+ *     (default stdout)</li>
+ * <li><code>resultCache</code>: the file where results are cached, matches that were
+ *     already played with the same AIs, configuration and seed are not played again</li>
+ * <li><code>config</code>: the configuration file</li>
+ * <li><code>printOptionsTo</code>: the file the configuration options are written to</li>
+ * </ul>
+ *
+ * @author stieglma
+ *
+ */
+public final class HeadlessSphereMiners {
+
+  private HeadlessSphereMiners() {
+    /* utility class */
+  }
+
+  /**
+   * Runs the games given by the parameters.
+   *
+   * @param args used for selecting the AIs and the amount of games and for
+   *             either printing or setting configuration options
+   */
+  public static void main(final String[] args) {
+    Map<String, String> params = getNamedParameters(args);
+
+    // cmdline parameter to retrieve configuration options
+    if (params.containsKey("printOptionsTo")) {
+      try {
+        new FileWriter(new File(params.get("printOptionsTo")), false)
+            .append(OptionCollector.getCollectedOptions(false))
+            .close();
+      } catch (IOException e) {
+        System.err.println(
+            "Configuration Options file could not be written please recheck the given path.");
+        System.exit(1);
+      }
+      return;
+    }
+
+    final Configuration config;
+    final Constants constants;
+    final AIManager ais;
+    try {
+      ConfigurationBuilder builder = Configuration.builder();
+      if (params.containsKey("config")) {
+        builder.loadFromFile(params.get("config"));
+      }
+      if (params.containsKey("aiSpeedFactor")) {
+        builder.setOption("constants.aiSpeedFactor", params.get("aiSpeedFactor"));
+      }
+      config = builder.build();
+      LogManager logger = new BasicLogManager(config);
+      constants = new Constants(config, logger);
+      // workers leave the index of the AI folder to their coordinator
+      ais = new AIManager(constants, false, !params.containsKey("worker"));
+    } catch (InvalidConfigurationException | IOException e) {
+      System.err.println("Configuration is invalid, please check your config file!");
+      e.printStackTrace(System.err);
+      System.exit(1);
+      return;
+    }
+
+    if (params.containsKey("worker")) {
+      runWorker(constants, params.get("worker"), params.getOrDefault("workerAddress", "127.0.0.1"));
+      return;
+    }
+
+    if (!params.containsKey("ais")) {
+      System.err.println("Usage: --ais=<AI>,<AI>,... [--matches=<n>] [--maxTicks=<n>]");
+      System.err.println("Available AIs: " + ais.getAIList());
+      System.exit(1);
+    }
+    List<String> aiNames =
+        Splitter.on(',').trimResults().omitEmptyStrings().splitToList(params.get("ais"));
+
+    final int matches;
+    final int maxTicks;
+    final int rounds;
+    final int playersPerMatch;
+    final int threads;
+    final long seed;
+    try {
+      matches = Integer.parseInt(params.getOrDefault("matches", "1"));
+      maxTicks =
+          params.containsKey("maxTicks")
+              ? Integer.parseInt(params.get("maxTicks"))
+              : Integer.MAX_VALUE;
+      rounds = Integer.parseInt(params.getOrDefault("rounds", "1"));
+      playersPerMatch = Integer.parseInt(params.getOrDefault("playersPerMatch", "4"));
+      threads =
+          Integer.parseInt(
+              params.getOrDefault(
+                  "threads", Integer.toString(Runtime.getRuntime().availableProcessors())));
+      seed =
+          params.containsKey("seed")
+              ? Long.parseLong(params.get("seed"))
+              : new Random().nextLong();
+    } catch (NumberFormatException e) {
+      System.err.println("Numeric parameter expected: " + e.getMessage());
+      System.exit(1);
+      return;
+    }
+    if (maxTicks == Integer.MAX_VALUE
+        && constants.getWinningCondition() == WinningConditions.OPEN_END) {
+      System.err.println("Games with the winning condition OPEN_END need --maxTicks.");
+      System.exit(1);
+    }
+
+    if (params.containsKey("sweep")) {
+      runSweep(
+          config,
+          constants.getLogger(),
+          params.get("sweep"),
+          params.get("sweepOutput"),
+          aiNames,
+          matches,
+          maxTicks,
+          threads,
+          seed);
+      System.exit(0);
+    }
+
+    Pairing pairing = null;
+    if (params.containsKey("tournament")) {
+      try {
+        pairing = Pairing.valueOf(params.get("tournament"));
+      } catch (IllegalArgumentException e) {
+        System.err.println(
+            "Unknown pairing "
+                + params.get("tournament")
+                + ", use one of "
+                + Arrays.toString(Pairing.values()));
+        System.exit(1);
+      }
+    }
+
+    MatchRunner runner;
+    try {
+      if (params.containsKey("workerHosts")) {
+        runner =
+            WorkerPool.connect(
+                constants, Splitter.on(',').trimResults().splitToList(params.get("workerHosts")));
+      } else if (params.containsKey("workers")) {
+        runner =
+            WorkerPool.startLocal(
+                constants, Integer.parseInt(params.get("workers")), params.get("config"));
+      } else {
+        runner = new LocalMatchRunner(constants, pairing == null ? 1 : threads);
+      }
+    } catch (IOException | NumberFormatException e) {
+      System.err.println("Matches could not be set up: " + e.getMessage());
+      System.exit(1);
+      return;
+    }
+    if (params.containsKey("resultCache")) {
+      runner =
+          new CachingMatchRunner(
+              runner,
+              new ResultCache(new File(params.get("resultCache")), constants.getLogger()),
+              ais::getAIHash,
+              constants.getConfigurationHash());
+    }
+
+    System.out.println("Seed: " + seed);
+    if (pairing == null) {
+      playMatches(runner, aiNames, matches, maxTicks, new Random(seed));
+    } else {
+      playTournament(
+          constants, runner, aiNames, pairing, rounds, playersPerMatch, maxTicks, new Random(seed));
+    }
+
+    // timed out AIs may still block their threads
+    System.exit(0);
+  }
+
+  private static void playMatches(
+      MatchRunner runner, List<String> aiNames, int matches, int maxTicks, Random random) {
+    Map<String, Integer> wins = new LinkedHashMap<>();
+    aiNames.forEach(n -> wins.put(n, 0));
+    long totalTicks = 0;
+    long start = System.nanoTime();
+    try (MatchRunner r = runner) {
+      for (int i = 1; i <= matches; i++) {
+        try {
+          MatchResult result = r.playMatch(aiNames, maxTicks, random.nextLong());
+          result.getWinners().forEach(w -> wins.merge(w, 1, Integer::sum));
+          totalTicks += result.getTicks();
+          System.out.println("Match " + i + ": " + result);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        } catch (Exception e) {
+          System.err.println("Match " + i + " could not be played: " + e);
+        }
+      }
+    }
+    long duration = System.nanoTime() - start;
+
+    System.out.println("Wins: " + wins);
+    System.out.println(
+        "Total: "
+            + matches
+            + " matches, "
+            + totalTicks
+            + " ticks in "
+            + TimeUnit.NANOSECONDS.toMillis(duration)
+            + " ms ("
+            + (duration > 0 ? totalTicks * TimeUnit.SECONDS.toNanos(1) / duration : 0)
+            + " ticks/s)");
+  }
+
+  private static void playTournament(
+      Constants constants,
+      MatchRunner runner,
+      List<String> aiNames,
+      Pairing pairing,
+      int rounds,
+      int playersPerMatch,
+      int maxTicks,
+      Random random) {
+    long start = System.nanoTime();
+    try (Tournament tournament = new Tournament(constants, runner)) {
+      Standings standings =
+          tournament.play(
+              aiNames,
+              pairing,
+              rounds,
+              playersPerMatch,
+              maxTicks,
+              random,
+              r -> System.out.println("Match: " + r));
+      long duration = System.nanoTime() - start;
+
+      System.out.print(standings);
+      System.out.println(
+          "Total: "
+              + standings.getMatchCount()
+              + " matches, "
+              + standings.getTickCount()
+              + " ticks in "
+              + TimeUnit.NANOSECONDS.toMillis(duration)
+              + " ms with "
+              + runner.getParallelism()
+              + " parallel matches ("
+              + (duration > 0
+                  ? standings.getTickCount() * TimeUnit.SECONDS.toNanos(1) / duration
+                  : 0)
+              + " ticks/s, "
+              + standings.getMatchDuration(TimeUnit.MILLISECONDS)
+              + " ms summed match time)");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void runSweep(
+      Configuration config,
+      LogManager logger,
+      String sweepSpecification,
+      String outputFile,
+      List<String> aiNames,
+      int matches,
+      int maxTicks,
+      int threads,
+      long seed) {
+    List<Long> seeds = new ArrayList<>();
+    Random random = new Random(seed);
+    for (int i = 0; i < matches; i++) {
+      seeds.add(random.nextLong());
+    }
+
+    long start = System.nanoTime();
+    try (ParameterSweep sweep =
+            new ParameterSweep(
+                config, logger, SweepParameter.parseAll(sweepSpecification), threads);
+        Writer out =
+            outputFile == null
+                ? new OutputStreamWriter(System.out, UTF_8)
+                : Files.newBufferedWriter(Paths.get(outputFile), UTF_8)) {
+      System.err.println("Seed: " + seed);
+      int played = sweep.run(aiNames, maxTicks, seeds, out);
+      System.err.println(
+          "Total: "
+              + played
+              + " of "
+              + sweep.getSettingCount() * matches
+              + " matches in "
+              + sweep.getSettingCount()
+              + " settings played in "
+              + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+              + " ms");
+    } catch (IllegalArgumentException | InvalidConfigurationException e) {
+      System.err.println("Invalid sweep: " + e.getMessage());
+      System.exit(1);
+    } catch (IOException e) {
+      System.err.println("Sweep results could not be written: " + e.getMessage());
+      System.exit(1);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Runs as worker for tournaments until the process is killed. The port is
+   * printed as first line to stdout, afterwards stdout is redirected to
+   * stderr, such that output of the AIs cannot block the worker.
+   */
+  private static void runWorker(Constants constants, String port, String address) {
+    try {
+      MatchWorker worker =
+          new MatchWorker(constants, InetAddress.getByName(address), Integer.parseInt(port));
+      System.out.println(worker.getPort());
+      System.out.flush();
+      System.setOut(System.err);
+      worker.serve();
+    } catch (IOException | NumberFormatException e) {
+      System.err.println("Worker could not be started: " + e.getMessage());
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Parses the parameters of the form <code>--name=value</code>, like the
+   * named parameters of the GUI application.
+   */
+  private static Map<String, String> getNamedParameters(String[] args) {
+    Map<String, String> params = new HashMap<>();
+    for (String arg : args) {
+      int separator = arg.indexOf('=');
+      if (arg.startsWith("--") && separator > 2) {
+        params.put(arg.substring(2, separator), arg.substring(separator + 1));
+      } else {
+        System.err.println("Ignoring unknown parameter " + arg);
+      }
+    }
+    return params;
+  }
+}
@@ -31,6 +31,11 @@ import com.google.common.base.Optional;
  */
 public class SphereMiners extends Application {
 
+  /**
+   * The AIs of the application, they are closed when the application stops.
+   */
+  private AIManager ais;
+
   /**
    * Launches the application.
    *
@@ -56,14 +61,21 @@ public class SphereMiners extends Application {
     ViewController controller = (ViewController) loader.getController();
 
     final Model model;
-    final AIManager ais;
     final Constants constants;
     final LogManager logger;
     try {
       logger = new BasicLogManager(config.get());
       constants = new Constants(config.get(), logger);
       ais = new AIManager(constants);
-      model = new Model(new Physics(constants), ais, constants, (l -> controller.removeBadAis(l)));
+      ais.setAIListUpdater(Platform::runLater);
+      model =
+          new Model(
+              new Physics(constants),
+              ais,
+              constants,
+              (l -> controller.removeBadAis(l)),
+              ((title, message)
+                  -> Platform.runLater(() -> ErrorPopup.create(title, message, null))));
     } catch (MalformedURLException e) {
       ErrorPopup.create("AI Location is invalid please check your config file!", e.getMessage(), e);
       return;
@@ -80,9 +92,26 @@ public class SphereMiners extends Application {
         () -> model.pauseSimulation(),
         () -> model.deleteSimulation(),
         () -> ais.reloadAIList());
+    controller.setReplayListener(
+        file -> {
+          try {
+            return model.openReplay(file.toPath());
+          } catch (IOException e) {
+            ErrorPopup.create("Replay could not be opened!", e.getMessage(), e);
+            return null;
+          }
+        });
     primaryStage.show();
   }
 
+  @Override
+  public void stop() {
+    // stops watching the AI folder and the threads of the AIs
+    if (ais != null) {
+      ais.close();
+    }
+  }
+
   private Optional<Configuration> handleOptions() {
     Map<String, String> params = getParameters().getNamed();
     Configuration config;
@@ -0,0 +1,126 @@
+package me.stieglmaier.sphereMiners.model;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * The outcome of a game that was simulated without a GUI. Players are
+ * identified by their internal names, so results can be collected and
+ * compared independently of the {@link me.stieglmaier.sphereMiners.model.ai.Player}
+ * objects of a game.
+ *
+ * @author stieglma
+ *
+ */
+public final class MatchResult {
+
+  private final List<String> players;
+  private final List<String> winners;
+  private final Map<String, Integer> sizes;
+  private final int ticks;
+  private final boolean hasEnded;
+  private final long durationNanos;
+
+  /**
+   * Creates a new result.
+   *
+   * @param players the internal names of the participating AIs
+   * @param winners the internal names of the winning AIs, empty if the game did not end
+   * @param sizes the overall sizes of the AIs at the end of the game
+   * @param ticks the amount of computed ticks
+   * @param hasEnded indicates if the game ended according to the winning condition,
+   *                 false if it was stopped at the maximum amount of ticks
+   * @param durationNanos the time the simulation took in nanoseconds
+   */
+  public MatchResult(
+      List<String> players,
+      List<String> winners,
+      Map<String, Integer> sizes,
+      int ticks,
+      boolean hasEnded,
+      long durationNanos) {
+    this.players = ImmutableList.copyOf(players);
+    this.winners = ImmutableList.copyOf(winners);
+    this.sizes = ImmutableMap.copyOf(sizes);
+    this.ticks = ticks;
+    this.hasEnded = hasEnded;
+    this.durationNanos = durationNanos;
+  }
+
+  /**
+   * Returns the internal names of the participating AIs.
+   *
+   * @return the participating AIs
+   */
+  public List<String> getPlayers() {
+    return players;
+  }
+
+  /**
+   * Returns the internal names of the winning AIs.
+   *
+   * @return the winning AIs, empty if the game did not end
+   */
+  public List<String> getWinners() {
+    return winners;
+  }
+
+  /**
+   * Returns the overall sizes of the AIs at the end of the game, i.e. the
+   * sums of the sizes of their spheres.
+   *
+   * @return the mapping of the internal names to the sizes, AIs without
+   *         spheres have size 0
+   */
+  public Map<String, Integer> getSizes() {
+    return sizes;
+  }
+
+  /**
+   * Returns the amount of ticks that were computed.
+   *
+   * @return the amount of ticks
+   */
+  public int getTicks() {
+    return ticks;
+  }
+
+  /**
+   * Indicates if the game ended according to the winning condition.
+   *
+   * @return false if the game was stopped at the maximum amount of ticks
+   */
+  public boolean hasEnded() {
+    return hasEnded;
+  }
+
+  /**
+   * Returns the time the simulation took, including the initialization of
+   * the AIs.
+   *
+   * @param unit the unit of the returned duration
+   * @return the duration of the simulation
+   */
+  public long getDuration(TimeUnit unit) {
+    return unit.convert(durationNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString() {
+    return players
+        + " -> "
+        + (hasEnded ? "winners " + winners : "no winner")
+        + " after "
+        + ticks
+        + " ticks in "
+        + getDuration(TimeUnit.MILLISECONDS)
+        + " ms";
+  }
+}
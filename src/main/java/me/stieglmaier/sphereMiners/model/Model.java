@@ -1,22 +1,43 @@
 package me.stieglmaier.sphereMiners.model;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Observable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 
-import javafx.application.Platform;
 import javafx.collections.ObservableList;
 import me.stieglmaier.sphereMiners.main.Constants;
 import me.stieglmaier.sphereMiners.model.ai.AIManager;
 import me.stieglmaier.sphereMiners.model.ai.AIManager.LoadingStatus;
 import me.stieglmaier.sphereMiners.model.ai.Player;
 import me.stieglmaier.sphereMiners.model.physics.Physics;
+import me.stieglmaier.sphereMiners.model.replay.MatchRecorder;
+import me.stieglmaier.sphereMiners.model.replay.MatchRecording;
+import me.stieglmaier.sphereMiners.model.replay.ReplayReader;
+import me.stieglmaier.sphereMiners.model.replay.ReplayWriter;
+import me.stieglmaier.sphereMiners.model.replay.ResimulatingTickStore;
+import me.stieglmaier.sphereMiners.model.util.CompactingTickStore;
 import me.stieglmaier.sphereMiners.model.util.GameSimulation;
+import me.stieglmaier.sphereMiners.model.util.ListTickStore;
+import me.stieglmaier.sphereMiners.model.util.OffHeapTickStore;
+import me.stieglmaier.sphereMiners.model.util.Sphere;
+import me.stieglmaier.sphereMiners.model.util.SpillingTickStore;
 import me.stieglmaier.sphereMiners.model.util.Tick;
-import me.stieglmaier.sphereMiners.view.ErrorPopup;
+import me.stieglmaier.sphereMiners.model.util.TickStore;
+import me.stieglmaier.sphereMiners.model.util.TickStorage;
+
+import com.google.common.base.Optional;
 
 /**
  * The model class connects the whole backend of the framework. It is responsible
@@ -29,10 +50,13 @@ public class Model extends Observable {
 
   private final Physics physics;
   private final AIManager ais;
-  private static GameSimulation simulationView;
+  private GameSimulation simulationView;
   private Simulation simulation;
+  private MatchRecorder recorder;
+  private ReplayReader replay;
   private final Constants constants;
   private final Consumer<List<Player>> badAICallback;
+  private final BiConsumer<String, String> errorCallback;
 
   /**
    * Creates a new {@link Model}.
@@ -41,16 +65,20 @@ public class Model extends Observable {
    * @param ai      The {@link AIManager} to use for the simulation.
    * @param constants The {@link Constants} to use for the simulation.
    * @param badAICallback The callBack to remove bad AIs from the list of playing AIs
+   * @param errorCallback The callBack for reporting errors to the user, it gets
+   *                      a title and a message and is called from the simulation thread
    */
   public Model(
       final Physics phys,
       final AIManager ai,
       final Constants constants,
-      final Consumer<List<Player>> badAICallback) {
+      final Consumer<List<Player>> badAICallback,
+      final BiConsumer<String, String> errorCallback) {
     this.physics = phys;
     this.ais = ai;
     this.constants = constants;
     this.badAICallback = badAICallback;
+    this.errorCallback = errorCallback;
 
     ais.setPhysics(physics);
   }
@@ -63,18 +91,152 @@ public class Model extends Observable {
    * @return the SimulationObject that can be viewed
    */
   public GameSimulation simulateGame(final List<Player> aisToPlay) {
+    replaceSimulation();
+
     // create new Simulation
-    simulationView = new GameSimulation();
-    simulationView.addInstance(physics.createInitialTick(aisToPlay));
+    long seed = ThreadLocalRandom.current().nextLong();
+    // the commands are only recorded for recomputing ticks, the log grows with the game
+    final Tick initialTick;
+    if (constants.getTickStorage() == TickStorage.RESIMULATE) {
+      recorder = MatchRecorder.start(physics, constants, aisToPlay, seed);
+      initialTick = recorder.createInitialTick();
+    } else {
+      physics.setCommandListener(batches -> {});
+      recorder = null;
+      initialTick = physics.createInitialTick(aisToPlay, seed);
+    }
+    TickStore store = createTickStore(aisToPlay);
+    simulationView = new GameSimulation(store);
+    simulationView.addInstance(initialTick);
 
-    simulation = new Simulation(ais, physics, aisToPlay, constants, badAICallback);
+    simulation =
+        new Simulation(
+            ais, physics, simulationView, aisToPlay, constants, badAICallback, errorCallback);
+    simulation.startReplay(initialTick);
+    if (store instanceof Closeable) {
+      simulation.closeWhenDeleted((Closeable) store);
+    }
     simulation.start();
 
     return simulationView;
   }
 
+  private TickStore createTickStore(List<Player> aisToPlay) {
+    switch (constants.getTickStorage()) {
+      case RESIMULATE:
+        return new ResimulatingTickStore(
+            constants, recorder, constants.getTickSnapshotInterval(), constants.getTickCacheSize());
+      case SPILL:
+        try {
+          return new SpillingTickStore(
+              aisToPlay, constants.getTickHotWindow(), constants.getTickCacheSize());
+        } catch (IOException e) {
+          constants
+              .getLogger()
+              .logException(Level.WARNING, e, "Ticks cannot be written to a file, keeping them.");
+          return new ListTickStore();
+        }
+      case COMPACT:
+        return new CompactingTickStore(
+            aisToPlay,
+            constants.getTickCompactionThreshold(),
+            constants.getTickSegmentSize(),
+            Math.max(1, constants.getTickCacheSize() / constants.getTickSegmentSize()));
+      case OFF_HEAP:
+        return new OffHeapTickStore(aisToPlay);
+      default:
+        return TickStore.create(constants);
+    }
+  }
+
+  /**
+   * Simulates a game in the calling thread and returns its result. The ticks
+   * are not kept after the game, so this is meant for running games without
+   * displaying them.
+   *
+   * @param aisToPlay the list of players that should play a game
+   * @param maxTicks the maximum amount of ticks to compute, afterwards the
+   *                 game is stopped without a winner
+   * @param seed the seed for the random decisions of the physics
+   * @return the result of the game
+   */
+  public MatchResult playGame(final List<Player> aisToPlay, final int maxTicks, final long seed) {
+    long start = System.nanoTime();
+    // games without display are not recorded
+    physics.setCommandListener(batches -> {});
+    recorder = null;
+    GameSimulation game = new GameSimulation(TickStore.create(constants));
+    game.addInstance(physics.createInitialTick(aisToPlay, seed));
+
+    Optional<List<Player>> winners =
+        new Simulation(ais, physics, game, aisToPlay, constants, badAICallback, errorCallback)
+            .play(maxTicks);
+
+    Map<String, Integer> sizes = new LinkedHashMap<>();
+    aisToPlay.forEach(p -> sizes.put(p.getInternalName(), 0));
+    for (Sphere s : game.getTick(game.getSize() - 1).getSpheres()) {
+      sizes.merge(s.getOwner().getInternalName(), s.getSize(), Integer::sum);
+    }
+
+    return new MatchResult(
+        toNames(aisToPlay),
+        toNames(winners.or(Collections.<Player>emptyList())),
+        sizes,
+        game.getSize() - 1,
+        winners.isPresent(),
+        System.nanoTime() - start);
+  }
+
+  private static List<String> toNames(List<Player> players) {
+    return players.stream().map(Player::getInternalName).collect(Collectors.toList());
+  }
+
   /**
-   * Completely deletes the current simulation.
+   * Returns the recording of the inputs of the current simulation, with all
+   * ticks computed so far. It can be replayed by a
+   * {@link me.stieglmaier.sphereMiners.model.replay.MatchReplayer}. Games are
+   * only recorded if their ticks are stored as {@link TickStorage#RESIMULATE}.
+   *
+   * @return the recording of the current simulation, or null if there is none
+   */
+  public MatchRecording getRecording() {
+    GameSimulation game = simulationView;
+    return game == null || recorder == null ? null : recorder.getRecording(game);
+  }
+
+  /**
+   * Opens a replay file written while simulating a game (see
+   * {@link Constants#getReplayFolder()}), it replaces the current simulation
+   * and is closed when it is deleted like a simulation.
+   *
+   * @param file the replay file
+   * @return the replay, which can be shown with {@code new GameSimulation(replay)}
+   * @throws IOException if the file is no replay or cannot be read
+   */
+  public ReplayReader openReplay(Path file) throws IOException {
+    replaceSimulation();
+    replay = ReplayReader.open(file, constants);
+    return replay;
+  }
+
+  /**
+   * Deletes the current simulation and waits until it does not use the
+   * physics anymore.
+   */
+  private void replaceSimulation() {
+    Simulation previous = simulation;
+    deleteSimulation();
+    if (previous != null) {
+      try {
+        previous.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Completely deletes the current simulation or replay.
    */
   public void deleteSimulation() {
     if (simulationView != null) {
@@ -82,6 +244,15 @@ public class Model extends Observable {
       synchronized (simulation) {
         simulation.stopSimulation();
       }
+      simulation = null;
+    }
+    if (replay != null) {
+      try {
+        replay.close();
+      } catch (IOException e) {
+        constants.getLogger().logException(Level.INFO, e, "Replay could not be closed.");
+      }
+      replay = null;
     }
   }
 
@@ -107,24 +278,33 @@ public class Model extends Observable {
 
   private static class Simulation extends Thread {
     private boolean isRunning = false;
-    private boolean stopSimulation = false;
+    private volatile boolean stopSimulation = false;
+    private boolean isFinished = false;
+    private ReplayWriter replay;
+    private Closeable tickStorage;
     private final Physics physMgr;
     private final AIManager ais;
+    private final GameSimulation simulationView;
     private final List<Player> aisToPlay;
     private final Constants constants;
     private final Consumer<List<Player>> badAICallback;
+    private final BiConsumer<String, String> errorCallback;
 
     public Simulation(
         AIManager ais,
         Physics physics,
+        GameSimulation simulationView,
         List<Player> aisToPlay,
         Constants constants,
-        Consumer<List<Player>> badAICallback) {
+        Consumer<List<Player>> badAICallback,
+        BiConsumer<String, String> errorCallback) {
       this.ais = ais;
       this.physMgr = physics;
+      this.simulationView = simulationView;
       this.aisToPlay = aisToPlay;
       this.constants = constants;
       this.badAICallback = badAICallback;
+      this.errorCallback = errorCallback;
       setName("[sphereMiners][simulationThread]");
     }
 
@@ -135,46 +315,122 @@ public class Model extends Observable {
       }
     }
 
-    public void stopSimulation() {
+    /**
+     * Stops the simulation for deleting the game, the storage of the ticks
+     * is closed as soon as no more ticks are added to it.
+     */
+    public synchronized void stopSimulation() {
       stopSimulation = true;
+      // a paused simulation has to wake up for ending
+      notify();
+      if (isFinished) {
+        closeTickStorage();
+      }
+    }
+
+    /**
+     * Starts writing the ticks of the game to a file in the replay folder,
+     * if one is configured.
+     *
+     * @param initialTick the initial tick of the game
+     */
+    public void startReplay(Tick initialTick) {
+      if (constants.getReplayFolder().isEmpty()) {
+        return;
+      }
+      Path file =
+          Paths.get(constants.getReplayFolder(), "replay-" + System.currentTimeMillis() + ".smr");
+      try {
+        Files.createDirectories(file.getParent());
+        replay = new ReplayWriter(file, aisToPlay);
+        replay.write(initialTick);
+      } catch (IOException e) {
+        constants.getLogger().logException(Level.WARNING, e, "Replay could not be written.");
+        closeReplay();
+      }
+    }
+
+    /**
+     * Closes the storage of the ticks when the game is deleted, but not
+     * before the simulation thread added its last tick. A game that ended
+     * can still be viewed until it is deleted.
+     *
+     * @param tickStorage the file or background thread the ticks are stored with
+     */
+    public void closeWhenDeleted(Closeable tickStorage) {
+      this.tickStorage = tickStorage;
+    }
+
+    private void closeTickStorage() {
+      if (tickStorage != null) {
+        try {
+          tickStorage.close();
+        } catch (IOException e) {
+          constants.getLogger().logException(Level.INFO, e, "Tick storage could not be closed.");
+        }
+        tickStorage = null;
+      }
+    }
+
+    private void writeReplay(Tick tick) {
+      if (replay != null) {
+        try {
+          replay.write(tick);
+        } catch (IOException e) {
+          constants.getLogger().logException(Level.WARNING, e, "Replay could not be written.");
+          closeReplay();
+        }
+      }
+    }
+
+    private void closeReplay() {
+      if (replay != null) {
+        try {
+          replay.close();
+        } catch (IOException e) {
+          constants.getLogger().logException(Level.WARNING, e, "Replay could not be written.");
+        }
+        replay = null;
+      }
     }
 
     @Override
     public void run() {
+      try {
+        play(Integer.MAX_VALUE);
+      } finally {
+        closeReplay();
+        synchronized (this) {
+          isFinished = true;
+          if (stopSimulation) {
+            closeTickStorage();
+          }
+        }
+      }
+    }
+
+    /**
+     * Initializes the AIs and computes the ticks of the game until it has
+     * ended, was stopped, or the given amount of ticks was computed.
+     *
+     * @param maxTicks the maximum amount of ticks to compute
+     * @return the winners, or absent if the game did not end
+     */
+    private Optional<List<Player>> play(int maxTicks) {
       isRunning = true;
 
       Map<Player, LoadingStatus> loadingStatus = ais.initializeGameAIs(aisToPlay);
       if (loadingStatus.values().contains(LoadingStatus.INITIALIZING_FAILED)) {
-        Platform.runLater(
-            ()
-                -> ErrorPopup.create(
-                    "Error while initializing AIs",
-                    "Errors exist, either in the constructor or the init() method of the AIs:\n"
-                        + loadingStatus
-                            .entrySet()
-                            .stream()
-                            .filter(e -> e.getValue() == LoadingStatus.INITIALIZING_FAILED)
-                            .reduce(
-                                "",
-                                (a, b) -> a + "\n" + b.getKey().getNameProperty().get(),
-                                (a, b) -> a + "\n" + b),
-                    null));
+        errorCallback.accept(
+            "Error while initializing AIs",
+            "Errors exist, either in the constructor or the init() method of the AIs:\n"
+                + getPlayerNames(loadingStatus, LoadingStatus.INITIALIZING_FAILED));
       } else if (loadingStatus.values().contains(LoadingStatus.INVALID_LOCATION)) {
-        Platform.runLater(
-            ()
-                -> ErrorPopup.create(
-                    "Error while loading AIs",
-                    "The AI is not located at the given location, please refresh the List"
-                        + "of usable AIs:\n"
-                        + loadingStatus
-                            .entrySet()
-                            .stream()
-                            .filter(e -> e.getValue() == LoadingStatus.INVALID_LOCATION)
-                            .reduce(
-                                "",
-                                (a, b) -> a + "\n" + b.getKey().getNameProperty().get(),
-                                (a, b) -> a + "\n" + b),
-                    null));
+        errorCallback.accept(
+            "Error while loading AIs",
+            "The AI is not located at the given location, please refresh the List"
+                + "of usable AIs:\n"
+                + getPlayerNames(loadingStatus, LoadingStatus.INVALID_LOCATION));
       }
 
       badAICallback.accept(
@@ -188,9 +444,10 @@ public class Model extends Observable {
       // let the AIs apply their moves and
       // calculate the tick based on them
       // adds the finished tick to the simulation object
-      while (!stopSimulation) {
+      // (the first tick is the initial one, it is not computed)
+      while (!stopSimulation && simulationView.getSize() <= maxTicks) {
         synchronized (this) {
-          while (!isRunning) {
+          while (!isRunning && !stopSimulation) {
             try {
               wait();
             } catch (InterruptedException e) {
@@ -198,21 +455,39 @@ public class Model extends Observable {
             }
           }
         }
+        if (stopSimulation) {
+          break;
+        }
 
         ais.applyMoves();
         Tick nextTick = physMgr.applyPhysics();
 
         // is the game over?
-        boolean isEnded = constants.getWinningCondition().hasGameEnded(simulationView, constants);
-        if (isEnded) {
-          nextTick = nextTick.toWinningTick(constants.getWinningCondition().getWinner());
+        Optional<List<Player>> winners =
+            constants.getWinningCondition().getWinners(simulationView, constants);
+        if (winners.isPresent()) {
+          Tick winningTick = nextTick.toWinningTick(winners.get());
+          simulationView.addInstance(winningTick);
+          writeReplay(winningTick);
+          // end this thread if game is finished
+          return winners;
         }
         simulationView.addInstance(nextTick);
-        // end this thread if game is finished
-        if (isEnded) {
-          return;
-        }
+        writeReplay(nextTick);
       }
+      return Optional.absent();
+    }
+
+    private static String getPlayerNames(
+        Map<Player, LoadingStatus> loadingStatus, LoadingStatus status) {
+      return loadingStatus
+          .entrySet()
+          .stream()
+          .filter(e -> e.getValue() == status)
+          .reduce(
+              "",
+              (a, b) -> a + "\n" + b.getKey().getNameProperty().get(),
+              (a, b) -> a + "\n" + b);
     }
   }
 }
@@ -0,0 +1,68 @@
+package me.stieglmaier.sphereMiners.model.ai;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+/**
+ * The class loader for one AI. Classes of the AI are loaded by this loader
+ * itself, even if they are also visible to the parent loader, so a new
+ * loader always loads the current version of the AI. Classes of the
+ * framework, the JDK and the libraries are delegated to the parent loader,
+ * such that all AIs share them.
+ *
+ * @author stieglma
+ *
+ */
+final class AIClassLoader extends URLClassLoader {
+
+  private static final String[] SHARED_PACKAGES = {
+    "java.", "javax.", "javafx.", "sun.", "com.sun.", "com.google.", "org.sosy_lab.",
+    "me.stieglmaier.sphereMiners."
+  };
+
+  static {
+    registerAsParallelCapable();
+  }
+
+  /**
+   * Creates a new loader for the given locations.
+   *
+   * @param urls the locations the AI classes are loaded from
+   * @param parent the loader framework classes are delegated to
+   */
+  AIClassLoader(URL[] urls, ClassLoader parent) {
+    super(urls, parent);
+  }
+
+  @Override
+  protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+    if (isShared(name)) {
+      return super.loadClass(name, resolve);
+    }
+
+    synchronized (getClassLoadingLock(name)) {
+      Class<?> c = findLoadedClass(name);
+      if (c == null) {
+        try {
+          c = findClass(name);
+        } catch (ClassNotFoundException e) {
+          // not part of the ai, so it may be found by the parent
+          return super.loadClass(name, resolve);
+        }
+      }
+      if (resolve) {
+        resolveClass(c);
+      }
+      return c;
+    }
+  }
+
+  private static boolean isShared(String name) {
+    for (String prefix : SHARED_PACKAGES) {
+      if (name.startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,148 @@
+package me.stieglmaier.sphereMiners.model.ai;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.stream.Stream;
+
+import org.sosy_lab.common.log.LogManager;
+
+/**
+ * Watches the AI folder and its subfolders for changed class and jar files in
+ * a background thread, such that recompiled AIs can be used without restarting
+ * the framework.
+ *
+ * Compilers and copying write a file in several steps, each of them results
+ * in an event. So a changed file is only reported after no further events
+ * arrived for {@value #DEBOUNCE_MILLIS} milliseconds, otherwise a partially
+ * written file would be parsed.
+ *
+ * @author stieglma
+ *
+ */
+final class AIFolderWatcher extends Thread implements Closeable {
+
+  private static final long DEBOUNCE_MILLIS = 300;
+
+  private final Path folder;
+  private final WatchService watchService;
+  private final Consumer<File> changedFileCallback;
+  private final Runnable overflowCallback;
+  private final LogManager logger;
+
+  /**
+   * Creates the watcher, it has to be started afterwards.
+   *
+   * @param folder the folder that should be watched
+   * @param changedFileCallback is called for each created, changed or deleted file
+   * @param overflowCallback is called if changes were lost or a new subfolder
+   *                         was created, so the whole folder has to be checked again
+   * @param logger the logger for reporting problems while watching
+   * @throws IOException if the folder cannot be watched
+   */
+  AIFolderWatcher(
+      File folder,
+      Consumer<File> changedFileCallback,
+      Runnable overflowCallback,
+      LogManager logger)
+      throws IOException {
+    this.folder = folder.toPath();
+    this.changedFileCallback = changedFileCallback;
+    this.overflowCallback = overflowCallback;
+    this.logger = logger;
+    watchService = this.folder.getFileSystem().newWatchService();
+    registerRecursively(this.folder);
+    setName("[sphereMiners][aiFolderWatcher]");
+    setDaemon(true);
+  }
+
+  @Override
+  public void run() {
+    // the changed files that are reported as soon as no more events arrive
+    Set<Path> pending = new LinkedHashSet<>();
+    try {
+      while (true) {
+        WatchKey key =
+            pending.isEmpty()
+                ? watchService.take()
+                : watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        if (key == null) {
+          pending.forEach(p -> changedFileCallback.accept(p.toFile()));
+          pending.clear();
+          continue;
+        }
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+          if (event.kind() == OVERFLOW) {
+            overflowCallback.run();
+            continue;
+          }
+
+          Path changed = directory.resolve((Path) event.context());
+          if (event.kind() == ENTRY_CREATE && Files.isDirectory(changed)) {
+            // files in new packages have to be watched, too
+            registerRecursively(changed);
+            overflowCallback.run();
+          } else {
+            pending.add(changed);
+          }
+        }
+        if (!key.reset() && directory.equals(folder)) {
+          logger.log(Level.WARNING, "AI folder cannot be watched anymore:", folder);
+          return;
+        }
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      // watching was stopped
+    } catch (IOException e) {
+      logger.logException(Level.WARNING, e, "AI folder cannot be watched anymore.");
+    }
+  }
+
+  /**
+   * Registers the given directory and all its subdirectories, such that
+   * AIs in packages are watched, too.
+   */
+  private void registerRecursively(Path directory) throws IOException {
+    try (Stream<Path> directories = Files.walk(directory)) {
+      for (Path d : (Iterable<Path>) directories.filter(Files::isDirectory)::iterator) {
+        d.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+      }
+    }
+  }
+
+  /**
+   * Stops watching the folder and waits for the thread to end, changes
+   * that were not reported yet are dropped.
+   */
+  @Override
+  public void close() {
+    try {
+      watchService.close();
+    } catch (IOException e) {
+      logger.logException(Level.INFO, e, "Watching the AI folder could not be stopped.");
+    }
+    interrupt();
+    try {
+      join(TimeUnit.SECONDS.toMillis(1));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,508 @@
+package me.stieglmaier.sphereMiners.model.ai;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+
+import org.sosy_lab.common.log.LogManager;
+
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+
+/**
+ * A persistent index of the files in the AI folder. For each file the index
+ * knows which valid AIs it contains, which is decided by reading the headers
+ * of the class files instead of defining the classes. Files whose path and
+ * modification time did not change since the last scan are not read again.
+ * The content hashes of the files are only computed when they are needed,
+ * i.e. for a changed file or when the hash of an AI is requested, so a scan
+ * does not hash the whole folder. Only the owner of the index writes it, all
+ * others only read it, such that parallel games and workers do not race on
+ * the file.
+ *
+ * AIs can be given as class files in the AI folder, either in the default
+ * package or in subfolders according to their package. Additionally AIs can
+ * be packaged in jar files in the AI folder, a jar file has to declare its AIs
+ * either with the manifest attribute {@value #MANIFEST_ATTRIBUTE} or in the
+ * service file for {@link SphereMiners2015}. Only these declared classes are
+ * read from a jar file.
+ *
+ * @author stieglma
+ *
+ */
+final class AIIndex {
+
+  /**
+   * The manifest attribute listing the AIs in a jar file, separated by
+   * commas or whitespace.
+   */
+  static final String MANIFEST_ATTRIBUTE = "SphereMiners-AI";
+
+  private static final String SERVICE_FILE =
+      "META-INF/services/" + SphereMiners2015.class.getName();
+
+  private static final String HEADER = "# sphereMiners ai index v2";
+  private static final String SEPARATOR = "\t";
+  private static final String CLASS_SUFFIX = ".class";
+  private static final String JAR_SUFFIX = ".jar";
+
+  private final File folder;
+  private final File indexFile;
+  private final boolean writable;
+  private final LogManager logger;
+
+  /**
+   * The entries of the index, identified by the path of the indexed file.
+   */
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+  /**
+   * Creates the index and loads the entries from the given file, if it exists.
+   *
+   * @param folder the folder containing the AIs
+   * @param indexFile the file the index is persisted to
+   * @param writable indicates if this is the owner of the index, which saves it
+   * @param logger the logger for reporting problems with the index file
+   */
+  AIIndex(File folder, File indexFile, boolean writable, LogManager logger) {
+    this.folder = folder.getAbsoluteFile();
+    this.indexFile = indexFile;
+    this.writable = writable;
+    this.logger = logger;
+    load();
+  }
+
+  /**
+   * Scans the AI folder (including subfolders) for AIs. Only new or changed
+   * files are read, this is done in parallel, but they are not hashed.
+   * Afterwards the index is saved if it is writable.
+   *
+   * @return the sorted list of the class names of all valid AIs
+   */
+  synchronized List<String> scan() {
+    // if the folder does not exist there are no ais
+    if (!folder.isDirectory()) {
+      return Collections.emptyList();
+    }
+
+    List<Entry> current;
+    try (Stream<Path> files = Files.walk(folder.toPath())) {
+      current =
+          files
+              .map(p -> p.toFile())
+              .collect(Collectors.toList())
+              .parallelStream()
+              .filter(f -> isIndexed(f))
+              .map(f -> lookup(f, false))
+              .filter(Objects::nonNull)
+              .collect(Collectors.toList());
+    } catch (IOException e) {
+      logger.logException(Level.WARNING, e, "AI folder could not be scanned.");
+      return Collections.emptyList();
+    }
+
+    // forget about deleted files
+    entries.clear();
+    current.forEach(e -> entries.put(e.path, e));
+    save();
+
+    return current
+        .stream()
+        .flatMap(e -> e.aiNames.stream())
+        .distinct()
+        .sorted()
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Updates the index for a single file, e.g. after it was recompiled or
+   * deleted. Afterwards the index is saved if it is writable.
+   *
+   * @param file the file that should be updated
+   * @return the names of the AIs that were contained in the file before or
+   *         are contained now, empty if the content of the file did not change
+   */
+  synchronized Set<String> refresh(File file) {
+    if (!file.getName().endsWith(CLASS_SUFFIX) && !file.getName().endsWith(JAR_SUFFIX)) {
+      return Collections.emptySet();
+    }
+
+    String path = file.getAbsolutePath();
+    Entry old = entries.get(path);
+    Entry current = isIndexed(file) ? lookup(file, true) : null;
+
+    if (current == null) {
+      entries.remove(path);
+    } else {
+      entries.put(path, current);
+    }
+
+    if (old == current
+        || (old != null && current != null && old.hash != null && old.hash.equals(current.hash))) {
+      return Collections.emptySet();
+    }
+
+    save();
+    Set<String> changed = new LinkedHashSet<>();
+    if (old != null) {
+      changed.addAll(old.aiNames);
+    }
+    if (current != null) {
+      changed.addAll(current.aiNames);
+    }
+    return changed;
+  }
+
+  /**
+   * Checks if the given class is a valid AI.
+   *
+   * @param className the name of the class
+   * @return indicates if the class is an indexed, valid AI
+   */
+  boolean isAI(String className) {
+    return getEntry(className) != null;
+  }
+
+  /**
+   * Returns the content hash of the given AI. For AIs in jar files this is
+   * the hash of the jar, for class files in a package it combines the hashes
+   * of all class files in the package of the AI, i.e. its nested classes and
+   * the helper classes it may use. Classes in other packages are not
+   * included. The default package is shared by all AIs in the AI folder, so
+   * there only the class file of the AI and its nested classes are hashed,
+   * and changing one AI does not change the hash of the others.
+   *
+   * @param className the name of the AI
+   * @return the hash of the AI, or null if the AI is not indexed
+   */
+  synchronized String getHash(String className) {
+    Entry e = getEntry(className);
+    if (e == null || e.path.endsWith(JAR_SUFFIX)) {
+      return e == null ? null : getFileHash(e);
+    }
+
+    File aiFile = new File(e.path);
+    String packageFolder = aiFile.getParent();
+    boolean isDefaultPackage = folder.equals(aiFile.getParentFile());
+    String nestedPrefix =
+        aiFile.getName().substring(0, aiFile.getName().length() - CLASS_SUFFIX.length()) + "$";
+    List<Entry> packageEntries =
+        entries
+            .values()
+            .stream()
+            .filter(n -> n.path.endsWith(CLASS_SUFFIX))
+            .filter(n -> packageFolder.equals(new File(n.path).getParent()))
+            .filter(
+                n
+                    -> !isDefaultPackage
+                        || n.path.equals(e.path)
+                        || new File(n.path).getName().startsWith(nestedPrefix))
+            .sorted(Comparator.comparing((Entry n) -> n.path))
+            .collect(Collectors.toList());
+    if (packageEntries.size() == 1) {
+      return getFileHash(e);
+    }
+    List<HashCode> hashes = new ArrayList<>();
+    for (Entry n : packageEntries) {
+      String hash = getFileHash(n);
+      if (hash == null) {
+        return null;
+      }
+      hashes.add(HashCode.fromString(hash));
+    }
+    return Hashing.combineOrdered(hashes).toString();
+  }
+
+  /**
+   * Returns the content hash of an indexed file, it is computed on the first
+   * request and then kept in the index.
+   *
+   * @return the hash of the file, or null if it cannot be read
+   */
+  private String getFileHash(Entry e) {
+    if (e.hash != null) {
+      return e.hash;
+    }
+    String hash = hash(new File(e.path));
+    if (hash != null) {
+      entries.replace(e.path, e, new Entry(e.path, e.lastModified, hash, e.aiNames));
+    }
+    return hash;
+  }
+
+  private String hash(File file) {
+    try {
+      return com.google.common.io.Files.hash(file, Hashing.sha256()).toString();
+    } catch (IOException e) {
+      logger.logException(Level.INFO, e, "Could not read " + file);
+      return null;
+    }
+  }
+
+  /**
+   * Returns the locations a class loader for the given AI has to use.
+   *
+   * @param className the name of the AI
+   * @return the jar file containing the AI, or the AI folder for class files
+   * @throws MalformedURLException if the location cannot be converted to an URL
+   */
+  URL[] getLocations(String className) throws MalformedURLException {
+    Entry e = getEntry(className);
+    if (e != null && e.path.endsWith(JAR_SUFFIX)) {
+      return new URL[] {new File(e.path).toURI().toURL()};
+    }
+    return new URL[] {folder.toURI().toURL()};
+  }
+
+  private Entry getEntry(String className) {
+    for (Entry e : entries.values()) {
+      if (e.aiNames.contains(className)) {
+        return e;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Class files are indexed in the AI folder and all subfolders, jar files
+   * only directly in the AI folder.
+   */
+  private boolean isIndexed(File file) {
+    return file.isFile()
+        && (file.getName().endsWith(CLASS_SUFFIX)
+            || (file.getName().endsWith(JAR_SUFFIX)
+                && folder.equals(file.getAbsoluteFile().getParentFile())));
+  }
+
+  /**
+   * Returns the entry for the given file, it is only read again if its
+   * modification time changed.
+   *
+   * @param file the class or jar file
+   * @param withHash indicates if the content hash of a changed file is computed
+   * @return the entry of the file, or null if it cannot be read
+   */
+  private Entry lookup(File file, boolean withHash) {
+    String path = file.getAbsolutePath();
+    long lastModified = file.lastModified();
+    Entry cached = entries.get(path);
+    if (cached != null && cached.lastModified == lastModified) {
+      return cached;
+    }
+
+    if (file.getName().endsWith(JAR_SUFFIX)) {
+      String hash = withHash ? hash(file) : null;
+      // the file was touched but its content did not change
+      if (hash != null && cached != null && hash.equals(cached.hash)) {
+        return new Entry(path, lastModified, hash, cached.aiNames);
+      }
+      return new Entry(path, lastModified, hash, readJar(file));
+    }
+
+    byte[] bytecode;
+    try {
+      bytecode = Files.readAllBytes(file.toPath());
+    } catch (IOException e) {
+      logger.logException(Level.INFO, e, "Could not read " + path);
+      return null;
+    }
+    String hash = withHash ? Hashing.sha256().hashBytes(bytecode).toString() : null;
+    try {
+      ClassHeader header = ClassHeader.read(bytecode);
+      // classes have to reside in the folder matching their package
+      String expectedName =
+          toClassName(folder.toPath().relativize(file.getAbsoluteFile().toPath()));
+      if (header.getClassName().equals(expectedName) && isAI(header)) {
+        return new Entry(path, lastModified, hash, Collections.singleton(header.getClassName()));
+      }
+    } catch (IOException e) {
+      // not a valid class file, so it is no ai for sure
+      logger.log(Level.WARNING, "Skipping invalid class file", path + ":", e.getMessage());
+    }
+    return new Entry(path, lastModified, hash, Collections.emptySet());
+  }
+
+  /**
+   * Reads the AIs declared in the given jar file. Only the manifest, the
+   * service file and the declared classes are read.
+   *
+   * @param jar the jar file
+   * @return the names of the valid AIs in the jar file
+   */
+  private List<String> readJar(File jar) {
+    List<String> aiNames = new ArrayList<>();
+    try (JarFile jarFile = new JarFile(jar)) {
+      Set<String> declared = new LinkedHashSet<>();
+
+      Manifest manifest = jarFile.getManifest();
+      if (manifest != null) {
+        String attribute = manifest.getMainAttributes().getValue(MANIFEST_ATTRIBUTE);
+        if (attribute != null) {
+          Splitter.onPattern("[,\\s]+").omitEmptyStrings().split(attribute).forEach(declared::add);
+        }
+      }
+
+      ZipEntry services = jarFile.getEntry(SERVICE_FILE);
+      if (services != null) {
+        try (BufferedReader reader =
+            new BufferedReader(new InputStreamReader(jarFile.getInputStream(services), UTF_8))) {
+          String line;
+          while ((line = reader.readLine()) != null) {
+            int comment = line.indexOf('#');
+            String name = (comment >= 0 ? line.substring(0, comment) : line).trim();
+            if (!name.isEmpty()) {
+              declared.add(name);
+            }
+          }
+        }
+      }
+
+      for (String name : declared) {
+        ZipEntry classEntry = jarFile.getEntry(name.replace('.', '/') + CLASS_SUFFIX);
+        if (classEntry == null) {
+          logger.log(Level.INFO, "AI", name, "is declared but missing in", jar);
+          continue;
+        }
+        try (InputStream in = jarFile.getInputStream(classEntry)) {
+          ClassHeader header = ClassHeader.read(ByteStreams.toByteArray(in));
+          if (header.getClassName().equals(name) && isAI(header)) {
+            aiNames.add(name);
+          }
+        } catch (IOException e) {
+          logger.log(
+              Level.WARNING, "Skipping invalid class", name, "in", jar + ":", e.getMessage());
+        }
+      }
+    } catch (IOException e) {
+      logger.logException(Level.INFO, e, "Could not read AI jar " + jar);
+    }
+    return aiNames;
+  }
+
+  private static boolean isAI(ClassHeader header) {
+    return header.isConcrete()
+        && SphereMiners2015.class.getName().equals(header.getSuperClassName());
+  }
+
+  private static String toClassName(Path relativeClassFile) {
+    String name = relativeClassFile.toString().replace(File.separatorChar, '.');
+    return name.substring(0, name.length() - CLASS_SUFFIX.length());
+  }
+
+  private void load() {
+    if (!indexFile.isFile()) {
+      return;
+    }
+
+    try (BufferedReader reader = Files.newBufferedReader(indexFile.toPath(), UTF_8)) {
+      if (!HEADER.equals(reader.readLine())) {
+        return;
+      }
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] parts = line.split(SEPARATOR, -1);
+        if (parts.length == 4) {
+          List<String> aiNames =
+              parts[3].isEmpty() ? Collections.emptyList() : Arrays.asList(parts[3].split(","));
+          // the hash is empty if it was not needed yet
+          String hash = parts[2].isEmpty() ? null : parts[2];
+          entries.put(parts[0], new Entry(parts[0], Long.parseLong(parts[1]), hash, aiNames));
+        }
+      }
+    } catch (IOException | NumberFormatException e) {
+      logger.logException(Level.INFO, e, "AI index could not be read, rescanning all AIs.");
+      entries.clear();
+    }
+  }
+
+  private void save() {
+    if (!writable) {
+      return;
+    }
+    // the GUI and a headless run may own an index of the same folder at the same
+    // time, so the index is written to a temporary file and then moved atomically
+    Path tmpFile;
+    try {
+      tmpFile =
+          Files.createTempFile(
+              indexFile.getAbsoluteFile().getParentFile().toPath(), indexFile.getName(), ".tmp");
+    } catch (IOException e) {
+      logger.logException(Level.INFO, e, "AI index could not be written.");
+      return;
+    }
+    try (Writer writer = Files.newBufferedWriter(tmpFile, UTF_8)) {
+      writer.write(HEADER);
+      writer.write('\n');
+      for (Entry e : entries.values()) {
+        writer.write(
+            String.join(
+                SEPARATOR,
+                e.path,
+                Long.toString(e.lastModified),
+                Strings.nullToEmpty(e.hash),
+                String.join(",", e.aiNames)));
+        writer.write('\n');
+      }
+    } catch (IOException e) {
+      // the index is only a cache, so the next scan just takes longer
+      logger.logException(Level.INFO, e, "AI index could not be written.");
+      tmpFile.toFile().delete();
+      return;
+    }
+    try {
+      Files.move(
+          tmpFile,
+          indexFile.toPath(),
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      logger.logException(Level.INFO, e, "AI index could not be written.");
+    }
+  }
+
+  private static final class Entry {
+    private final String path;
+    private final long lastModified;
+    /** The content hash of the file, null if it was not computed yet. */
+    private final String hash;
+    private final Set<String> aiNames;
+
+    private Entry(String path, long lastModified, String hash, Collection<String> aiNames) {
+      this.path = path;
+      this.lastModified = lastModified;
+      this.hash = hash;
+      this.aiNames = Collections.unmodifiableSet(new HashSet<>(aiNames));
+    }
+  }
+}
@@ -1,31 +1,40 @@
 package me.stieglmaier.sphereMiners.model.ai;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.net.URLDecoder;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Callable;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 import java.util.logging.Level;
+import java.util.stream.Collectors;
 
 import org.sosy_lab.common.Pair;
 
+import com.google.common.base.Optional;
+
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import me.stieglmaier.sphereMiners.main.Constants;
@@ -47,14 +56,66 @@ public final class AIManager {
   private final ObservableList<String> aiList = FXCollections.observableArrayList();
 
   /**
-   * array of the active AIs, each AI is identified by {@link Team}.
+   * map of the active AIs, each AI is identified by its {@link Player}. The
+   * map is filled concurrently while the AIs are initialized.
+   */
+  private final Map<Player, SphereMiners2015> ais = new ConcurrentHashMap<>();
+
+  /**
+   * The amount of turns the average turn time is computed on during the
+   * warm-up of the AIs.
+   */
+  private static final int WARMUP_WINDOW = 10;
+
+  /**
+   * The factor by which the computation time may be exceeded during the
+   * warm-up of the AIs, before the warm-up of the AI is stopped. Turns in
+   * the interpreter may be much slower than the computation time, but an AI
+   * that never returns from a turn must not block the start of the game.
+   * Tournament coordinators need it for bounding the duration of a match.
+   */
+  public static final int WARMUP_TIMEOUT_FACTOR = 10;
+
+  /**
+   * The canonical order of the players, the commands of the AIs are applied
+   * in this order such that the result of a turn does not depend on the
+   * order in which the (parallel) computations of the AIs finished.
+   */
+  private final List<Player> playerOrder = new ArrayList<>();
+
+  /**
+   * The factories for creating instances of the valid AIs, identified by
+   * their class name. They are created once when an AI is used first.
+   */
+  private final Map<String, Supplier<SphereMiners2015>> factories = new ConcurrentHashMap<>();
+
+  /**
+   * The class loaders of the factories, a loader is closed when its factory
+   * is removed, so its jar files are not kept open.
+   */
+  private final Map<String, URLClassLoader> classLoaders = new ConcurrentHashMap<>();
+
+  /**
+   * The threads on which the AIs are initialized, idle threads are reused
+   * for the next initialization.
    */
-  private final Map<Player, SphereMiners2015> ais = new LinkedHashMap<>();
+  private final ExecutorService initExecutor =
+      Executors.newCachedThreadPool(
+          r -> {
+            Thread t = new Thread(r, "[sphereMiners][aiInitThread]");
+            t.setDaemon(true);
+            return t;
+          });
 
   /**
-   * The loader which loads the ais.
+   * Watches the AI folder for recompiled AIs, null if watching is disabled.
    */
-  private URLClassLoader loader;
+  private AIFolderWatcher watcher;
+
+  /**
+   * Executes all changes of the list of AIs, e.g. on the thread of the GUI.
+   */
+  private volatile Executor aiListUpdater = Runnable::run;
 
   /**
    * The physics engine responsible for calculating all the stuff.
@@ -67,6 +128,22 @@ public final class AIManager {
   private final String AI_FILELOCATION;
   private final Constants constants;
 
+  /**
+   * The computation time of the AIs in milliseconds, scaled by the speed of
+   * this machine if calibration is enabled.
+   */
+  private final long aiComputationTime;
+
+  /**
+   * The name of the file in the AI folder the index of the AIs is saved to.
+   */
+  private static final String AI_INDEX_FILE = ".sphereMinersAIIndex";
+
+  /**
+   * The index of the class files in the AI folder.
+   */
+  private final AIIndex aiIndex;
+
   /**
    * The constructor of this class. It is responsible for listing the possible
    * AIs, so they can be displayed in the View and chosen to simulate games.
@@ -76,10 +153,75 @@ public final class AIManager {
    *                                was malformed
    */
   public AIManager(Constants constants) throws MalformedURLException {
+    this(constants, constants.isAIFolderWatched(), true);
+  }
+
+  /**
+   * Creates an AIManager which may ignore the configured option for watching
+   * the AI folder, e.g. for running several games in parallel where the AIs
+   * should not change in between. It reads the index of the AI folder, but
+   * leaves writing it to the AIManager owning it.
+   *
+   * @param constants The constants that should be used for the AIs class
+   * @param watchAIFolder indicates if the AI folder should be watched for changed AIs
+   * @throws MalformedURLException  Could appear if the Constants.AI_LOCATION
+   *                                was malformed
+   */
+  public AIManager(Constants constants, boolean watchAIFolder) throws MalformedURLException {
+    this(constants, watchAIFolder, false);
+  }
+
+  /**
+   * Creates an AIManager which may ignore the configured option for watching
+   * the AI folder. Only one AIManager of a process, and only the process
+   * starting all others, should own the index of the AI folder, such that
+   * workers and parallel games do not write it concurrently.
+   *
+   * @param constants The constants that should be used for the AIs class
+   * @param watchAIFolder indicates if the AI folder should be watched for changed AIs
+   * @param ownsAIIndex indicates if this AIManager writes the index of the AI folder
+   * @throws MalformedURLException  Could appear if the Constants.AI_LOCATION
+   *                                was malformed
+   */
+  public AIManager(Constants constants, boolean watchAIFolder, boolean ownsAIIndex)
+      throws MalformedURLException {
     this.constants = constants;
+    aiComputationTime = TimeCalibration.getAIComputationTime(constants);
     AI_FILELOCATION = getAIPath();
-    initalizeClassloader();
+    aiIndex =
+        new AIIndex(
+            new File(AI_FILELOCATION),
+            new File(AI_FILELOCATION, AI_INDEX_FILE),
+            ownsAIIndex,
+            constants.getLogger());
     makeAiList();
+
+    if (watchAIFolder) {
+      try {
+        watcher =
+            new AIFolderWatcher(
+                new File(AI_FILELOCATION),
+                f -> aiFileChanged(f),
+                () -> reloadAIList(),
+                constants.getLogger());
+        watcher.start();
+      } catch (IOException e) {
+        constants
+            .getLogger()
+            .logException(Level.WARNING, e, "AI folder cannot be watched for changed AIs.");
+      }
+    }
+  }
+
+  /**
+   * Sets the executor for all changes on the list of AIs. The list may
+   * change in the background if an AI is recompiled, this executor can
+   * be used to apply these changes on the appropriate thread.
+   *
+   * @param aiListUpdater the executor for changing the list of AIs
+   */
+  public void setAIListUpdater(Executor aiListUpdater) {
+    this.aiListUpdater = aiListUpdater;
   }
 
   /**
@@ -123,82 +265,198 @@ public final class AIManager {
   }
 
   /**
-   * this function initializes the classloader.
+   * Creates a new classloader for the given AI, which loads the current
+   * version of the AI. Each AI gets its own classloader, such that it can be
+   * reloaded independently.
    *
-   * @throws MalformedURLException Could appear if the Constants.AI_LOCATION
-   *                               was malformed
-   */
-  private void initalizeClassloader() throws MalformedURLException {
-    File fileloc = new File(AI_FILELOCATION);
-    final URL[] url = new URL[1];
-    url[0] = fileloc.toURI().toURL();
-    AccessController.doPrivileged(
-        (PrivilegedAction<Object>)
-            () -> {
-              loader = new URLClassLoader(url);
-              return null;
-            });
+   * @param name the name of the AI
+   * @return the new classloader
+   * @throws MalformedURLException if the location of the AI is malformed
+   */
+  private URLClassLoader createClassLoader(String name) throws MalformedURLException {
+    URL[] locations = aiIndex.getLocations(name);
+    return AccessController.doPrivileged(
+        (PrivilegedAction<URLClassLoader>)
+            () -> new AIClassLoader(locations, AIManager.class.getClassLoader()));
   }
 
   /**
-   * This method creates the list of the possible AIs.
+   * This method creates the list of the possible AIs. The classes are not
+   * loaded here, only the headers of changed class files are read.
    */
   private void makeAiList() {
-
-    // create Loader
-    File fileloc = new File(AI_FILELOCATION);
-    File[] classes = fileloc.listFiles();
-
-    // if there are no files, classes will be null. (See JavaManual)
-    if (classes == null) {
-      return;
-    }
-
-    Arrays.stream(classes)
-        .map(f -> f.getName())
-        // only add ais if they are valid (extend SphereMiner2015 class)
-        .filter(f -> f.endsWith(".class"))
-        .map(f -> f.split(".class")[0])
-        .filter(f -> isValidAi(f))
-        .forEach(f -> aiList.add(f));
+    aiList.addAll(aiIndex.scan());
   }
 
   /**
    * Recreate the list of AI's that could be used for playing
    */
   public void reloadAIList() {
-    aiList.clear();
-    makeAiList();
+    clearFactories();
+    List<String> foundAIs = aiIndex.scan();
+    aiListUpdater.execute(() -> aiList.setAll(foundAIs));
   }
 
   /**
-   * This method checks if the selected class is of a valid AI type.
+   * Updates the list of AIs after the given file was changed. If the file
+   * belongs to an AI, the next instance of this AI will be created from the
+   * new version, the instances of all other AIs are not affected.
+   *
+   * @param file the file that was changed
+   */
+  private void aiFileChanged(File file) {
+    for (String name : aiIndex.refresh(file)) {
+      removeFactory(name);
+      boolean isAI = aiIndex.isAI(name);
+      constants
+          .getLogger()
+          .log(Level.INFO, "AI class", name, "changed, it is reloaded on next use.");
+
+      aiListUpdater.execute(
+          () -> {
+            if (!isAI) {
+              aiList.remove(name);
+            } else if (!aiList.contains(name)) {
+              int index = 0;
+              while (index < aiList.size() && aiList.get(index).compareTo(name) < 0) {
+                index++;
+              }
+              aiList.add(index, name);
+            }
+          });
+    }
+  }
+
+  /**
+   * This method checks if the selected class is of a valid AI type. For
+   * valid AIs the factory for creating new instances is cached.
    *
    * @param path The path to the selected class.
    * @return The boolean result, if the class is correct.
    */
   private boolean isValidAi(final String path) {
-    boolean validAi = true;
+    if (factories.containsKey(path)) {
+      return true;
+    }
+
+    boolean validAi = false;
     Class<?> loadedAI;
+    URLClassLoader loader = null;
 
     try {
+      loader = createClassLoader(path);
       loadedAI = loader.loadClass(path);
 
       // check if the ai implements the AI interface
       // in this case, the ai is valid because it implements the AI
       // interface, so the isValidAi method can instantly return true
       // without proceeding the check
-      validAi = loadedAI.getSuperclass().getName().equals(SphereMiners2015.class.getName());
+      Class<?> superclass = loadedAI.getSuperclass();
+      if (superclass != null && superclass.getName().equals(SphereMiners2015.class.getName())) {
+        factories.put(path, createFactory(loadedAI));
+        URLClassLoader previous = classLoaders.put(path, loader);
+        if (previous != null) {
+          closeClassLoader(path, previous);
+        }
+        validAi = true;
+      }
 
-    } catch (ClassNotFoundException e) {
+    } catch (ClassNotFoundException
+        | NoSuchMethodException
+        | IllegalAccessException
+        | MalformedURLException e) {
       // do not throw an exception this method should check if the ai
       // is valid, so if not its not necessary to throw an exception
+      // (ais without a public constructor with zero arguments cannot be used)
       validAi = false;
+    } finally {
+      // the classes of rejected AIs are not used, so their jar files are closed
+      if (!validAi && loader != null) {
+        closeClassLoader(path, loader);
+      }
     }
 
     return validAi;
   }
 
+  /**
+   * Removes the factory of the given AI and closes its class loader.
+   * Instances of the AI that are still running keep the classes they
+   * already loaded.
+   *
+   * @param name the name of the AI
+   */
+  private void removeFactory(String name) {
+    factories.remove(name);
+    URLClassLoader loader = classLoaders.remove(name);
+    if (loader != null) {
+      closeClassLoader(name, loader);
+    }
+  }
+
+  /**
+   * Removes the factories of all AIs and closes their class loaders.
+   */
+  private void clearFactories() {
+    factories.clear();
+    for (String name : new ArrayList<>(classLoaders.keySet())) {
+      removeFactory(name);
+    }
+  }
+
+  private void closeClassLoader(String name, URLClassLoader loader) {
+    try {
+      loader.close();
+    } catch (IOException e) {
+      constants
+          .getLogger()
+          .logException(Level.INFO, e, "Class loader of AI " + name + " could not be closed.");
+    }
+  }
+
+  /**
+   * Creates a factory for the given AI class, based on its public
+   * constructor with zero arguments.
+   *
+   * @param aiClass the class of the AI
+   * @return the factory creating new instances of the AI
+   * @throws NoSuchMethodException if there is no matching constructor
+   * @throws IllegalAccessException if the constructor cannot be accessed
+   */
+  private static Supplier<SphereMiners2015> createFactory(Class<?> aiClass)
+      throws NoSuchMethodException, IllegalAccessException {
+    Constructor<?> ct = aiClass.getConstructor();
+    ct.setAccessible(true);
+    final MethodHandle constructor =
+        MethodHandles.lookup()
+            .unreflectConstructor(ct)
+            .asType(MethodType.methodType(SphereMiners2015.class));
+
+    return () -> {
+      try {
+        return (SphereMiners2015) constructor.invokeExact();
+      } catch (Throwable e) {
+        throw new IllegalStateException("Constructor of AI " + aiClass.getName() + " failed", e);
+      }
+    };
+  }
+
+  /**
+   * Creates and initializes a new instance of the AI for the given player.
+   *
+   * @param player the player the AI should be created for
+   * @return the initialized AI
+   */
+  private SphereMiners2015 createAI(Player player) {
+    SphereMiners2015 ai = factories.get(player.getInternalName()).get();
+    ai.setPlayer(player);
+    ai.setPhysics(physics);
+    ai.setConstants(constants);
+    ai.setComputationTime(aiComputationTime);
+    ai.init();
+    return ai;
+  }
+
   /**
    * This method returns the complete list of AIs which can be chosen to
    * simulate a game.
@@ -218,10 +476,13 @@ public final class AIManager {
    */
   public Map<Player, LoadingStatus> initializeGameAIs(final List<Player> aisToPlay) {
 
-    // cleaning up the list of the last ais.
+    // cleaning up the list of the last ais, their threads are not needed anymore
+    ais.values().forEach(SphereMiners2015::shutdown);
     ais.clear();
+    playerOrder.clear();
+    playerOrder.addAll(aisToPlay);
 
-    Map<Player, LoadingStatus> retVal = new HashMap<>();
+    Map<Player, LoadingStatus> retVal = new ConcurrentHashMap<>();
 
     aisToPlay
         .stream()
@@ -234,73 +495,124 @@ public final class AIManager {
         .parallel()
         .forEach(
             ai -> {
-              if (loadAI(ai, loader)) retVal.put(ai, LoadingStatus.LOADED);
+              if (loadAI(ai)) retVal.put(ai, LoadingStatus.LOADED);
               else retVal.put(ai, LoadingStatus.INITIALIZING_FAILED);
             });
 
-    return retVal;
+    warmUpAIs(retVal);
+
+    return new HashMap<>(retVal);
+  }
+
+  /**
+   * Lets the loaded AIs play turns on a synthetic game, until either their
+   * turn time is stable or the maximal amount of warm-up turns is reached.
+   * The turns are only cut off after {@link #WARMUP_TIMEOUT_FACTOR} times the
+   * computation time, an AI whose turn is cut off ends its warm-up. Thus the
+   * compiled code of the AIs is used from the first turn of the real game on.
+   * Afterwards the AIs are instantiated again, such that no state of the
+   * synthetic game is kept.
+   *
+   * @param loadingStatus the mapping of ais to their loading status, which is
+   *                      updated if an AI cannot be instantiated again
+   */
+  private void warmUpAIs(Map<Player, LoadingStatus> loadingStatus) {
+    List<Player> players =
+        playerOrder.stream().filter(p -> ais.containsKey(p)).collect(Collectors.toList());
+    if (constants.getAIWarmupTurns() <= 0 || players.isEmpty()) {
+      return;
+    }
+
+    // the commands of the ais are only applied to this (synthetic) game
+    Physics warmupPhysics = new Physics(constants);
+    warmupPhysics.createInitialTick(players);
+    players.forEach(p -> ais.get(p).setPhysics(warmupPhysics));
+
+    Map<Player, List<Long>> turnTimes = new HashMap<>();
+    players.forEach(p -> turnTimes.put(p, new ArrayList<>()));
+    Set<Player> warmingUp = new HashSet<>(players);
+    long timeLimit = aiComputationTime * WARMUP_TIMEOUT_FACTOR;
+
+    for (int turn = 0; turn < constants.getAIWarmupTurns() && !warmingUp.isEmpty(); turn++) {
+      List<Pair<Player, Optional<CommandBatch>>> turns =
+          players
+              .parallelStream()
+              .filter(p -> warmingUp.contains(p))
+              .map(
+                  p -> {
+                    long start = System.nanoTime();
+                    Optional<CommandBatch> commands = ais.get(p).evaluateTurn(timeLimit);
+                    turnTimes.get(p).add(System.nanoTime() - start);
+                    return Pair.of(p, commands);
+                  })
+              .collect(Collectors.toList());
+
+      warmupPhysics.applyCommands(
+          turns
+              .stream()
+              .filter(p -> p.getSecond().isPresent())
+              .map(p -> p.getSecond().get())
+              .collect(Collectors.toList()));
+      warmupPhysics.applyPhysics();
+
+      // ais that failed cannot be warmed up any further
+      turns
+          .stream()
+          .filter(p -> !p.getSecond().isPresent())
+          .forEach(p -> warmingUp.remove(p.getFirst()));
+      warmingUp.removeIf(p -> isTurnTimeStable(turnTimes.get(p)));
+    }
+
+    // replace the warmed up instances by fresh ones, the compiled code is kept
+    players
+        .parallelStream()
+        .forEach(
+            p -> {
+              ais.remove(p).shutdown();
+              if (!loadAI(p)) {
+                loadingStatus.put(p, LoadingStatus.INITIALIZING_FAILED);
+              }
+            });
+  }
+
+  /**
+   * Checks if the average of the last turn times does not differ much from
+   * the average of the turn times before.
+   *
+   * @param turnTimes the list of turn times of an AI
+   * @return indicates whether the turn time is stable
+   */
+  private boolean isTurnTimeStable(List<Long> turnTimes) {
+    int size = turnTimes.size();
+    if (size < 2 * WARMUP_WINDOW) {
+      return false;
+    }
+
+    double previous = average(turnTimes.subList(size - 2 * WARMUP_WINDOW, size - WARMUP_WINDOW));
+    double current = average(turnTimes.subList(size - WARMUP_WINDOW, size));
+    return Math.abs(current - previous) <= constants.getAIWarmupTolerance() * previous;
+  }
+
+  private static double average(List<Long> values) {
+    return values.stream().mapToLong(l -> l).average().getAsDouble();
   }
 
   /**
    * This method loads and initializes an AI if possible.
    *
    * @param player he player which should be initialized
-   * @param loader the loader which is used for initialization
    * @return indicates if the loading process was successful
    */
-  private boolean loadAI(final Player player, final URLClassLoader loader) {
-
-    ExecutorService exec = Executors.newSingleThreadExecutor();
-    Future<Boolean> future =
-        exec.submit(
-            (Callable<Boolean>)
-                () -> {
-                  Class<?> cl;
-                  try {
-                    cl = loader.loadClass(player.getInternalName());
-                  } catch (ClassNotFoundException e) {
-                    // do nothing, exception is handled in another method
-                    return false;
-                  }
-
-                  // search for constructor with zero arguments, and make it
-                  // accessible
-                  for (Constructor<?> ct : cl.getConstructors()) {
-                    if (ct.getParameterTypes().length == 0) {
-                      ct.setAccessible(true);
-                      try {
-                        SphereMiners2015 loaded = (SphereMiners2015) ct.newInstance();
-                        loaded.setPlayer(player);
-                        loaded.setPhysics(physics);
-                        loaded.setConstants(constants);
-                        loaded.init();
-                        ais.put(player, loaded);
-                        return true;
-
-                      } catch (
-                          InstantiationException | IllegalAccessException | IllegalArgumentException
-                                  | InvocationTargetException
-                              e) {
-                        // if any of these errors occured the ai could not
-                        // be loaded properly, so the method returns without
-                        // doing anything
-                      }
-                    }
-                  }
-                  return false;
-                });
+  private boolean loadAI(final Player player) {
+    Future<SphereMiners2015> future = initExecutor.submit(() -> createAI(player));
 
     try {
-      if (future.get(constants.getAIComputationTime(), TimeUnit.MILLISECONDS)) {
-        return true;
-      } else {
-        return false;
-      }
+      ais.put(player, future.get(aiComputationTime, TimeUnit.MILLISECONDS));
+      return true;
     } catch (InterruptedException | ExecutionException | TimeoutException e) {
       // nothing special to do here, just ignore the exceptions and cancel
       // the task
       future.cancel(true);
-      ais.remove(player);
       constants
           .getLogger()
           .log(
@@ -312,32 +624,71 @@ public final class AIManager {
 
   /**
    * This method lets all AIs compute one step. If an AIs calculation lasts
-   * too long, it is terminated and reinitialized again.
+   * too long, it is terminated and reinitialized again. The AIs are computed
+   * in parallel, their commands are applied afterwards on the calling thread
+   * in the canonical order of the players.
    */
   public void applyMoves() {
-    ais.entrySet()
-        .parallelStream() // compute in parallel if possible
-        .map(e -> Pair.of(e.getKey(), e.getValue().evaluateTurn())) // evaluate the turns
-        .filter(p -> !p.getSecond()) // get those ais who did not finish successfully
+    List<Pair<Player, Optional<CommandBatch>>> turns =
+        playerOrder
+            .parallelStream() // compute in parallel if possible
+            .filter(p -> ais.containsKey(p))
+            .map(p -> Pair.of(p, ais.get(p).evaluateTurn())) // evaluate the turns
+            .collect(Collectors.toList()); // keeps the order of the players
+
+    physics.applyCommands(
+        turns
+            .stream()
+            .filter(p -> p.getSecond().isPresent())
+            .map(p -> p.getSecond().get())
+            .collect(Collectors.toList()));
+
+    turns
+        .stream()
+        .filter(p -> !p.getSecond().isPresent()) // get those ais who did not finish successfully
         .forEach(p -> reinitializeAi(p.getFirst())); // and reinitialize them
   }
 
   /**
-   * This method reinitializes an AI.
+   * Lets all AIs compute one step on the calling thread, one after another
+   * and without a time limit. The commands are not applied but returned in
+   * the canonical order of the players, such that they can be combined with
+   * commands from other sources. AIs that throw an exception are
+   * reinitialized.
+   *
+   * @return the commands of the AIs that finished their turn successfully
+   */
+  public List<CommandBatch> computeMovesOnCallingThread() {
+    List<CommandBatch> commands = new ArrayList<>();
+    for (Player p : playerOrder) {
+      SphereMiners2015 ai = ais.get(p);
+      if (ai == null) {
+        continue;
+      }
+      Optional<CommandBatch> batch = ai.evaluateTurnOnCallingThread();
+      if (batch.isPresent()) {
+        commands.add(batch.get());
+      } else {
+        reinitializeAi(p);
+      }
+    }
+    return commands;
+  }
+
+  /**
+   * This method reinitializes an AI. The new instance is initialized on an
+   * initialization thread with the same time limit as at the start of the
+   * game, such that a misbehaving AI cannot stop the game.
    *
    * @param ai determinate which AI should be reinitialized.
    */
   private void reinitializeAi(Player ai) {
-    try {
-      Class<?> cl = loader.loadClass(ais.get(ai).getClass().getName());
-      ais.remove(ai);
-      SphereMiners2015 newAi = (SphereMiners2015) cl.newInstance();
-      newAi.setPlayer(ai);
-      newAi.setPhysics(physics);
-      newAi.setConstants(constants);
-      newAi.init();
-      ais.put(ai, newAi);
-    } catch (ClassNotFoundException | IllegalAccessException | InstantiationException e1) {
+    SphereMiners2015 oldAi = ais.remove(ai);
+    if (oldAi != null) {
+      oldAi.shutdown();
+    }
+
+    if (!loadAI(ai)) {
       constants
           .getLogger()
           .log(
@@ -345,11 +696,34 @@ public final class AIManager {
               "AI "
                   + ai.getInternalName()
                   + " could not be reinitialized, ai is removed from the game");
-      ais.remove(ai);
-      throw new Error("Reinitialization of " + ais.get(ai).getClass().getName() + " FAILED!");
     }
   }
 
+  /**
+   * Returns a hash of the bytecode of the given AI, it changes whenever the
+   * AI is recompiled with changes.
+   *
+   * @param name the name of the AI
+   * @return the hash of the AI, or null if there is no such AI
+   */
+  public String getAIHash(String name) {
+    return aiIndex.getHash(name);
+  }
+
+  /**
+   * Stops watching the AI folder and all threads of the loaded AIs.
+   * Afterwards this AIManager cannot be used anymore.
+   */
+  public void close() {
+    if (watcher != null) {
+      watcher.close();
+    }
+    ais.values().forEach(SphereMiners2015::shutdown);
+    ais.clear();
+    initExecutor.shutdownNow();
+    clearFactories();
+  }
+
   public enum LoadingStatus {
     INVALID_LOCATION,
     INITIALIZING_FAILED,
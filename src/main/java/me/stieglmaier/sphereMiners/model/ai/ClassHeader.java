@@ -0,0 +1,140 @@
+package me.stieglmaier.sphereMiners.model.ai;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+
+/**
+ * The relevant parts of the header of a class file, read directly from the
+ * bytecode. This way classes can be checked without defining them in a
+ * class loader.
+ *
+ * @author stieglma
+ *
+ */
+final class ClassHeader {
+
+  private static final int MAGIC = 0xCAFEBABE;
+  private static final int ACC_INTERFACE = 0x0200;
+  private static final int ACC_ABSTRACT = 0x0400;
+
+  private final String className;
+  private final String superClassName;
+  private final int accessFlags;
+
+  private ClassHeader(String className, String superClassName, int accessFlags) {
+    this.className = className;
+    this.superClassName = superClassName;
+    this.accessFlags = accessFlags;
+  }
+
+  /**
+   * Reads the header of the given class file.
+   *
+   * @param bytecode the content of the class file
+   * @return the header of the class
+   * @throws IOException if the given bytes are no valid class file
+   */
+  static ClassHeader read(byte[] bytecode) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytecode));
+    if (in.readInt() != MAGIC) {
+      throw new IOException("Not a class file");
+    }
+    in.readUnsignedShort(); // minor version
+    in.readUnsignedShort(); // major version
+
+    int poolSize = in.readUnsignedShort();
+    String[] utf8Entries = new String[poolSize];
+    int[] classEntries = new int[poolSize];
+    for (int i = 1; i < poolSize; i++) {
+      int tag = in.readUnsignedByte();
+      switch (tag) {
+        case 1: // Utf8
+          utf8Entries[i] = in.readUTF();
+          break;
+        case 7: // Class
+          classEntries[i] = in.readUnsignedShort();
+          break;
+        case 8: // String
+        case 16: // MethodType
+        case 19: // Module
+        case 20: // Package
+          in.skipBytes(2);
+          break;
+        case 15: // MethodHandle
+          in.skipBytes(3);
+          break;
+        case 3: // Integer
+        case 4: // Float
+        case 9: // Fieldref
+        case 10: // Methodref
+        case 11: // InterfaceMethodref
+        case 12: // NameAndType
+        case 17: // Dynamic
+        case 18: // InvokeDynamic
+          in.skipBytes(4);
+          break;
+        case 5: // Long
+        case 6: // Double
+          in.skipBytes(8);
+          i++; // these entries take two slots
+          break;
+        default:
+          throw new IOException("Unknown constant pool tag " + tag);
+      }
+    }
+
+    int accessFlags = in.readUnsignedShort();
+    int thisClass = in.readUnsignedShort();
+    int superClass = in.readUnsignedShort();
+
+    return new ClassHeader(
+        toClassName(utf8Entries, classEntries, thisClass),
+        toClassName(utf8Entries, classEntries, superClass),
+        accessFlags);
+  }
+
+  private static String toClassName(String[] utf8Entries, int[] classEntries, int index)
+      throws IOException {
+    // java.lang.Object has no superclass
+    if (index == 0) {
+      return null;
+    }
+    // the indices are not checked by anyone before, so a malformed class file must
+    // result in an IOException instead of an ArrayIndexOutOfBoundsException
+    if (index >= classEntries.length
+        || classEntries[index] >= utf8Entries.length
+        || utf8Entries[classEntries[index]] == null) {
+      throw new IOException("Invalid class reference " + index);
+    }
+    return utf8Entries[classEntries[index]].replace('/', '.');
+  }
+
+  /**
+   * Returns the fully qualified name of the class.
+   *
+   * @return the name of the class
+   */
+  String getClassName() {
+    return className;
+  }
+
+  /**
+   * Returns the fully qualified name of the direct superclass.
+   *
+   * @return the name of the superclass, or null for java.lang.Object
+   */
+  String getSuperClassName() {
+    return superClassName;
+  }
+
+  /**
+   * Checks whether the class can be instantiated, i.e. it is neither
+   * abstract nor an interface.
+   *
+   * @return indicates if the class is concrete
+   */
+  boolean isConcrete() {
+    return (accessFlags & (ACC_ABSTRACT | ACC_INTERFACE)) == 0;
+  }
+}
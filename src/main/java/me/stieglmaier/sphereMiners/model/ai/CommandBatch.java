@@ -0,0 +1,129 @@
+package me.stieglmaier.sphereMiners.model.ai;
+
+import java.util.Collection;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import me.stieglmaier.sphereMiners.model.util.Position;
+import me.stieglmaier.sphereMiners.model.util.Sphere;
+
+/**
+ * An immutable batch of all commands one AI issued during one turn. Batches
+ * are created by the AIs (possibly in parallel) and applied afterwards by
+ * the simulation thread, such that the physics is never changed concurrently.
+ *
+ * @author stieglma
+ *
+ */
+public final class CommandBatch {
+
+  private final Player player;
+  private final ImmutableMap<Sphere, Sphere> mines;
+  private final ImmutableMap<Sphere, Sphere> merges;
+  private final ImmutableList<Sphere> splits;
+  private final ImmutableMap<Sphere, Position> directions;
+
+  /**
+   * Create a new CommandBatch, all given collections are copied, entries
+   * containing <code>null</code> are dropped.
+   *
+   * @param player the player that issued the commands
+   * @param mines the map of (own) spheres to (enemy) spheres that should be mined
+   * @param merges the map of spheres that should grow to spheres that should vanish
+   * @param splits the spheres that should be splitted
+   * @param directions the map of spheres to their new moving directions
+   */
+  public CommandBatch(
+      Player player,
+      Map<Sphere, Sphere> mines,
+      Map<Sphere, Sphere> merges,
+      Collection<Sphere> splits,
+      Map<Sphere, Position> directions) {
+    this.player = player;
+    this.mines = copyOf(mines);
+    this.merges = copyOf(merges);
+    this.directions = copyOf(directions);
+
+    ImmutableList.Builder<Sphere> splitCopy = ImmutableList.builder();
+    for (Sphere s : splits) {
+      if (s != null) {
+        splitCopy.add(s);
+      }
+    }
+    this.splits = splitCopy.build();
+  }
+
+  private static <K, V> ImmutableMap<K, V> copyOf(Map<K, V> map) {
+    ImmutableMap.Builder<K, V> copy = ImmutableMap.builder();
+    for (Map.Entry<K, V> e : map.entrySet()) {
+      if (e.getKey() != null && e.getValue() != null) {
+        copy.put(e.getKey(), e.getValue());
+      }
+    }
+    return copy.build();
+  }
+
+  /**
+   * Returns the player who issued this batch.
+   *
+   * @return the player who issued the commands
+   */
+  public Player getPlayer() {
+    return player;
+  }
+
+  /**
+   * Returns the spheres that should be mined.
+   *
+   * @return the map of (own) spheres to (enemy) spheres that should be mined
+   */
+  public ImmutableMap<Sphere, Sphere> getMines() {
+    return mines;
+  }
+
+  /**
+   * Returns the spheres that should be merged.
+   *
+   * @return the map of spheres that should grow to spheres that should vanish
+   */
+  public ImmutableMap<Sphere, Sphere> getMerges() {
+    return merges;
+  }
+
+  /**
+   * Returns the spheres that should be splitted.
+   *
+   * @return the spheres that should be splitted
+   */
+  public ImmutableList<Sphere> getSplits() {
+    return splits;
+  }
+
+  /**
+   * Returns the new moving directions.
+   *
+   * @return the map of spheres to their new (relative) moving directions
+   */
+  public ImmutableMap<Sphere, Position> getDirections() {
+    return directions;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public String toString() {
+    return "Commands of "
+        + player.getInternalName()
+        + " (mines: "
+        + mines.size()
+        + ", merges: "
+        + merges.size()
+        + ", splits: "
+        + splits.size()
+        + ", directions: "
+        + directions.size()
+        + ")";
+  }
+}
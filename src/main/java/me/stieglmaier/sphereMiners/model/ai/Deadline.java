@@ -0,0 +1,55 @@
+package me.stieglmaier.sphereMiners.model.ai;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The deadline of one turn of an AI. AIs using the anytime mode (see
+ * {@link SphereMiners2015#isAnytimeAI()}) should poll it regularly and
+ * return from their turn as soon as it is expired.
+ *
+ * @author stieglma
+ *
+ */
+public final class Deadline {
+
+  private final long endNanos;
+
+  /**
+   * Create a new Deadline that expires after the given amount of time.
+   *
+   * @param budget the time until the deadline expires
+   * @param unit the unit of the budget
+   */
+  Deadline(long budget, TimeUnit unit) {
+    endNanos = System.nanoTime() + unit.toNanos(budget);
+  }
+
+  /**
+   * Checks if the deadline is already expired.
+   *
+   * @return indicates whether the deadline is expired or not
+   */
+  public boolean isExpired() {
+    return getRemainingNanos() <= 0;
+  }
+
+  /**
+   * Returns the remaining time in nanoseconds, this may be negative if the
+   * deadline is already expired.
+   *
+   * @return the remaining time in nanoseconds
+   */
+  public long getRemainingNanos() {
+    return endNanos - System.nanoTime();
+  }
+
+  /**
+   * Returns the remaining time in milliseconds, this may be negative if the
+   * deadline is already expired.
+   *
+   * @return the remaining time in milliseconds
+   */
+  public long getRemainingMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(getRemainingNanos());
+  }
+}
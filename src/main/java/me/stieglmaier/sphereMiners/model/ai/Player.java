@@ -36,6 +36,22 @@ public class Player {
     displayName = new SimpleStringProperty(internalAiName);
   }
 
+  /**
+   * Create a Player with the given name and color, which are usually chosen
+   * by the AI itself. This is used for replaying recorded games without the
+   * AI.
+   *
+   * @param internalAiName the name used for identification in the framework
+   * @param aiSize the initial size of the player
+   * @param name the name the AI has chosen
+   * @param color the color the AI has chosen
+   */
+  public Player(String internalAiName, int aiSize, String name, Color color) {
+    this(internalAiName, aiSize);
+    displayName.setValue(name);
+    this.color = color;
+  }
+
   /**
    * Returns the internally used name.
    *
@@ -2,8 +2,9 @@ package me.stieglmaier.sphereMiners.model.ai;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -11,9 +12,13 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 
 import javafx.scene.paint.Color;
 import me.stieglmaier.sphereMiners.main.Constants;
@@ -30,13 +35,27 @@ public abstract class SphereMiners2015 {
   private Physics physics;
   private Player ownAI;
   private Set<Sphere> allSpheres;
-  private Turn currentMine;
-  private Turn currentChangeDest;
-  private Turn currentSplit;
-  private Turn currentMerge;
+  /** The spheres of the physics, per copy of them the AI sees in this turn. */
+  private Map<Sphere, Sphere> physicsSpheres;
+  private Map<Sphere, Sphere> currentMine;
+  private Map<Sphere, Position> currentChangeDest;
+  private Collection<Sphere> currentSplit;
+  private Map<Sphere, Sphere> currentMerge;
   private Constants constants;
+  private long computationTime;
   private ExecutorService threadExecutor = Executors.newSingleThreadExecutor();
 
+  /**
+   * The part of the computation time that is left between the deadline and
+   * the end of the turn, such that the final commands can be published.
+   */
+  private static final double DEADLINE_MARGIN = 0.1;
+
+  /* only used in the anytime mode */
+  private Deadline deadline;
+  private volatile CommandBatch publishedCommands;
+  private Future<?> unfinishedTurn;
+
   /**
    * Set up your AI, initial values for attributes, color of your spheres, ...
    */
@@ -52,6 +71,41 @@ public abstract class SphereMiners2015 {
    */
   protected abstract void playTurn();
 
+  /**
+   * Override this method to use the anytime mode. In this mode a turn is not
+   * lost when the computation time is exceeded, instead the commands that
+   * were published last via {@link #publishCommands()} are applied. The AI
+   * has to poll {@link #getDeadline()} and return from {@link #playTurn()}
+   * as soon as it is expired, the deadline expires shortly before the
+   * computation time is over, such that the AI has time to publish its final
+   * commands. If the turn is still running when the next
+   * one should start the AI is reinitialized, as it would be without the
+   * anytime mode.
+   *
+   * @return indicates whether the anytime mode should be used
+   */
+  protected boolean isAnytimeAI() {
+    return false;
+  }
+
+  /**
+   * Publishes the commands given so far in this turn (via mine, merge, split
+   * and changeMoveDirection). In the anytime mode these commands are applied
+   * if the deadline expires before {@link #playTurn()} returns.
+   */
+  protected final void publishCommands() {
+    publishedCommands = createCommandBatch();
+  }
+
+  /**
+   * Returns the deadline of the current turn.
+   *
+   * @return the deadline of the current turn
+   */
+  protected final Deadline getDeadline() {
+    return deadline;
+  }
+
   /**
    * Sets the color of your spheres.
    *
@@ -79,6 +133,17 @@ public abstract class SphereMiners2015 {
     return constants;
   }
 
+  /**
+   * Returns the time in milliseconds a turn of this AI may last. This is the
+   * configured computation time, scaled by the speed of the machine if
+   * calibration is enabled.
+   *
+   * @return the computation time per turn in milliseconds
+   */
+  protected final long getComputationTime() {
+    return computationTime;
+  }
+
   /**
    * Changes the moving direction of a (own) Sphere instantly, there is no kind
    * of friction or acceleration in between. However the speed cannot be changed
@@ -95,10 +160,14 @@ public abstract class SphereMiners2015 {
    *                (does not need to include all spheres you own)
    */
   protected final void changeMoveDirection(final Map<Sphere, Position> spheres) {
-    Stream<Entry<Sphere, Position>> tmp =
-        spheres.entrySet().stream().filter(e -> ownSpheres.contains(e.getKey()));
-
-    currentChangeDest = () -> tmp.forEach(e -> physics.changeDirection(e.getKey(), e.getValue()));
+    currentChangeDest =
+        spheres
+            .entrySet()
+            .stream()
+            .filter(e -> ownSpheres.contains(e.getKey()) && e.getValue() != null)
+            .collect(
+                Collectors.toMap(
+                    e -> e.getKey(), e -> e.getValue(), (a, b) -> a, LinkedHashMap::new));
   }
 
   /**
@@ -116,11 +185,10 @@ public abstract class SphereMiners2015 {
    * @param spheres The spheres you want to split into two parts
    */
   protected final void split(Collection<Sphere> spheres) {
-    Stream<Sphere> tmp = spheres.stream().filter(s -> ownSpheres.contains(s));
-
     if (ownSpheres.size() + spheres.size() <= constants.getMaxSphereAmount()) {
-      // lists cannot be changed directly therefore we need the phyiscsmanager here
-      currentSplit = () -> tmp.forEach(s -> physics.split(s));
+      // lists cannot be changed directly, the physics applies the splits later on
+      currentSplit =
+          spheres.stream().filter(s -> ownSpheres.contains(s)).collect(Collectors.toList());
     }
   }
 
@@ -136,14 +204,15 @@ public abstract class SphereMiners2015 {
    * @param spheres The map of spheres that should grow to spheres that should vanish
    */
   protected final void merge(Map<Sphere, Sphere> spheres) {
-    Stream<Entry<Sphere, Sphere>> tmp =
+    // lists cannot be changed directly, the physics applies the merges later on
+    currentMerge =
         spheres
             .entrySet()
             .stream()
-            .filter(e -> ownSpheres.contains(e.getKey()) && ownSpheres.contains(e.getValue()));
-
-    // lists cannot be changed directly therefore we need the phyiscsmanager here
-    currentMerge = () -> tmp.forEach(e -> physics.merge(e.getKey(), e.getValue()));
+            .filter(e -> ownSpheres.contains(e.getKey()) && ownSpheres.contains(e.getValue()))
+            .collect(
+                Collectors.toMap(
+                    e -> e.getKey(), e -> e.getValue(), (a, b) -> a, LinkedHashMap::new));
   }
 
   /**
@@ -161,13 +230,18 @@ public abstract class SphereMiners2015 {
    * @param spheres The map of (own) spheres to (enemy) spheres that should be mined
    */
   protected final void mine(Map<Sphere, Sphere> spheres) {
-    Stream<Entry<Sphere, Sphere>> tmp =
+    currentMine =
         spheres
             .entrySet()
             .stream()
-            .filter(e -> ownSpheres.contains(e.getKey()) && !ownSpheres.contains(e.getValue()));
-    // tmp.forEach(e -> System.out.println(e));
-    currentMine = () -> tmp.forEach(e -> physics.mine(e.getKey(), e.getValue()));
+            .filter(
+                e
+                    -> ownSpheres.contains(e.getKey())
+                        && e.getValue() != null
+                        && !ownSpheres.contains(e.getValue()))
+            .collect(
+                Collectors.toMap(
+                    e -> e.getKey(), e -> e.getValue(), (a, b) -> a, LinkedHashMap::new));
   }
 
   /**
@@ -188,52 +262,141 @@ public abstract class SphereMiners2015 {
                 -> s.getOwner() != ownAI
                     && s.getPosition().dist(sphere.getPosition())
                         <= constants.getSightDistance() + sphere.getRadius())
-        .collect(Collectors.toSet());
+        .collect(Collectors.toCollection(LinkedHashSet::new));
   }
 
   /**
-   * Package private, this should only be called by AIManager!
-   * @return indicates wether the turn could be evaluated within the timelimit
-   *         or not
+   * Package private, this should only be called by AIManager! The physics is
+   * not changed by this method, the returned commands have to be applied
+   * afterwards.
+   *
+   * @return the commands issued in this turn, or absent if the turn could not
+   *         be evaluated within the timelimit
    */
-  boolean evaluateTurn() {
+  Optional<CommandBatch> evaluateTurn() {
+    return evaluateTurn(computationTime);
+  }
+
+  /**
+   * Package private, this should only be called by AIManager! Same as
+   * {@link #evaluateTurn()} but with a custom timelimit, the deadline for
+   * the anytime mode stays unchanged.
+   *
+   * @param timeLimit the time in milliseconds the turn may last
+   * @return the commands issued in this turn, or absent if the turn could not
+   *         be evaluated within the timelimit
+   */
+  Optional<CommandBatch> evaluateTurn(long timeLimit) {
+    // an anytime ai which did not stop after its last deadline
+    if (unfinishedTurn != null && !unfinishedTurn.isDone()) {
+      unfinishedTurn.cancel(true);
+      constants
+          .getLogger()
+          .log(Level.INFO, "Deadline was not respected by AI " + ownAI.getInternalName());
+      return Optional.absent();
+    }
+    unfinishedTurn = null;
+
     setUpTurn();
     Future<?> future = threadExecutor.submit(() -> playTurn());
     try {
-      future.get(constants.getAIComputationTime(), TimeUnit.MILLISECONDS);
+      future.get(timeLimit, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      if (isAnytimeAI()) {
+        // let the ai finish on its own, it should be done before the next turn
+        unfinishedTurn = future;
+        return Optional.of(publishedCommands);
+      }
+      future.cancel(true);
+      constants
+          .getLogger()
+          .log(Level.INFO, "Computation took too long for AI " + ownAI.getInternalName());
+      return Optional.absent();
     } catch (ExecutionException | InterruptedException e) {
       future.cancel(true);
       constants
           .getLogger()
           .logException(
               Level.SEVERE, e, "Unexpected exception during turn of AI " + ownAI.getInternalName());
-      return false;
-    } catch (TimeoutException e) {
-      future.cancel(true);
+      return Optional.absent();
+    }
+
+    return Optional.of(createCommandBatch());
+  }
+
+  /**
+   * Package private, this should only be called by AIManager! Same as
+   * {@link #evaluateTurn()}, but the turn is computed on the calling thread
+   * without a time limit, thus the AI cannot be interrupted.
+   *
+   * @return the commands issued in this turn, or absent if the AI threw an exception
+   */
+  Optional<CommandBatch> evaluateTurnOnCallingThread() {
+    setUpTurn();
+    try {
+      playTurn();
+    } catch (RuntimeException e) {
       constants
           .getLogger()
-          .log(Level.INFO, "Computation took too long for AI " + ownAI.getInternalName());
-      return false;
+          .logException(
+              Level.SEVERE, e, "Unexpected exception during turn of AI " + ownAI.getInternalName());
+      return Optional.absent();
     }
 
-    currentMine.apply();
-    currentMerge.apply();
-    currentSplit.apply();
-    currentChangeDest.apply();
-    return true;
+    return Optional.of(createCommandBatch());
+  }
+
+  /**
+   * Creates the batch of the current commands, the copies of the spheres the
+   * AI sees are replaced by the spheres of the physics.
+   */
+  private CommandBatch createCommandBatch() {
+    Function<Sphere, Sphere> toPhysics = s -> physicsSpheres.getOrDefault(s, s);
+    return new CommandBatch(
+        ownAI,
+        toPhysicsSpheres(currentMine, toPhysics, toPhysics),
+        toPhysicsSpheres(currentMerge, toPhysics, toPhysics),
+        currentSplit.stream().map(toPhysics).collect(Collectors.toList()),
+        toPhysicsSpheres(currentChangeDest, toPhysics, Function.identity()));
+  }
+
+  private static <V> Map<Sphere, V> toPhysicsSpheres(
+      Map<Sphere, V> commands, Function<Sphere, Sphere> toPhysics, Function<V, V> mapValue) {
+    Map<Sphere, V> result = new LinkedHashMap<>();
+    commands.forEach((k, v) -> result.put(toPhysics.apply(k), mapValue.apply(v)));
+    return result;
   }
 
   private void setUpTurn() {
     // reset turns to evaluate
-    currentChangeDest = () -> {};
-    currentMerge = () -> {};
-    currentSplit = () -> {};
-    currentMine = () -> {};
+    currentChangeDest = ImmutableMap.of();
+    currentMerge = ImmutableMap.of();
+    currentSplit = ImmutableList.of();
+    currentMine = ImmutableMap.of();
 
-    // reset all sphere related variables
+    // reset all sphere related variables, the AI gets copies which are not
+    // changed by the physics while the AI runs
     dots = physics.getDots();
-    allSpheres = physics.getAISpheres();
-    ownSpheres = allSpheres.stream().filter(p -> p.getOwner() == ownAI).collect(Collectors.toSet());
+    ImmutableMap<Sphere, Sphere> copies = physics.copyAISpheres();
+    physicsSpheres = copies;
+    allSpheres = copies.keySet();
+    ownSpheres =
+        allSpheres
+            .stream()
+            .filter(p -> p.getOwner() == ownAI)
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+    publishedCommands = createCommandBatch();
+
+    long budget = TimeUnit.MILLISECONDS.toNanos(computationTime);
+    deadline = new Deadline((long) (budget * (1 - DEADLINE_MARGIN)), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Stops the thread executing the turns of this ai, afterwards the ai
+   * cannot be used anymore.
+   */
+  void shutdown() {
+    threadExecutor.shutdownNow();
   }
 
   /**
@@ -245,6 +408,15 @@ public abstract class SphereMiners2015 {
     this.constants = constants;
   }
 
+  /**
+   * Sets the time in milliseconds a turn of this ai may last.
+   *
+   * @param computationTime the computation time per turn in milliseconds
+   */
+  void setComputationTime(long computationTime) {
+    this.computationTime = computationTime;
+  }
+
   /**
    * Package private, this should only be called and set by AImanager!
    *
@@ -262,9 +434,4 @@ public abstract class SphereMiners2015 {
   void setPlayer(Player player) {
     this.ownAI = player;
   }
-
-  @FunctionalInterface
-  private interface Turn {
-    void apply();
-  }
 }
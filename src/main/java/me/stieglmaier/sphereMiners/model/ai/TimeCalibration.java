@@ -0,0 +1,198 @@
+package me.stieglmaier.sphereMiners.model.ai;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.logging.Level;
+
+import me.stieglmaier.sphereMiners.main.Constants;
+import me.stieglmaier.sphereMiners.model.util.Position;
+
+/**
+ * Computes how fast the current machine is compared to the machine the
+ * default computation time of the AIs was chosen for. The computation time
+ * of the AIs is then scaled by this factor, such that the same configuration
+ * behaves similar on different machines.
+ *
+ * The factor is computed by running a fixed workload, similar to what a
+ * simple AI does in its turns (searching the nearest dot for each own
+ * sphere). The time it needs on the reference machine, i.e. the machine the
+ * default computation time was chosen for, is configured by the option
+ * calibrationReferenceTime. The factor is saved to a file and reused by
+ * later launches on the same machine. Processes started by another one,
+ * e.g. tournament workers, get the factor of their parent instead of
+ * calibrating themselves (option aiSpeedFactor).
+ *
+ * @author stieglma
+ *
+ */
+public final class TimeCalibration {
+
+  /**
+   * The factor is bounded, such that a single disturbed calibration cannot
+   * result in absurd computation times.
+   */
+  private static final double MIN_FACTOR = 0.25;
+
+  private static final double MAX_FACTOR = 4.0;
+
+  private static final int ROUNDS = 30;
+  private static final int TURNS_PER_ROUND = 10;
+  private static final int SPHERES = 50;
+  private static final int DOTS = 800;
+  private static final long SEED = 2015;
+
+  private static final String FACTOR_KEY = "speedFactor";
+  private static final String MACHINE_KEY = "machine";
+  private static final String REFERENCE_KEY = "referenceTime";
+
+  /**
+   * Prevents the JIT compiler from removing the reference workload.
+   */
+  private static volatile double sink;
+
+  private TimeCalibration() {
+    /* utility class */
+  }
+
+  /**
+   * Returns the computation time of the AIs on this machine, i.e. the
+   * configured one scaled by the speed factor if calibration is enabled.
+   *
+   * @param constants the constants containing the computation time
+   * @return the computation time of the AIs in milliseconds
+   */
+  public static long getAIComputationTime(Constants constants) {
+    if (!constants.isAIComputationTimeCalibrated()) {
+      return constants.getAIComputationTime();
+    }
+    return Math.max(1, Math.round(constants.getAIComputationTime() * getSpeedFactor(constants)));
+  }
+
+  /**
+   * Returns the factor the computation time of the AIs should be multiplied
+   * with on this machine. A factor given in the constants is used as it is.
+   * Otherwise the factor is read from the calibration file if it exists and
+   * was created on the same machine with the same reference time, or it is
+   * computed and saved. Concurrent callers wait for a running calibration
+   * instead of disturbing it.
+   *
+   * @param constants the constants containing the calibration file
+   * @return the factor for the computation time of the AIs
+   */
+  public static synchronized double getSpeedFactor(Constants constants) {
+    if (constants.getAISpeedFactor() > 0) {
+      return constants.getAISpeedFactor();
+    }
+    File file = new File(constants.getCalibrationFile());
+    String machine = describeMachine();
+    String reference = Long.toString(constants.getCalibrationReferenceTime());
+
+    Properties properties = new Properties();
+    if (file.isFile()) {
+      try (InputStream in = new FileInputStream(file)) {
+        properties.load(in);
+        String factor = properties.getProperty(FACTOR_KEY);
+        if (machine.equals(properties.getProperty(MACHINE_KEY))
+            && reference.equals(properties.getProperty(REFERENCE_KEY))) {
+          if (factor != null) {
+            return Double.parseDouble(factor);
+          }
+          constants
+              .getLogger()
+              .log(Level.INFO, "Calibration file has no speed factor, recalibrating.");
+        }
+      } catch (IOException | NumberFormatException e) {
+        constants
+            .getLogger()
+            .logException(Level.INFO, e, "Calibration file is invalid, recalibrating.");
+      }
+    }
+
+    double factor = calibrate(constants.getCalibrationReferenceTime());
+    constants
+        .getLogger()
+        .log(Level.INFO, "Calibrated speed factor for the AI computation time:", factor);
+
+    properties.clear();
+    properties.setProperty(MACHINE_KEY, machine);
+    properties.setProperty(REFERENCE_KEY, reference);
+    properties.setProperty(FACTOR_KEY, Double.toString(factor));
+    try (OutputStream out = new FileOutputStream(file)) {
+      properties.store(out, "Sphere Miners calibration, delete this file to recalibrate");
+    } catch (IOException e) {
+      constants
+          .getLogger()
+          .logException(Level.WARNING, e, "Calibration file could not be written.");
+    }
+
+    return factor;
+  }
+
+  /**
+   * Runs the reference workload and computes the factor.
+   *
+   * @param referenceNanos the time the workload needs on the reference machine
+   * @return the factor for the computation time of the AIs
+   */
+  static double calibrate(long referenceNanos) {
+    Random random = new Random(SEED);
+    List<Position> dots = new ArrayList<>(DOTS);
+    for (int i = 0; i < DOTS; i++) {
+      dots.add(new Position(random.nextInt(801), random.nextInt(801)));
+    }
+    List<Position> spheres = new ArrayList<>(SPHERES);
+    for (int i = 0; i < SPHERES; i++) {
+      spheres.add(new Position(random.nextInt(801), random.nextInt(801)));
+    }
+
+    // the fastest round is the one least disturbed and with compiled code
+    long best = Long.MAX_VALUE;
+    for (int i = 0; i < ROUNDS; i++) {
+      best = Math.min(best, runReferenceWorkload(spheres, dots));
+    }
+
+    double factor = (double) best / referenceNanos;
+    return Math.max(MIN_FACTOR, Math.min(MAX_FACTOR, factor));
+  }
+
+  private static long runReferenceWorkload(List<Position> spheres, List<Position> dots) {
+    long start = System.nanoTime();
+    double result = 0;
+    for (int turn = 0; turn < TURNS_PER_ROUND; turn++) {
+      for (Position sphere : spheres) {
+        Position nextDot = dots.get(0);
+        double minDist = sphere.dist(nextDot);
+        for (Position dot : dots) {
+          double tmpDist = sphere.dist(dot);
+          if (tmpDist < minDist) {
+            minDist = tmpDist;
+            nextDot = dot;
+          }
+        }
+        result += nextDot.sub(sphere).length();
+      }
+    }
+    sink = result;
+    return System.nanoTime() - start;
+  }
+
+  private static String describeMachine() {
+    return System.getProperty("os.name")
+        + "/"
+        + System.getProperty("os.arch")
+        + "/"
+        + Runtime.getRuntime().availableProcessors()
+        + "/"
+        + System.getProperty("java.vm.name")
+        + "/"
+        + System.getProperty("java.version");
+  }
+}
@@ -0,0 +1,500 @@
+package me.stieglmaier.sphereMiners.model.physics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import javafx.scene.paint.Color;
+import me.stieglmaier.sphereMiners.main.Constants;
+import me.stieglmaier.sphereMiners.model.ai.Player;
+import me.stieglmaier.sphereMiners.model.util.MutableSphere;
+import me.stieglmaier.sphereMiners.model.util.Position;
+import me.stieglmaier.sphereMiners.model.util.Tick;
+
+/**
+ * Computes many independent worlds (games) at once. In contrast to
+ * {@link Physics} there are no objects per sphere, the state of all worlds
+ * is kept in shared primitive arrays, and a sphere or dot is addressed by the
+ * index of its world and its slot in the world. All worlds are advanced by
+ * one call to {@link #advance()}, the movement is computed in one loop over
+ * the spheres of many worlds and the worlds are distributed over all cores.
+ *
+ * Each world is computed exactly like {@link Physics} given the same seed
+ * and commands: the spheres and dots keep the order they were created in,
+ * which is the order of their slots, and each world has its own seeded
+ * random generator. Spheres that are merged or mined are only marked as
+ * removed, the slots of a world are compacted at the beginning of the next
+ * tick, so slots stay valid while the commands of a turn are applied.
+ *
+ * Players are identified by their index. Mining, merging and changing
+ * directions do not check the ownership of the spheres, this is up to the
+ * caller (like in {@link Physics#applyCommands(List)}). Splits are given per
+ * player, such that the maximal amount of spheres per player is enforced
+ * exactly like in {@link Physics#applyCommands(List)}.
+ *
+ * @author stieglma
+ *
+ */
+public final class BatchedPhysics {
+
+  private static final int NO_OWNER = -1;
+
+  private final Constants constants;
+  private final int worlds;
+  private final int players;
+  private final int sphereCapacity;
+  private final int dotCapacity;
+  private final double partialTick;
+  private final double dotRadius;
+
+  private final Random[] random;
+
+  // spheres, index = world * sphereCapacity + slot
+  private final int[] sphereCount;
+  private final int[] owner;
+  private final int[] size;
+  private final double[] x;
+  private final double[] y;
+  private final double[] directionX;
+  private final double[] directionY;
+
+  // dots, index = world * dotCapacity + slot, all dots have the same size
+  private final int[] dotCount;
+  private final boolean[] dotRemoved;
+  private final double[] dotX;
+  private final double[] dotY;
+  private final double[] dotColor;
+
+  /**
+   * Creates the arrays for the given amount of worlds, they are started
+   * with {@link #reset(int, long)}.
+   *
+   * @param constants the constants all worlds are based on
+   * @param worlds the amount of worlds
+   * @param players the amount of players in each world
+   */
+  public BatchedPhysics(Constants constants, int worlds, int players) {
+    this.constants = constants;
+    this.worlds = worlds;
+    this.players = players;
+    // removed spheres keep their slots until the next tick, at most as
+    // many spheres can be removed during a turn as there are
+    sphereCapacity = 2 * players * constants.getMaxSphereAmount();
+    dotCapacity = constants.getDotAmount();
+    partialTick = 1.0 / constants.getFramesPerSecond() / constants.getCalcsPerTick();
+    dotRadius = Math.sqrt(constants.getDotSize() / Math.PI);
+
+    random = new Random[worlds];
+    for (int w = 0; w < worlds; w++) {
+      random[w] = new Random();
+    }
+
+    sphereCount = new int[worlds];
+    owner = new int[worlds * sphereCapacity];
+    Arrays.fill(owner, NO_OWNER);
+    size = new int[worlds * sphereCapacity];
+    x = new double[worlds * sphereCapacity];
+    y = new double[worlds * sphereCapacity];
+    directionX = new double[worlds * sphereCapacity];
+    directionY = new double[worlds * sphereCapacity];
+
+    dotCount = new int[worlds];
+    dotRemoved = new boolean[worlds * dotCapacity];
+    dotX = new double[worlds * dotCapacity];
+    dotY = new double[worlds * dotCapacity];
+    dotColor = new double[worlds * dotCapacity * 3];
+  }
+
+  /**
+   * Starts a new game in the given world, like
+   * {@link Physics#createInitialTick(List, long)}.
+   *
+   * @param world the index of the world
+   * @param seed the seed for all random decisions of the world
+   */
+  public void reset(int world, long seed) {
+    random[world].setSeed(seed);
+    int base = world * sphereCapacity;
+    Arrays.fill(owner, base, base + sphereCapacity, NO_OWNER);
+    sphereCount[world] = 0;
+    dotCount[world] = 0;
+
+    for (int player = 0; player < players; player++) {
+      Position pos = Physics.getInitialPosition(constants, player, players);
+      int i = base + sphereCount[world]++;
+      owner[i] = player;
+      size[i] = constants.getInitialSphereSize();
+      x[i] = pos.getX();
+      y[i] = pos.getY();
+      directionX[i] = 0;
+      directionY[i] = 0;
+    }
+    createDots(world, constants.getDotAmount());
+  }
+
+  /**
+   * Computes the next tick of all worlds, like {@link Physics#advance()}.
+   * The worlds are split into chunks which are computed in parallel.
+   */
+  public void advance() {
+    int chunks = Math.min(worlds, Runtime.getRuntime().availableProcessors() * 4);
+    IntStream.range(0, chunks)
+        .parallel()
+        .forEach(c -> advance(c * worlds / chunks, (c + 1) * worlds / chunks));
+  }
+
+  private void advance(int fromWorld, int toWorld) {
+    for (int w = fromWorld; w < toWorld; w++) {
+      compactSpheres(w);
+    }
+
+    for (int i = 0; i < constants.getCalcsPerTick(); i++) {
+      // 1. move all spheres
+      moveSpheres(fromWorld * sphereCapacity, toWorld * sphereCapacity);
+
+      // 2. merge dots into spheres
+      for (int w = fromWorld; w < toWorld; w++) {
+        mergeDots(w);
+      }
+    }
+
+    // refill dots
+    for (int w = fromWorld; w < toWorld; w++) {
+      compactDots(w);
+      createDots(w, constants.getDotAmount() - dotCount[w]);
+    }
+  }
+
+  private void moveSpheres(int from, int to) {
+    double logInitialSize = Math.log(constants.getInitialSphereSize());
+    double speedRange = constants.getMaxSpeed() - constants.getMinSpeed();
+    double minSpeed = constants.getMinSpeed();
+    double width = constants.getFieldWidth();
+    double height = constants.getFieldHeight();
+
+    for (int i = from; i < to; i++) {
+      if (owner[i] == NO_OWNER) {
+        continue;
+      }
+      double speed = (logInitialSize / Math.log(size[i]) * speedRange + minSpeed) * partialTick;
+      double newX = x[i] + directionX[i] * speed;
+      double newY = y[i] + directionY[i] * speed;
+      x[i] = newX > width ? width : (newX < 0 ? 0 : newX);
+      y[i] = newY > height ? height : (newY < 0 ? 0 : newY);
+    }
+  }
+
+  private void mergeDots(int world) {
+    int dotSize = constants.getDotSize();
+    int minMergeDist = constants.getMinMergeDist();
+    int dotBase = world * dotCapacity;
+    int dotEnd = dotBase + dotCount[world];
+
+    int base = world * sphereCapacity;
+    for (int i = base; i < base + sphereCount[world]; i++) {
+      if (owner[i] == NO_OWNER || size[i] <= dotSize) {
+        continue;
+      }
+      double radius = Math.sqrt(size[i] / Math.PI);
+      for (int d = dotBase; d < dotEnd; d++) {
+        if (dotRemoved[d]) {
+          continue;
+        }
+        double dx = x[i] - dotX[d];
+        double dy = y[i] - dotY[d];
+        if (Math.sqrt(dx * dx + dy * dy) - (radius + dotRadius) <= minMergeDist) {
+          size[i] += dotSize;
+          dotRemoved[d] = true;
+          radius = Math.sqrt(size[i] / Math.PI);
+        }
+      }
+    }
+  }
+
+  private void compactSpheres(int world) {
+    int base = world * sphereCapacity;
+    int count = 0;
+    for (int i = base; i < base + sphereCount[world]; i++) {
+      if (owner[i] != NO_OWNER) {
+        int target = base + count++;
+        owner[target] = owner[i];
+        size[target] = size[i];
+        x[target] = x[i];
+        y[target] = y[i];
+        directionX[target] = directionX[i];
+        directionY[target] = directionY[i];
+      }
+    }
+    Arrays.fill(owner, base + count, base + sphereCount[world], NO_OWNER);
+    sphereCount[world] = count;
+  }
+
+  private void compactDots(int world) {
+    int base = world * dotCapacity;
+    int count = 0;
+    for (int d = base; d < base + dotCount[world]; d++) {
+      if (!dotRemoved[d]) {
+        int target = base + count++;
+        dotX[target] = dotX[d];
+        dotY[target] = dotY[d];
+        System.arraycopy(dotColor, 3 * d, dotColor, 3 * target, 3);
+      }
+    }
+    Arrays.fill(dotRemoved, base, base + dotCount[world], false);
+    dotCount[world] = count;
+  }
+
+  private void createDots(int world, int number) {
+    Random r = random[world];
+    for (int n = 0; n < number; n++) {
+      int d = world * dotCapacity + dotCount[world]++;
+      dotX[d] = r.nextInt(constants.getFieldWidth() + 1);
+      dotY[d] = r.nextInt(constants.getFieldHeight() + 1);
+      dotRemoved[d] = false;
+      dotColor[3 * d] = r.nextDouble();
+      dotColor[3 * d + 1] = r.nextDouble();
+      dotColor[3 * d + 2] = r.nextDouble();
+    }
+  }
+
+  /**
+   * Changes the moving direction of a sphere, the direction is normalized.
+   *
+   * @param world the index of the world
+   * @param slot the slot of the sphere
+   * @param dirX the x component of the new direction
+   * @param dirY the y component of the new direction
+   */
+  public void changeDirection(int world, int slot, double dirX, double dirY) {
+    int i = world * sphereCapacity + slot;
+    if (isAlive(i)) {
+      Position direction = new Position(dirX, dirY).normalize();
+      directionX[i] = direction.getX();
+      directionY[i] = direction.getY();
+    }
+  }
+
+  /**
+   * Splits the given spheres of a player into two smaller parts each, like
+   * the splits of one batch in {@link Physics#applyCommands(List)}. No
+   * sphere is split if the spheres of the player plus the requested splits
+   * exceed the maximal amount of spheres, slots of spheres of other players
+   * are ignored. The new parts are added after the last slot of the world.
+   *
+   * @param world the index of the world
+   * @param player the index of the player requesting the splits
+   * @param slots the slots of the spheres that should be split
+   */
+  public void split(int world, int player, int... slots) {
+    int base = world * sphereCapacity;
+    int ownedSpheres = 0;
+    for (int i = base; i < base + sphereCount[world]; i++) {
+      if (owner[i] == player) {
+        ownedSpheres++;
+      }
+    }
+    if (ownedSpheres + slots.length > constants.getMaxSphereAmount()) {
+      return;
+    }
+    for (int slot : slots) {
+      if (owner[base + slot] == player) {
+        splitSphere(world, base + slot);
+      }
+    }
+  }
+
+  /**
+   * Splits the sphere at the given index, nothing is done if the sphere is
+   * too small or there is no free slot.
+   */
+  private void splitSphere(int world, int i) {
+    if (!isAlive(i)
+        || size[i] < constants.getMinSplittingsize()
+        || sphereCount[world] == sphereCapacity) {
+      return;
+    }
+    int n = world * sphereCapacity + sphereCount[world]++;
+    owner[n] = owner[i];
+    size[n] = size[i] / 2;
+    x[n] = x[i];
+    y[n] = y[i];
+    directionX[n] = directionX[i];
+    directionY[n] = directionY[i];
+    size[i] = (size[i] + 1) / 2;
+  }
+
+  /**
+   * Merges the small sphere into the big one if they are in range.
+   *
+   * @param world the index of the world
+   * @param bigSlot the slot of the sphere that should grow
+   * @param smallSlot the slot of the sphere that should be merged into the other one
+   */
+  public void merge(int world, int bigSlot, int smallSlot) {
+    int base = world * sphereCapacity;
+    int big = base + bigSlot;
+    int small = base + smallSlot;
+    if (isAlive(big) && isAlive(small) && canBeMerged(big, small)) {
+      size[big] += size[small];
+      owner[small] = NO_OWNER;
+    }
+  }
+
+  /**
+   * Lets a sphere mine another sphere if they are in range. The same as
+   * {@link #merge(int, int, int)}, the ownership of the spheres is checked
+   * by the caller.
+   *
+   * @param world the index of the world
+   * @param minerSlot the slot of the mining sphere
+   * @param minedSlot the slot of the mined sphere
+   */
+  public void mine(int world, int minerSlot, int minedSlot) {
+    merge(world, minerSlot, minedSlot);
+  }
+
+  private boolean isAlive(int i) {
+    return owner[i] != NO_OWNER;
+  }
+
+  private boolean canBeMerged(int i, int j) {
+    double dx = x[i] - x[j];
+    double dy = y[i] - y[j];
+    return Math.sqrt(dx * dx + dy * dy)
+                - (Math.sqrt(size[i] / Math.PI) + Math.sqrt(size[j] / Math.PI))
+            <= constants.getMinMergeDist()
+        && size[i] > size[j];
+  }
+
+  /**
+   * Returns the amount of worlds.
+   *
+   * @return the amount of worlds
+   */
+  public int getWorldCount() {
+    return worlds;
+  }
+
+  /**
+   * Returns the amount of used sphere slots of a world, including the slots
+   * of spheres that were removed during the current turn.
+   *
+   * @param world the index of the world
+   * @return the amount of used sphere slots
+   */
+  public int getSphereSlots(int world) {
+    return sphereCount[world];
+  }
+
+  /**
+   * Returns the owner of the sphere in the given slot.
+   *
+   * @param world the index of the world
+   * @param slot the slot of the sphere
+   * @return the index of the owning player, or -1 if the sphere was removed
+   */
+  public int getOwner(int world, int slot) {
+    return owner[world * sphereCapacity + slot];
+  }
+
+  /**
+   * Returns the size of the sphere in the given slot.
+   *
+   * @param world the index of the world
+   * @param slot the slot of the sphere
+   * @return the size of the sphere
+   */
+  public int getSize(int world, int slot) {
+    return size[world * sphereCapacity + slot];
+  }
+
+  /**
+   * Returns the x coordinate of the sphere in the given slot.
+   *
+   * @param world the index of the world
+   * @param slot the slot of the sphere
+   * @return the x coordinate of the sphere
+   */
+  public double getX(int world, int slot) {
+    return x[world * sphereCapacity + slot];
+  }
+
+  /**
+   * Returns the y coordinate of the sphere in the given slot.
+   *
+   * @param world the index of the world
+   * @param slot the slot of the sphere
+   * @return the y coordinate of the sphere
+   */
+  public double getY(int world, int slot) {
+    return y[world * sphereCapacity + slot];
+  }
+
+  /**
+   * Returns the amount of dots of a world.
+   *
+   * @param world the index of the world
+   * @return the amount of dots
+   */
+  public int getDotCount(int world) {
+    return dotCount[world];
+  }
+
+  /**
+   * Returns the x coordinate of the dot in the given slot.
+   *
+   * @param world the index of the world
+   * @param slot the slot of the dot
+   * @return the x coordinate of the dot
+   */
+  public double getDotX(int world, int slot) {
+    return dotX[world * dotCapacity + slot];
+  }
+
+  /**
+   * Returns the y coordinate of the dot in the given slot.
+   *
+   * @param world the index of the world
+   * @param slot the slot of the dot
+   * @return the y coordinate of the dot
+   */
+  public double getDotY(int world, int slot) {
+    return dotY[world * dotCapacity + slot];
+  }
+
+  /**
+   * Creates a tick of the current state of a world, e.g. for displaying it.
+   *
+   * @param world the index of the world
+   * @param playerObjects the players in the order of their indices
+   * @return the current state of the world
+   */
+  public Tick snapshot(int world, List<Player> playerObjects) {
+    List<MutableSphere> spheres = new ArrayList<>();
+    int base = world * sphereCapacity;
+    for (int i = base; i < base + sphereCount[world]; i++) {
+      if (isAlive(i)) {
+        MutableSphere sphere = new MutableSphere(constants, playerObjects.get(owner[i]));
+        sphere.setSize(size[i]);
+        sphere.setPosition(new Position(x[i], y[i]));
+        sphere.setDirection(new Position(directionX[i], directionY[i]));
+        spheres.add(sphere);
+      }
+    }
+
+    List<MutableSphere> dots = new ArrayList<>();
+    int dotBase = world * dotCapacity;
+    for (int d = dotBase; d < dotBase + dotCount[world]; d++) {
+      if (!dotRemoved[d]) {
+        MutableSphere dot = new MutableSphere(constants);
+        dot.setPosition(new Position(dotX[d], dotY[d]));
+        dot.setSize(constants.getDotSize());
+        dot.setColor(new Color(dotColor[3 * d], dotColor[3 * d + 1], dotColor[3 * d + 2], 1));
+        dots.add(dot);
+      }
+    }
+    return new Tick(spheres, dots);
+  }
+}
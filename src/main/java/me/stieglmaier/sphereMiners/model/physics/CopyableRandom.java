@@ -0,0 +1,53 @@
+package me.stieglmaier.sphereMiners.model.physics;
+
+import java.util.Random;
+
+/**
+ * A random generator that computes exactly the same numbers as
+ * {@link Random}, but whose state can be read and restored, such that a
+ * simulation can be continued from a saved state.
+ *
+ * @author stieglma
+ *
+ */
+final class CopyableRandom extends Random {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final long MULTIPLIER = 0x5DEECE66DL;
+  private static final long ADDEND = 0xBL;
+  private static final long MASK = (1L << 48) - 1;
+
+  /** Not initialized here, as it is set by the constructor of the super class. */
+  private long state;
+
+  @Override
+  public synchronized void setSeed(long seed) {
+    state = (seed ^ MULTIPLIER) & MASK;
+    super.setSeed(seed);
+  }
+
+  @Override
+  protected int next(int bits) {
+    state = (state * MULTIPLIER + ADDEND) & MASK;
+    return (int) (state >>> (48 - bits));
+  }
+
+  /**
+   * Returns the current state, which can be restored with {@link #setState(long)}.
+   *
+   * @return the current state
+   */
+  long getState() {
+    return state;
+  }
+
+  /**
+   * Restores a state returned by {@link #getState()}.
+   *
+   * @param state the state to restore
+   */
+  void setState(long state) {
+    this.state = state;
+  }
+}
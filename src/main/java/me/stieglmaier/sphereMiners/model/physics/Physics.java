@@ -1,44 +1,56 @@
 package me.stieglmaier.sphereMiners.model.physics;
 
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableList.Builder;
-
 import javafx.scene.paint.Color;
 import me.stieglmaier.sphereMiners.main.Constants;
+import me.stieglmaier.sphereMiners.model.ai.CommandBatch;
 import me.stieglmaier.sphereMiners.model.ai.Player;
+import me.stieglmaier.sphereMiners.model.util.DotSlots;
 import me.stieglmaier.sphereMiners.model.util.MutableSphere;
 import me.stieglmaier.sphereMiners.model.util.Position;
 import me.stieglmaier.sphereMiners.model.util.Sphere;
 import me.stieglmaier.sphereMiners.model.util.Tick;
 
+import com.google.common.collect.ImmutableMap;
+
 /**
  * This class handles all the physical computations such as moving and "eating"
  * smaller spheres that are in the necessary range. The move compuatation is done
  * based on a certain FPS number which is divided into smaller computation parts.
  *
+ * Given the same seed and the same commands, a game is computed exactly the
+ * same way: all random decisions use the seeded random generator, and the
+ * spheres and dots are always processed in the order they were created.
+ *
  * @author stieglma
  *
  */
 public class Physics {
 
-  private final BiMap<MutableSphere, Sphere> aiSpheres = HashBiMap.create();
-  private final Set<MutableSphere> dots = new HashSet<>();
+  private final Map<MutableSphere, Sphere> aiSpheres = new LinkedHashMap<>();
+  private final Map<Sphere, MutableSphere> mutableSpheres = new HashMap<>();
+  /** The dots on the playground and their slots in the dots of the ticks. */
+  private final Map<MutableSphere, Integer> dots = new LinkedHashMap<>();
+  private DotSlots.Builder dotSlots = new DotSlots.Builder();
 
   private final Constants constants;
   private final double tickLength;
   private final double partialTick;
-  private final Random random = new Random();
-  private final Set<Sphere> spheresForAisNextTurn = new HashSet<>();
+  private final CopyableRandom random = new CopyableRandom();
+  private final Set<Sphere> spheresForAisNextTurn = new LinkedHashSet<>();
+  /** The amount of ticks computed since the initial tick. */
+  private int tickNumber;
+  private Consumer<List<CommandBatch>> commandListener = batches -> {};
 
   /**
    * Creates a physics object.
@@ -50,55 +62,93 @@ public class Physics {
     partialTick = tickLength / constants.getCalcsPerTick();
   }
 
+  /**
+   * Creates the initial tick for a simulation with a random seed. This also
+   * deletes the previously done simulation.
+   *
+   * @param playingAIs the list of players that should take part
+   * @return the computed initial tick
+   */
+  public Tick createInitialTick(List<Player> playingAIs) {
+    return createInitialTick(playingAIs, random.nextLong());
+  }
+
   /**
    * Creates the initial tick for a simulation. This also deletes the previously
    * done simulation.
    *
    * @param playingAIs the list of players that should take part
+   * @param seed the seed for all random decisions of the simulation
    * @return the computed initial tick
    */
-  public Tick createInitialTick(List<Player> playingAIs) {
+  public Tick createInitialTick(List<Player> playingAIs, long seed) {
+    random.setSeed(seed);
     aiSpheres.clear();
+    mutableSpheres.clear();
+    dots.clear();
+    dotSlots.clear();
     spheresForAisNextTurn.clear();
+    tickNumber = 0;
+    int i = 0;
+    for (Player ai : playingAIs) {
+      // create new sphere for current player
+      MutableSphere sphere = new MutableSphere(constants, ai);
+      sphere.setPosition(getInitialPosition(constants, i, playingAIs.size()));
+      addSphere(sphere);
+      i++;
+    }
+    createDots(constants.getDotAmount());
+
+    spheresForAisNextTurn.addAll(aiSpheres.values());
+    return snapshot();
+  }
+
+  /**
+   * Computes the position of the initial sphere of a player, the players
+   * are placed on a circle around the center of the playground.
+   *
+   * @param constants the constants with the size of the playground
+   * @param index the index of the player
+   * @param players the amount of players
+   * @return the initial position of the sphere of the player
+   */
+  static Position getInitialPosition(Constants constants, int index, int players) {
     Position initalPos =
         new Position(constants.getFieldWidth() / 2, constants.getFieldHeight() / 2);
-    double angle = 360.0 / playingAIs.size();
+    double angle = 360.0 / players;
 
     // b² = c² - a², c = 1 im Einheitskreis, a = sin Alpha * c im Einheitskreis
     // Strahlensatz: ZA zu BA = ZA' zu BA', c zu a = x*c zu x*a sodass x*a = 5
     double a = Math.sin(angle / 360 * Math.PI);
     double radius = constants.getInitialDistance() / 2 / a;
 
-    int i = 0;
-    for (Player ai : playingAIs) {
-      // create new sphere for current player
-      MutableSphere sphere = new MutableSphere(constants, ai);
-      Position addPos =
+    Position addPos =
+        new Position(
+            radius * Math.cos(index * 2 * Math.PI / players),
+            radius * Math.sin(index * 2 * Math.PI / players));
+
+    // place modulo the usual position if it would be out of bounds
+    Position spherePos = initalPos.add(addPos);
+    if (spherePos.getX() < 0
+        || spherePos.getX() > constants.getFieldWidth()
+        || spherePos.getY() < 0
+        || spherePos.getY() > constants.getFieldHeight()) {
+      spherePos =
           new Position(
-              radius * Math.cos(i * 2 * Math.PI / playingAIs.size()),
-              radius * Math.sin(i * 2 * Math.PI / playingAIs.size()));
-
-      // place modulo the usual position if it would be out of bounds
-      Position spherePos = initalPos.add(addPos);
-      if (spherePos.getX() < 0
-          || spherePos.getX() > constants.getFieldWidth()
-          || spherePos.getY() < 0
-          || spherePos.getY() > constants.getFieldHeight()) {
-        spherePos =
-            new Position(
-                spherePos.getX() % constants.getFieldWidth(),
-                spherePos.getY() % constants.getFieldHeight());
-      }
-
-      sphere.setPosition(spherePos);
-
-      aiSpheres.put(sphere, sphere.toImmutableSphere());
-      i++;
+              spherePos.getX() % constants.getFieldWidth(),
+              spherePos.getY() % constants.getFieldHeight());
     }
-    createDots(constants.getDotAmount());
+    return spherePos;
+  }
 
-    spheresForAisNextTurn.addAll(aiSpheres.values());
-    return snapshot();
+  private void addSphere(MutableSphere sphere) {
+    Sphere immutableSphere = sphere.toImmutableSphere();
+    aiSpheres.put(sphere, immutableSphere);
+    mutableSpheres.put(immutableSphere, sphere);
+  }
+
+  private void removeSphere(MutableSphere sphere) {
+    mutableSpheres.remove(aiSpheres.remove(sphere));
   }
 
   private void createDots(int number) {
@@ -110,7 +160,7 @@ public class Physics {
               random.nextInt(constants.getFieldHeight() + 1)));
       sphere.setSize(constants.getDotSize());
       sphere.setColor(new Color(random.nextDouble(), random.nextDouble(), random.nextDouble(), 1));
-      dots.add(sphere);
+      dots.put(sphere, dotSlots.add(sphere));
     }
   }
 
@@ -122,6 +172,17 @@ public class Physics {
    * @return the computed tick
    */
   public Tick applyPhysics() {
+    advance();
+    return snapshot();
+  }
+
+  /**
+   * Computes the next tick like {@link #applyPhysics()}, but does not create
+   * a snapshot of it. The state can be read with {@link #getAISpheres()} and
+   * {@link #forEachDot(Consumer)}, this is used by simulations that do not
+   * keep their ticks.
+   */
+  public void advance() {
     for (int i = 0; i < constants.getCalcsPerTick(); i++) {
       // 1. move all spheres
       moveSpheres();
@@ -136,24 +197,72 @@ public class Physics {
     // update ailist
     spheresForAisNextTurn.clear();
     spheresForAisNextTurn.addAll(aiSpheres.values());
+    tickNumber++;
+  }
 
-    return snapshot();
+  /**
+   * Returns the amount of ticks computed since the initial tick, i.e. the
+   * number of the tick the AIs currently see.
+   *
+   * @return the number of the current tick
+   */
+  public int getTickNumber() {
+    return tickNumber;
   }
 
-  private Tick snapshot() {
-    Builder<Sphere> sphereCopy = ImmutableList.builder();
-    for (MutableSphere sphere : aiSpheres.keySet()) {
-      {
-        sphereCopy.add(sphere.immutableCopy());
-      }
-    }
+  /**
+   * Saves the current state of the simulation, such that it can be continued
+   * from this state later on, e.g. for recomputing ticks that were not kept.
+   *
+   * @return the current state
+   */
+  public State saveState() {
+    return new State(this);
+  }
 
-    Builder<Sphere> dotsCopy = ImmutableList.builder();
-    for (MutableSphere dot : dots) {
-      dotsCopy.add(dot.immutableCopy());
+  /**
+   * Restores a state saved by {@link #saveState()} of this or another
+   * physics object with the same constants. Applying the same commands
+   * afterwards computes exactly the same ticks as after saving the state.
+   *
+   * @param state the state to restore
+   */
+  public void restoreState(State state) {
+    aiSpheres.clear();
+    mutableSpheres.clear();
+    for (MutableSphere sphere : state.spheres) {
+      addSphere(sphere.copy());
     }
+    dots.clear();
+    for (int i = 0; i < state.dotSlots.length; i++) {
+      MutableSphere dot = new MutableSphere(constants);
+      dot.setPosition(state.dotPositions[i]);
+      dot.setSize(state.dotSizes[i]);
+      dot.setColor(state.dotColors[i]);
+      dots.put(dot, state.dotSlots[i]);
+    }
+    dotSlots = new DotSlots.Builder(state.dotVersion);
+    random.setState(state.randomState);
+    tickNumber = state.tickNumber;
+    spheresForAisNextTurn.clear();
+    spheresForAisNextTurn.addAll(aiSpheres.values());
+  }
+
+  /**
+   * Sets the listener that is called by {@link #applyCommands(List)} with
+   * all commands, before they are applied. The spheres in the commands are
+   * the ones returned by {@link #getAISpheres()}.
+   *
+   * @param listener the listener for the applied commands
+   */
+  public void setCommandListener(Consumer<List<CommandBatch>> listener) {
+    commandListener = listener;
+  }
 
-    return new Tick(sphereCopy.build(), dotsCopy.build());
+  private Tick snapshot() {
+    // the tick copies the spheres into its own columns, the dots share
+    // all chunks that did not change since the last snapshot
+    return new Tick(aiSpheres.keySet(), dotSlots.build());
   }
 
   private void moveSpheres() {
@@ -182,11 +291,12 @@ public class Physics {
 
   private void mergeDots() {
     for (MutableSphere sphere : aiSpheres.keySet()) {
-      Iterator<MutableSphere> dotsIt = dots.iterator();
+      Iterator<Map.Entry<MutableSphere, Integer>> dotsIt = dots.entrySet().iterator();
       while (dotsIt.hasNext()) {
-        Sphere dot = dotsIt.next();
-        if (sphere.canBeMergedWidth(dot)) {
-          sphere.merge(dot);
+        Map.Entry<MutableSphere, Integer> dot = dotsIt.next();
+        if (sphere.canBeMergedWidth(dot.getKey())) {
+          sphere.merge(dot.getKey());
+          dotSlots.remove(dot.getValue());
           dotsIt.remove();
         }
       }
@@ -203,19 +313,102 @@ public class Physics {
   }
 
   /**
-   * Returns an unmodifiable view of the set of all dots on the playground
+   * Returns an immutable copy of each sphere of {@link #getAISpheres()},
+   * mapped to that sphere. In contrast to the spheres of
+   * {@link #getAISpheres()} the copies do not change when the physics
+   * advances, so they can be read by other threads, but commands have to
+   * refer to the original spheres.
+   *
+   * @return the copies of the spheres owned by AIs, in the same order
+   */
+  public ImmutableMap<Sphere, Sphere> copyAISpheres() {
+    ImmutableMap.Builder<Sphere, Sphere> copies = ImmutableMap.builder();
+    for (Sphere sphere : spheresForAisNextTurn) {
+      copies.put(mutableSpheres.get(sphere).immutableCopy(), sphere);
+    }
+    return copies.build();
+  }
+
+  /**
+   * Returns immutable copies of all dots on the playground, they do not
+   * change when the physics advances.
    *
    * @return the set of all dots on the playground
    */
   public Set<Sphere> getDots() {
-    return Collections.unmodifiableSet(
-        dots.stream().map(s -> s.toImmutableSphere()).collect(Collectors.toSet()));
+    Set<Sphere> immutableDots =
+        dots.keySet()
+            .stream()
+            .map(s -> s.immutableCopy())
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+    return Collections.unmodifiableSet(immutableDots);
+  }
+
+  /**
+   * Passes all dots on the playground to the given action, in the order they
+   * were created. In contrast to {@link #getDots()} no objects are created,
+   * the dots must not be stored or changed by the action.
+   *
+   * @param action the action called for each dot
+   */
+  public void forEachDot(Consumer<Sphere> action) {
+    dots.keySet().forEach(action);
+  }
+
+  /**
+   * Applies the commands of all AIs for one turn. This has to be called from
+   * the simulation thread only, the batches are applied in the given order.
+   * Inside a batch the order is mine, merge, split and then change directions.
+   * All commands are validated against the current state, commands on
+   * spheres not owned by the issuing player, or on spheres that are not
+   * available anymore (e.g. they were mined in the meantime) are ignored.
+   *
+   * @param batches the commands of the AIs in the order they should be applied
+   */
+  public void applyCommands(List<CommandBatch> batches) {
+    commandListener.accept(batches);
+    for (CommandBatch batch : batches) {
+      Player player = batch.getPlayer();
+
+      batch
+          .getMines()
+          .forEach(
+              (miner, mined) -> {
+                if (miner.getOwner() == player && mined.getOwner() != player) {
+                  mine(miner, mined);
+                }
+              });
+
+      batch
+          .getMerges()
+          .forEach(
+              (big, small) -> {
+                if (big.getOwner() == player && small.getOwner() == player) {
+                  merge(big, small);
+                }
+              });
+
+      // splitting is only allowed if the maximal amount of spheres is not exceeded
+      long ownedSpheres = aiSpheres.keySet().stream().filter(s -> s.getOwner() == player).count();
+      if (ownedSpheres + batch.getSplits().size() <= constants.getMaxSphereAmount()) {
+        batch.getSplits().stream().filter(s -> s.getOwner() == player).forEach(s -> split(s));
+      }
+
+      batch
+          .getDirections()
+          .forEach(
+              (sphere, direction) -> {
+                if (sphere.getOwner() == player) {
+                  changeDirection(sphere, direction);
+                }
+              });
+    }
   }
 
   public void changeDirection(Sphere sphere, Position direction) {
     // perhaps a sphere was mined and therefore is no longer available
-    if (aiSpheres.values().contains(sphere)) {
-      aiSpheres.inverse().get(sphere).setDirection(direction.normalize());
+    if (mutableSpheres.containsKey(sphere)) {
+      mutableSpheres.get(sphere).setDirection(direction.normalize());
     }
   }
 
@@ -225,11 +418,11 @@ public class Physics {
    */
   public void split(Sphere sphere) {
     // perhaps a sphere was mined and therefore is no longer available
-    if (aiSpheres.values().contains(sphere)) {
-      MutableSphere s = aiSpheres.inverse().get(sphere);
+    if (mutableSpheres.containsKey(sphere)) {
+      MutableSphere s = mutableSpheres.get(sphere);
       MutableSphere newSphere = s.split();
       if (newSphere != null) {
-        aiSpheres.put(newSphere, newSphere.toImmutableSphere());
+        addSphere(newSphere);
       }
     }
   }
@@ -241,25 +434,75 @@ public class Physics {
    */
   public void merge(Sphere big, Sphere small) {
     // perhaps a sphere was mined and therefore is no longer available
-    if (aiSpheres.values().contains(big)
-        && aiSpheres.values().contains(small)
+    if (mutableSpheres.containsKey(big)
+        && mutableSpheres.containsKey(small)
         && big.canBeMergedWidth(small)) {
-      MutableSphere bigger = aiSpheres.inverse().get(big);
-      MutableSphere smaller = aiSpheres.inverse().get(small);
-      aiSpheres.remove(smaller);
+      MutableSphere bigger = mutableSpheres.get(big);
+      MutableSphere smaller = mutableSpheres.get(small);
+      removeSphere(smaller);
       bigger.merge(smaller);
     }
   }
 
   public void mine(Sphere minerSphere, Sphere minedSphere) {
     // perhaps a sphere was mined and therefore is no longer available
-    if (aiSpheres.values().contains(minerSphere)
-        && aiSpheres.values().contains(minedSphere)
+    if (mutableSpheres.containsKey(minerSphere)
+        && mutableSpheres.containsKey(minedSphere)
         && minerSphere.canBeMergedWidth(minedSphere)) {
-      MutableSphere miner = aiSpheres.inverse().get(minerSphere);
-      MutableSphere mined = aiSpheres.inverse().get(minedSphere);
-      aiSpheres.remove(mined);
+      MutableSphere miner = mutableSpheres.get(minerSphere);
+      MutableSphere mined = mutableSpheres.get(minedSphere);
+      removeSphere(mined);
       miner.merge(mined);
     }
   }
+
+  /**
+   * A saved state of a simulation. The spheres are copied, of the dots only
+   * the (immutable) positions and colors and the sizes are kept, as dots are
+   * changed when they are eaten.
+   */
+  public static final class State {
+    private final List<MutableSphere> spheres;
+    private final Position[] dotPositions;
+    private final int[] dotSizes;
+    private final Color[] dotColors;
+    private final int[] dotSlots;
+    private final DotSlots dotVersion;
+    private final long randomState;
+    private final int tickNumber;
+
+    private State(Physics physics) {
+      spheres =
+          physics
+              .aiSpheres
+              .keySet()
+              .stream()
+              .map(MutableSphere::copy)
+              .collect(Collectors.toList());
+      int dotCount = physics.dots.size();
+      dotPositions = new Position[dotCount];
+      dotSizes = new int[dotCount];
+      dotColors = new Color[dotCount];
+      int i = 0;
+      for (MutableSphere dot : physics.dots.keySet()) {
+        dotPositions[i] = dot.getPosition();
+        dotSizes[i] = dot.getSize();
+        dotColors[i] = dot.getColor();
+        i++;
+      }
+      dotSlots = physics.dots.values().stream().mapToInt(Integer::intValue).toArray();
+      dotVersion = physics.dotSlots.build();
+      randomState = physics.random.getState();
+      tickNumber = physics.tickNumber;
+    }
+
+    /**
+     * Returns the number of the tick this state belongs to.
+     *
+     * @return the number of the tick
+     */
+    public int getTickNumber() {
+      return tickNumber;
+    }
+  }
 }
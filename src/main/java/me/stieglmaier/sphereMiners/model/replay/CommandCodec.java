@@ -0,0 +1,144 @@
+package me.stieglmaier.sphereMiners.model.replay;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import me.stieglmaier.sphereMiners.model.ai.CommandBatch;
+import me.stieglmaier.sphereMiners.model.ai.Player;
+import me.stieglmaier.sphereMiners.model.util.Position;
+import me.stieglmaier.sphereMiners.model.util.Sphere;
+
+/**
+ * Encodes the commands of one tick, spheres and players are encoded as their
+ * index in the spheres of the tick and the players of the game. The batches
+ * are encoded one after another, so concatenated encodings are decoded as
+ * the concatenated lists of batches.
+ *
+ * Commands on spheres that are not part of the tick are ignored by the
+ * physics, so they are dropped. Only splits of such spheres are kept (as
+ * index -1), as all splits of a batch count for the maximal amount of
+ * spheres of a player.
+ *
+ * @author stieglma
+ *
+ */
+final class CommandCodec {
+
+  private static final int UNKNOWN_SPHERE = -1;
+
+  private CommandCodec() {
+    /* utility class */
+  }
+
+  /**
+   * Encodes the given commands.
+   *
+   * @param batches the commands of the tick
+   * @param spheres the spheres of the tick
+   * @param players the players of the game
+   * @return the encoded commands
+   */
+  static byte[] encode(List<CommandBatch> batches, List<Sphere> spheres, List<Player> players) {
+    Map<Object, Integer> index = new IdentityHashMap<>();
+    for (int i = 0; i < spheres.size(); i++) {
+      index.put(spheres.get(i), i);
+    }
+    for (int i = 0; i < players.size(); i++) {
+      index.put(players.get(i), i);
+    }
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      for (CommandBatch batch : batches) {
+        out.writeInt(index.get(batch.getPlayer()));
+        writePairs(out, batch.getMines(), index);
+        writePairs(out, batch.getMerges(), index);
+        out.writeInt(batch.getSplits().size());
+        for (Sphere s : batch.getSplits()) {
+          out.writeInt(index.getOrDefault(s, UNKNOWN_SPHERE));
+        }
+        Map<Sphere, Position> directions = known(batch.getDirections(), index);
+        out.writeInt(directions.size());
+        for (Map.Entry<Sphere, Position> e : directions.entrySet()) {
+          out.writeInt(index.get(e.getKey()));
+          out.writeDouble(e.getValue().getX());
+          out.writeDouble(e.getValue().getY());
+        }
+      }
+    } catch (IOException e) {
+      throw new AssertionError("Writing to a byte array does not fail", e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Decodes commands encoded by {@link #encode(List, List, List)}.
+   *
+   * @param encoded the encoded commands
+   * @param spheres the spheres of the tick, in the same order as for encoding
+   * @param players the players of the game, in the same order as for encoding
+   * @param unknownSphere the sphere used for splits of spheres that were not
+   *                      part of the tick, it must not be owned by a player
+   * @return the commands
+   */
+  static List<CommandBatch> decode(
+      byte[] encoded, List<Sphere> spheres, List<Player> players, Sphere unknownSphere) {
+    List<CommandBatch> batches = new ArrayList<>();
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded))) {
+      while (in.available() > 0) {
+        Player player = players.get(in.readInt());
+        Map<Sphere, Sphere> mines = readPairs(in, spheres);
+        Map<Sphere, Sphere> merges = readPairs(in, spheres);
+        List<Sphere> splits = new ArrayList<>();
+        for (int i = in.readInt(); i > 0; i--) {
+          int s = in.readInt();
+          splits.add(s == UNKNOWN_SPHERE ? unknownSphere : spheres.get(s));
+        }
+        Map<Sphere, Position> directions = new LinkedHashMap<>();
+        for (int i = in.readInt(); i > 0; i--) {
+          directions.put(spheres.get(in.readInt()), new Position(in.readDouble(), in.readDouble()));
+        }
+        batches.add(new CommandBatch(player, mines, merges, splits, directions));
+      }
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Invalid encoded commands", e);
+    }
+    return batches;
+  }
+
+  private static void writePairs(
+      DataOutputStream out, Map<Sphere, Sphere> pairs, Map<Object, Integer> index)
+      throws IOException {
+    Map<Sphere, Sphere> knownPairs = known(pairs, index);
+    knownPairs.values().removeIf(s -> !index.containsKey(s));
+    out.writeInt(knownPairs.size());
+    for (Map.Entry<Sphere, Sphere> e : knownPairs.entrySet()) {
+      out.writeInt(index.get(e.getKey()));
+      out.writeInt(index.get(e.getValue()));
+    }
+  }
+
+  private static Map<Sphere, Sphere> readPairs(DataInputStream in, List<Sphere> spheres)
+      throws IOException {
+    Map<Sphere, Sphere> pairs = new LinkedHashMap<>();
+    for (int i = in.readInt(); i > 0; i--) {
+      pairs.put(spheres.get(in.readInt()), spheres.get(in.readInt()));
+    }
+    return pairs;
+  }
+
+  /** Returns the entries of the map whose key is part of the tick. */
+  private static <V> Map<Sphere, V> known(Map<Sphere, V> map, Map<Object, Integer> index) {
+    Map<Sphere, V> result = new LinkedHashMap<>(map);
+    result.keySet().removeIf(s -> !index.containsKey(s));
+    return result;
+  }
+}
@@ -0,0 +1,135 @@
+package me.stieglmaier.sphereMiners.model.replay;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import me.stieglmaier.sphereMiners.main.Constants;
+import me.stieglmaier.sphereMiners.model.ai.CommandBatch;
+import me.stieglmaier.sphereMiners.model.ai.Player;
+import me.stieglmaier.sphereMiners.model.physics.Physics;
+import me.stieglmaier.sphereMiners.model.util.GameSimulation;
+import me.stieglmaier.sphereMiners.model.util.Sphere;
+import me.stieglmaier.sphereMiners.model.util.Tick;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Bytes;
+
+/**
+ * Records the inputs of a game played on a {@link Physics} object, i.e. the
+ * seed and all commands applied to the physics. The commands are recorded on
+ * the simulation thread, while recordings can be requested from any thread.
+ *
+ * @author stieglma
+ *
+ */
+public final class MatchRecorder {
+
+  private final Physics physics;
+  private final String configurationHash;
+  private final List<Player> players;
+  private final long seed;
+  private final SortedMap<Integer, byte[]> commands = new TreeMap<>();
+
+  private MatchRecorder(Physics physics, Constants constants, List<Player> players, long seed) {
+    this.physics = physics;
+    configurationHash = constants.getPhysicsConfigurationHash();
+    this.players = ImmutableList.copyOf(players);
+    this.seed = seed;
+  }
+
+  /**
+   * Creates the initial tick of a game on the given physics and records all
+   * commands applied to the physics afterwards, until the next game is
+   * recorded on it.
+   *
+   * @param physics the physics the game is played on
+   * @param constants the constants the game is played with
+   * @param players the players of the game
+   * @param seed the seed for the physics
+   * @return the recorder
+   */
+  public static MatchRecorder start(
+      Physics physics, Constants constants, List<Player> players, long seed) {
+    MatchRecorder recorder = new MatchRecorder(physics, constants, players, seed);
+    physics.setCommandListener(recorder::record);
+    return recorder;
+  }
+
+  /**
+   * Returns the initial tick of the game, it is the same for every call.
+   *
+   * @return the initial tick
+   */
+  public Tick createInitialTick() {
+    return physics.createInitialTick(players, seed);
+  }
+
+  private void record(List<CommandBatch> batches) {
+    if (batches.isEmpty()) {
+      return;
+    }
+    byte[] encoded =
+        CommandCodec.encode(batches, new ArrayList<>(physics.getAISpheres()), players);
+    synchronized (commands) {
+      // several lists of commands in one tick are applied one after another
+      commands.merge(physics.getTickNumber(), encoded, Bytes::concat);
+    }
+  }
+
+  /**
+   * Returns the physics the game is played on.
+   *
+   * @return the physics
+   */
+  Physics getPhysics() {
+    return physics;
+  }
+
+  /**
+   * Returns the players of the game.
+   *
+   * @return the players
+   */
+  List<Player> getPlayers() {
+    return players;
+  }
+
+  /**
+   * Returns the encoded commands that were applied in the given tick.
+   *
+   * @param tick the number of the tick
+   * @return the encoded commands, or null if there were none
+   */
+  byte[] getCommands(int tick) {
+    synchronized (commands) {
+      return commands.get(tick);
+    }
+  }
+
+  /**
+   * Returns the recording of the ticks of the given simulation, which has to
+   * contain the ticks of the recorded game.
+   *
+   * @param game the recorded game
+   * @return the recording of all ticks of the game so far
+   */
+  public MatchRecording getRecording(GameSimulation game) {
+    int tickCount = game.getSize();
+    long checksum = MatchRecording.checksum(game.getTick(tickCount - 1));
+    List<PlayerInfo> playerInfos =
+        players.stream().map(PlayerInfo::of).collect(Collectors.toList());
+    synchronized (commands) {
+      // the commands of the last tick produce the next one, which is not part of the game yet
+      return new MatchRecording(
+          configurationHash,
+          seed,
+          playerInfos,
+          commands.headMap(tickCount - 1),
+          tickCount,
+          checksum);
+    }
+  }
+}
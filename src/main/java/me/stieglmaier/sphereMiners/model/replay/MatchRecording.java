@@ -0,0 +1,205 @@
+package me.stieglmaier.sphereMiners.model.replay;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import me.stieglmaier.sphereMiners.model.ai.Player;
+import me.stieglmaier.sphereMiners.model.util.Sphere;
+import me.stieglmaier.sphereMiners.model.util.Tick;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * The inputs of a game: the players, the seed of the physics and the commands
+ * of the AIs per tick. The initial tick is created from the players and the
+ * seed, all further ticks are derived by applying the commands, so a game can
+ * be replayed with a {@link MatchReplayer} without the AIs.
+ *
+ * The commands of one tick are kept encoded, the spheres in them are referred
+ * to by their index in the spheres of the tick.
+ *
+ * @author stieglma
+ *
+ */
+public final class MatchRecording {
+
+  private static final int MAGIC = 0x534d5243; // "SMRC"
+  private static final int VERSION = 1;
+
+  private final String configurationHash;
+  private final long seed;
+  private final ImmutableList<PlayerInfo> players;
+  private final ImmutableSortedMap<Integer, byte[]> commands;
+  private final int tickCount;
+  private final long checksum;
+
+  MatchRecording(
+      String configurationHash,
+      long seed,
+      List<PlayerInfo> players,
+      SortedMap<Integer, byte[]> commands,
+      int tickCount,
+      long checksum) {
+    this.configurationHash = configurationHash;
+    this.seed = seed;
+    this.players = ImmutableList.copyOf(players);
+    this.commands = ImmutableSortedMap.copyOfSorted(commands);
+    this.tickCount = tickCount;
+    this.checksum = checksum;
+  }
+
+  /**
+   * Returns the hash of the configuration the game was played with, see
+   * {@link me.stieglmaier.sphereMiners.main.Constants#getPhysicsConfigurationHash()}.
+   *
+   * @return the configuration hash
+   */
+  public String getConfigurationHash() {
+    return configurationHash;
+  }
+
+  /**
+   * Returns the seed of the physics.
+   *
+   * @return the seed
+   */
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Returns the amount of recorded ticks, including the initial tick.
+   *
+   * @return the amount of ticks
+   */
+  public int getTickCount() {
+    return tickCount;
+  }
+
+  /**
+   * Returns the {@link #checksum(Tick)} of the last recorded tick.
+   *
+   * @return the checksum of the last tick
+   */
+  public long getChecksum() {
+    return checksum;
+  }
+
+  /**
+   * Creates new players with the names and colors of the recorded players.
+   *
+   * @param initialSize the initial size of the players
+   * @return the players in the order they played
+   */
+  public List<Player> createPlayers(int initialSize) {
+    ImmutableList.Builder<Player> result = ImmutableList.builder();
+    for (PlayerInfo p : players) {
+      result.add(p.toPlayer(initialSize));
+    }
+    return result.build();
+  }
+
+  /**
+   * Returns the encoded commands that were applied in the given tick.
+   *
+   * @param tick the number of the tick
+   * @return the encoded commands, or null if there were none
+   */
+  byte[] getCommands(int tick) {
+    return commands.get(tick);
+  }
+
+  /**
+   * Computes a checksum of the spheres and dots of a tick, which is used for
+   * verifying that a replay reproduced the recorded game.
+   *
+   * @param tick the tick
+   * @return the checksum
+   */
+  public static long checksum(Tick tick) {
+    Hasher hasher = Hashing.murmur3_128().newHasher();
+    for (Sphere s : tick.getSpheres()) {
+      hasher
+          .putUnencodedChars(s.getOwner().getInternalName())
+          .putFloat((float) s.getPosition().getX())
+          .putFloat((float) s.getPosition().getY())
+          .putInt(s.getSize());
+    }
+    for (Sphere d : tick.getDots()) {
+      hasher
+          .putFloat((float) d.getPosition().getX())
+          .putFloat((float) d.getPosition().getY())
+          .putInt(d.getSize());
+    }
+    return hasher.hash().asLong();
+  }
+
+  /**
+   * Writes this recording to the given stream, the stream is not closed.
+   *
+   * @param stream the stream to write to
+   * @throws IOException if writing fails
+   */
+  public void writeTo(OutputStream stream) throws IOException {
+    DataOutputStream out = new DataOutputStream(stream);
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeUTF(configurationHash);
+    out.writeLong(seed);
+    out.writeInt(tickCount);
+    out.writeLong(checksum);
+    out.writeInt(players.size());
+    for (PlayerInfo p : players) {
+      p.writeTo(out);
+    }
+    out.writeInt(commands.size());
+    for (Map.Entry<Integer, byte[]> e : commands.entrySet()) {
+      out.writeInt(e.getKey());
+      out.writeInt(e.getValue().length);
+      out.write(e.getValue());
+    }
+    out.flush();
+  }
+
+  /**
+   * Reads a recording written by {@link #writeTo(OutputStream)}, the stream
+   * is not closed.
+   *
+   * @param stream the stream to read from
+   * @return the read recording
+   * @throws IOException if reading fails or the stream contains no recording
+   */
+  public static MatchRecording readFrom(InputStream stream) throws IOException {
+    DataInputStream in = new DataInputStream(stream);
+    if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+      throw new IOException("Not a recording of a game or written by another version");
+    }
+    String configurationHash = in.readUTF();
+    long seed = in.readLong();
+    int tickCount = in.readInt();
+    long checksum = in.readLong();
+    ImmutableList.Builder<PlayerInfo> players = ImmutableList.builder();
+    for (int i = in.readInt(); i > 0; i--) {
+      players.add(PlayerInfo.readFrom(in));
+    }
+    SortedMap<Integer, byte[]> commands = new TreeMap<>();
+    for (int i = in.readInt(); i > 0; i--) {
+      int tick = in.readInt();
+      byte[] encoded = new byte[in.readInt()];
+      in.readFully(encoded);
+      commands.put(tick, encoded);
+    }
+    return new MatchRecording(
+        configurationHash, seed, players.build(), commands, tickCount, checksum);
+  }
+}
@@ -0,0 +1,133 @@
+package me.stieglmaier.sphereMiners.model.replay;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+
+import me.stieglmaier.sphereMiners.main.Constants;
+import me.stieglmaier.sphereMiners.model.ai.Player;
+import me.stieglmaier.sphereMiners.model.physics.Physics;
+import me.stieglmaier.sphereMiners.model.util.MutableSphere;
+import me.stieglmaier.sphereMiners.model.util.Sphere;
+import me.stieglmaier.sphereMiners.model.util.Tick;
+
+/**
+ * Replays a {@link MatchRecording} by applying the recorded commands to a new
+ * {@link Physics} object, which computes exactly the same ticks as in the
+ * recorded game. Replaying does not need the AIs and is much faster than
+ * the original game, each replayer is independent of all others.
+ *
+ * @author stieglma
+ *
+ */
+public final class MatchReplayer {
+
+  private final MatchRecording recording;
+  private final Physics physics;
+  private final List<Player> players;
+  /** Used for splits of spheres that were not part of the tick. */
+  private final Sphere unknownSphere;
+
+  private Tick current;
+  private int currentNumber;
+
+  /**
+   * Creates a replayer for the given recording, the constants have to be
+   * the ones the game was played with.
+   *
+   * @param constants the constants of the recorded game
+   * @param recording the recorded game
+   */
+  public MatchReplayer(Constants constants, MatchRecording recording) {
+    if (!constants.getPhysicsConfigurationHash().equals(recording.getConfigurationHash())) {
+      constants
+          .getLogger()
+          .log(
+              Level.WARNING,
+              "The game was recorded with another configuration, the replay may differ.");
+    }
+    this.recording = recording;
+    physics = new Physics(constants);
+    players = recording.createPlayers(constants.getInitialSphereSize());
+    unknownSphere = new MutableSphere(constants).toImmutableSphere();
+    current = physics.createInitialTick(players, recording.getSeed());
+  }
+
+  /**
+   * Returns the amount of ticks that can be replayed.
+   *
+   * @return the amount of recorded ticks
+   */
+  public int getTickCount() {
+    return recording.getTickCount();
+  }
+
+  /**
+   * Returns the players of the replayed game, they are the owners of the
+   * spheres in the replayed ticks.
+   *
+   * @return the players
+   */
+  public List<Player> getPlayers() {
+    return players;
+  }
+
+  /**
+   * Returns the tick with the given number. Going forwards only computes
+   * the ticks in between, going backwards replays the game from the start.
+   *
+   * @param number the number of the tick
+   * @return the replayed tick
+   */
+  public Tick getTick(int number) {
+    if (number < 0 || number >= getTickCount()) {
+      throw new IndexOutOfBoundsException(
+          "Tick " + number + " of " + getTickCount() + " recorded ticks");
+    }
+    if (number < currentNumber) {
+      current = physics.createInitialTick(players, recording.getSeed());
+      currentNumber = 0;
+    }
+    while (currentNumber < number) {
+      byte[] commands = recording.getCommands(currentNumber);
+      if (commands != null) {
+        physics.applyCommands(
+            CommandCodec.decode(
+                commands, new ArrayList<>(physics.getAISpheres()), players, unknownSphere));
+      }
+      currentNumber++;
+      // only the requested tick is snapshotted
+      if (currentNumber < number) {
+        physics.advance();
+      } else {
+        current = physics.applyPhysics();
+      }
+    }
+    return current;
+  }
+
+  /**
+   * Replays the whole game and checks whether its last tick is the same as
+   * in the recorded game.
+   *
+   * @return indicates whether the replay reproduced the recorded game
+   */
+  public boolean verify() {
+    return MatchRecording.checksum(getTick(getTickCount() - 1)) == recording.getChecksum();
+  }
+
+  /**
+   * Verifies the given recordings in parallel.
+   *
+   * @param constants the constants of the recorded games
+   * @param recordings the recordings to verify
+   * @return the result of {@link #verify()} for each recording
+   */
+  public static List<Boolean> verifyAll(Constants constants, List<MatchRecording> recordings) {
+    return recordings
+        .parallelStream()
+        .map(r -> new MatchReplayer(constants, r).verify())
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,64 @@
+package me.stieglmaier.sphereMiners.model.replay;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import javafx.scene.paint.Color;
+import me.stieglmaier.sphereMiners.model.ai.Player;
+
+/**
+ * The names and the color of a recorded player.
+ *
+ * @author stieglma
+ *
+ */
+final class PlayerInfo {
+
+  private final String internalName;
+  private final String name;
+  private final Color color;
+
+  private PlayerInfo(String internalName, String name, Color color) {
+    this.internalName = internalName;
+    this.name = name;
+    this.color = color;
+  }
+
+  /**
+   * Returns the current names and color of the given player.
+   *
+   * @param player the player
+   * @return the names and color of the player
+   */
+  static PlayerInfo of(Player player) {
+    Color color = player.getColor() == null ? Color.BLACK : player.getColor();
+    return new PlayerInfo(player.getInternalName(), player.getNameProperty().get(), color);
+  }
+
+  /**
+   * Creates a new player with the recorded names and color.
+   *
+   * @param initialSize the initial size of the player
+   * @return the new player
+   */
+  Player toPlayer(int initialSize) {
+    return new Player(internalName, initialSize, name, color);
+  }
+
+  void writeTo(DataOutput out) throws IOException {
+    out.writeUTF(internalName);
+    out.writeUTF(name);
+    out.writeDouble(color.getRed());
+    out.writeDouble(color.getGreen());
+    out.writeDouble(color.getBlue());
+    out.writeDouble(color.getOpacity());
+  }
+
+  static PlayerInfo readFrom(DataInput in) throws IOException {
+    return new PlayerInfo(
+        in.readUTF(),
+        in.readUTF(),
+        new Color(in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble()));
+  }
+}
@@ -0,0 +1,170 @@
+package me.stieglmaier.sphereMiners.model.replay;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import me.stieglmaier.sphereMiners.main.Constants;
+import me.stieglmaier.sphereMiners.model.ai.Player;
+import me.stieglmaier.sphereMiners.model.util.Tick;
+import me.stieglmaier.sphereMiners.model.util.TickCodec;
+import me.stieglmaier.sphereMiners.model.util.TickStore;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Reads a replay file written by a {@link ReplayWriter}. The file is mapped
+ * into memory instead of being read, so opening even very large replays is
+ * immediate, and a tick is decoded from the mapped file when it is requested,
+ * which takes the same time for every tick. The operating system keeps the
+ * recently used parts of the file in memory.
+ *
+ * A reader can be shown like a running game with
+ * {@code new GameSimulation(reader)}, it cannot be appended to.
+ *
+ * @author stieglma
+ *
+ */
+public final class ReplayReader implements TickStore, Closeable {
+
+  /**
+   * The file is mapped in segments starting every SEGMENT_STEP bytes, each
+   * segment is twice as large such that records crossing the start of the
+   * next segment are fully contained in their segment.
+   */
+  private static final long SEGMENT_STEP = 1L << 30;
+  private static final long SEGMENT_SIZE = Integer.MAX_VALUE;
+
+  private final FileChannel channel;
+  private final TickCodec codec;
+  private final LongBuffer offsets;
+  private final int tickCount;
+  /** The end of the tick records, which is the start of the players. */
+  private final long recordsEnd;
+  private final MappedByteBuffer[] segments;
+
+  private ReplayReader(
+      FileChannel channel, List<Player> players, LongBuffer offsets, int tickCount, long end) {
+    this.channel = channel;
+    codec = new TickCodec(players);
+    this.offsets = offsets;
+    this.tickCount = tickCount;
+    recordsEnd = end;
+    segments = new MappedByteBuffer[(int) (end / SEGMENT_STEP) + 1];
+  }
+
+  /**
+   * Opens a replay file.
+   *
+   * @param file the replay file
+   * @param constants the constants, the initial size of the players is taken from them
+   * @return the reader of the replay
+   * @throws IOException if the file cannot be read or is no complete replay
+   */
+  public static ReplayReader open(Path file, Constants constants) throws IOException {
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+    try {
+      long fileSize = channel.size();
+      if (fileSize < 8 + ReplayWriter.TRAILER_SIZE) {
+        throw new IOException("The file " + file + " is no replay");
+      }
+      ByteBuffer header = channel.map(MapMode.READ_ONLY, 0, 8);
+      ByteBuffer trailer =
+          channel.map(
+              MapMode.READ_ONLY, fileSize - ReplayWriter.TRAILER_SIZE, ReplayWriter.TRAILER_SIZE);
+      long playersOffset = trailer.getLong();
+      long indexOffset = trailer.getLong();
+      int tickCount = trailer.getInt();
+      if (header.getInt() != ReplayWriter.MAGIC
+          || header.getInt() != ReplayWriter.VERSION
+          || trailer.getInt() != ReplayWriter.MAGIC) {
+        throw new IOException(
+            "The file " + file + " is no complete replay or written by another version");
+      }
+      if (8L * tickCount > Integer.MAX_VALUE) {
+        throw new IOException("The replay " + file + " has too many ticks");
+      }
+
+      channel.position(playersOffset);
+      DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+      ImmutableList.Builder<Player> players = ImmutableList.builder();
+      for (int i = in.readInt(); i > 0; i--) {
+        players.add(PlayerInfo.readFrom(in).toPlayer(constants.getInitialSphereSize()));
+      }
+
+      LongBuffer offsets =
+          channel.map(MapMode.READ_ONLY, indexOffset, 8L * tickCount).asLongBuffer();
+      return new ReplayReader(channel, players.build(), offsets, tickCount, playersOffset);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the players of the replayed game, they are the owners of the
+   * spheres in the ticks.
+   *
+   * @return the players
+   */
+  public List<Player> getPlayers() {
+    return codec.getPlayers();
+  }
+
+  /**
+   * Replays cannot be changed.
+   *
+   * @throws UnsupportedOperationException always
+   */
+  @Override
+  public void add(Tick tick) {
+    throw new UnsupportedOperationException("Replays are read-only");
+  }
+
+  @Override
+  public Tick get(int index) {
+    if (index < 0 || index >= tickCount) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + tickCount);
+    }
+    long start = offsets.get(index);
+    int segment = (int) (start / SEGMENT_STEP);
+    ByteBuffer record = getSegment(segment).duplicate();
+    record.position((int) (start - segment * SEGMENT_STEP));
+    return codec.decode(record);
+  }
+
+  private synchronized MappedByteBuffer getSegment(int segment) {
+    if (segments[segment] == null) {
+      long start = segment * SEGMENT_STEP;
+      try {
+        segments[segment] =
+            channel.map(MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, recordsEnd - start));
+      } catch (IOException e) {
+        throw new IllegalStateException("Could not map the replay file", e);
+      }
+    }
+    return segments[segment];
+  }
+
+  @Override
+  public int size() {
+    return tickCount;
+  }
+
+  /**
+   * Closes the file, the already mapped parts stay readable.
+   */
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
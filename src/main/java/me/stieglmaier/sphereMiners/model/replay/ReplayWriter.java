@@ -0,0 +1,116 @@
+package me.stieglmaier.sphereMiners.model.replay;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import me.stieglmaier.sphereMiners.model.ai.Player;
+import me.stieglmaier.sphereMiners.model.util.Tick;
+import me.stieglmaier.sphereMiners.model.util.TickCodec;
+
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+
+/**
+ * Writes the ticks of a game to a replay file while they are computed, the
+ * file can be read with a {@link ReplayReader}. The file has the format:
+ * <pre>
+ * int       magic ("SMRP"), int version
+ * byte[][]  the ticks encoded by {@link TickCodec}, one after the other
+ * players   the names and colors of the players
+ * long[n]   the offsets of the n ticks in the file
+ * long      offset of the players, long offset of the tick offsets,
+ * int       amount of ticks n, int magic
+ * </pre>
+ * The index is written on {@link #close()}, files without it cannot be read.
+ *
+ * @author stieglma
+ *
+ */
+public final class ReplayWriter implements Closeable {
+
+  static final int MAGIC = 0x534d5250; // "SMRP"
+  static final int VERSION = 3;
+  /** The size of the trailer at the end of the file. */
+  static final int TRAILER_SIZE = 8 + 8 + 4 + 4;
+
+  private final DataOutputStream out;
+  private final List<Player> players;
+  private final TickCodec codec;
+  private long[] offsets = new long[1024];
+  private int tickCount;
+  private long position;
+
+  /**
+   * Creates a replay file, an existing file is overwritten.
+   *
+   * @param file the file to write to
+   * @param players the players owning the spheres of the ticks
+   * @throws IOException if the file cannot be created
+   */
+  public ReplayWriter(Path file, List<Player> players) throws IOException {
+    out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+    this.players = players;
+    codec = new TickCodec(players);
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    position = 8;
+  }
+
+  /**
+   * Appends a tick to the replay.
+   *
+   * @param tick the next tick of the game
+   * @throws IOException if writing fails
+   */
+  public void write(Tick tick) throws IOException {
+    byte[] record = codec.encode(tick);
+    if (tickCount == offsets.length) {
+      offsets = Arrays.copyOf(offsets, 2 * offsets.length);
+    }
+    offsets[tickCount++] = position;
+    out.write(record);
+    position += record.length;
+  }
+
+  /**
+   * Returns the amount of ticks written so far.
+   *
+   * @return the amount of written ticks
+   */
+  public int getTickCount() {
+    return tickCount;
+  }
+
+  /**
+   * Writes the players and the index of the ticks and closes the file.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      ByteArrayDataOutput playerData = ByteStreams.newDataOutput();
+      playerData.writeInt(players.size());
+      for (Player p : players) {
+        PlayerInfo.of(p).writeTo(playerData);
+      }
+      byte[] playerBytes = playerData.toByteArray();
+      long playersOffset = position;
+      long indexOffset = playersOffset + playerBytes.length;
+      out.write(playerBytes);
+      for (int i = 0; i < tickCount; i++) {
+        out.writeLong(offsets[i]);
+      }
+      out.writeLong(playersOffset);
+      out.writeLong(indexOffset);
+      out.writeInt(tickCount);
+      out.writeInt(MAGIC);
+    } finally {
+      out.close();
+    }
+  }
+}
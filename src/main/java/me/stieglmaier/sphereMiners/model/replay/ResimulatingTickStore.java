@@ -0,0 +1,129 @@
+package me.stieglmaier.sphereMiners.model.replay;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import me.stieglmaier.sphereMiners.main.Constants;
+import me.stieglmaier.sphereMiners.model.physics.Physics;
+import me.stieglmaier.sphereMiners.model.util.LruCache;
+import me.stieglmaier.sphereMiners.model.util.MutableSphere;
+import me.stieglmaier.sphereMiners.model.util.Sphere;
+import me.stieglmaier.sphereMiners.model.util.Tick;
+import me.stieglmaier.sphereMiners.model.util.TickStore;
+
+/**
+ * Stores the ticks of a recorded game by keeping a saved state of the
+ * physics every n ticks and the most recently used ticks. All other ticks
+ * are recomputed from the nearest saved state before them and the recorded
+ * commands. Recomputing continues from the last recomputed tick if possible,
+ * so replaying an evicted part of a game forwards computes each tick once.
+ * All recomputed ticks are cached, so going backwards recomputes the ticks
+ * since the nearest state only once if the cache is large enough.
+ *
+ * The ticks have to be added directly after the physics of the recorder
+ * computed them, as the state is saved from it.
+ *
+ * @author stieglma
+ *
+ */
+public final class ResimulatingTickStore implements TickStore {
+
+  private final MatchRecorder recorder;
+  private final int snapshotInterval;
+  /** The saved states and their ticks, the i-th state belongs to tick i * interval. */
+  private final List<Physics.State> states = new ArrayList<>();
+  private final List<Tick> stateTicks = new ArrayList<>();
+  private final LruCache<Integer, Tick> cache;
+  private int size;
+  /** The last added tick, it is always kept as it may contain the winners. */
+  private Tick last;
+
+  /** The physics recomputing ticks, and the number of its current tick. */
+  private final Physics physics;
+  private int physicsTick = -1;
+  /** Used for splits of spheres that were not part of the tick. */
+  private final Sphere unknownSphere;
+
+  /**
+   * Creates an empty store for the ticks of the game recorded by the given
+   * recorder.
+   *
+   * @param constants the constants of the game
+   * @param recorder the recorder of the game
+   * @param snapshotInterval every how many ticks the state of the physics is saved
+   * @param cacheSize how many recently used ticks are kept
+   */
+  public ResimulatingTickStore(
+      Constants constants, MatchRecorder recorder, int snapshotInterval, int cacheSize) {
+    if (snapshotInterval < 1) {
+      throw new IllegalArgumentException("Invalid snapshot interval " + snapshotInterval);
+    }
+    this.recorder = recorder;
+    this.snapshotInterval = snapshotInterval;
+    cache = new LruCache<>(cacheSize);
+    physics = new Physics(constants);
+    unknownSphere = new MutableSphere(constants).toImmutableSphere();
+  }
+
+  @Override
+  public void add(Tick tick) {
+    int index = size;
+    if (index % snapshotInterval == 0) {
+      Physics.State state = recorder.getPhysics().saveState();
+      if (state.getTickNumber() != index) {
+        throw new IllegalStateException(
+            "Tick " + index + " was not just computed by the physics of the recorder");
+      }
+      states.add(state);
+      stateTicks.add(tick);
+    }
+    cache.put(index, tick);
+    last = tick;
+    size++;
+  }
+
+  @Override
+  public Tick get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+    if (index == size - 1) {
+      return last;
+    }
+    Tick tick = cache.get(index);
+    if (tick != null) {
+      return tick;
+    }
+
+    int stateIndex = index / snapshotInterval;
+    if (index % snapshotInterval == 0) {
+      return stateTicks.get(stateIndex);
+    }
+    // continue recomputing if the physics is between the nearest state and the tick
+    if (physicsTick >= index || physicsTick < stateIndex * snapshotInterval) {
+      physics.restoreState(states.get(stateIndex));
+      physicsTick = stateIndex * snapshotInterval;
+    }
+    while (physicsTick < index) {
+      byte[] commands = recorder.getCommands(physicsTick);
+      if (commands != null) {
+        physics.applyCommands(
+            CommandCodec.decode(
+                commands,
+                new ArrayList<>(physics.getAISpheres()),
+                recorder.getPlayers(),
+                unknownSphere));
+      }
+      physicsTick++;
+      // all recomputed ticks are cached, for scrubbing backwards
+      tick = physics.applyPhysics();
+      cache.put(physicsTick, tick);
+    }
+    return tick;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+}
@@ -1,6 +1,7 @@
 package me.stieglmaier.sphereMiners.model.rules;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -12,6 +13,8 @@ import me.stieglmaier.sphereMiners.model.ai.Player;
 import me.stieglmaier.sphereMiners.model.util.GameSimulation;
 import me.stieglmaier.sphereMiners.model.util.Sphere;
 
+import com.google.common.base.Optional;
+
 public enum WinningConditions {
 
   /**
@@ -23,8 +26,9 @@ public enum WinningConditions {
      * {@inheritDoc}
      */
     @Override
-    public boolean hasGameEnded(GameSimulation simulation, Constants constants) {
-      return false;
+    public Optional<List<Player>> getWinners(
+        Collection<Sphere> spheres, int ticks, Constants constants) {
+      return Optional.absent();
     }
   },
 
@@ -37,17 +41,17 @@ public enum WinningConditions {
      * {@inheritDoc}
      */
     @Override
-    public boolean hasGameEnded(GameSimulation simulation, Constants constants) {
+    public Optional<List<Player>> getWinners(
+        Collection<Sphere> spheres, int ticks, Constants constants) {
       Player firstpPlayer = null;
-      for (Sphere s : simulation.getTick(simulation.getSize() - 1).getSpheres()) {
+      for (Sphere s : spheres) {
         if (firstpPlayer == null) {
           firstpPlayer = s.getOwner();
         } else if (firstpPlayer != s.getOwner()) {
-          return false;
+          return Optional.absent();
         }
       }
-      winner = Collections.singletonList(firstpPlayer);
-      return true;
+      return Optional.of(Collections.singletonList(firstpPlayer));
     }
   },
 
@@ -61,8 +65,9 @@ public enum WinningConditions {
      * {@inheritDoc}
      */
     @Override
-    public boolean hasGameEnded(GameSimulation simulation, Constants constants) {
-      Map<Player, Integer> sizes = computePlayerSizes(simulation);
+    public Optional<List<Player>> getWinners(
+        Collection<Sphere> spheres, int ticks, Constants constants) {
+      Map<Player, Integer> sizes = computePlayerSizes(spheres);
 
       List<Player> winners = new ArrayList<>();
       for (Entry<Player, Integer> e : sizes.entrySet()) {
@@ -70,8 +75,7 @@ public enum WinningConditions {
           winners.add(e.getKey());
         }
       }
-      winner = winners;
-      return !winners.isEmpty();
+      return winners.isEmpty() ? Optional.<List<Player>>absent() : Optional.of(winners);
     }
   },
 
@@ -85,9 +89,10 @@ public enum WinningConditions {
      * {@inheritDoc}
      */
     @Override
-    public boolean hasGameEnded(GameSimulation simulation, Constants constants) {
-      if (constants.getTotalGameTime() <= simulation.getSize() / constants.getFramesPerSecond()) {
-        Map<Player, Integer> sizes = computePlayerSizes(simulation);
+    public Optional<List<Player>> getWinners(
+        Collection<Sphere> spheres, int ticks, Constants constants) {
+      if (constants.getTotalGameTime() <= ticks / constants.getFramesPerSecond()) {
+        Map<Player, Integer> sizes = computePlayerSizes(spheres);
 
         int maxValue = 0;
         for (Entry<Player, Integer> e : sizes.entrySet()) {
@@ -101,41 +106,57 @@ public enum WinningConditions {
             winners.add(e.getKey());
           }
         }
-        winner = winners;
-        return true;
+        return Optional.of(winners);
       }
-      return false;
+      return Optional.absent();
     }
   };
 
-  private static List<Player> winner = new ArrayList<>();
-
   /**
-   * Checks if the game has ended regarding the chosen winning rule.
+   * Checks if the game has ended regarding the chosen winning rule and
+   * computes the winners. No state is kept between calls, so several games
+   * can be checked concurrently.
+   *
    * @param simulation the simulation that should be checked if it has ended
    * @param constants the constants that should be used for computing the result
+   * @return the list of players who fulfill the given rule, or absent if
+   *         the game has not ended
+   */
+  public Optional<List<Player>> getWinners(GameSimulation simulation, Constants constants) {
+    return getWinners(
+        simulation.getTick(simulation.getSize() - 1).getSpheres(),
+        simulation.getSize(),
+        constants);
+  }
+
+  /**
+   * Checks if the game has ended regarding the chosen winning rule and
+   * computes the winners, based on the spheres of the latest tick only. This
+   * is used by simulations that do not keep their ticks.
    *
-   * @return indicates whether the game has ended or not
+   * @param spheres the spheres of the AIs in the latest tick
+   * @param ticks the amount of ticks of the game, including the initial one
+   * @param constants the constants that should be used for computing the result
+   * @return the list of players who fulfill the given rule, or absent if
+   *         the game has not ended
    */
-  public abstract boolean hasGameEnded(GameSimulation simulation, Constants constants);
+  public abstract Optional<List<Player>> getWinners(
+      Collection<Sphere> spheres, int ticks, Constants constants);
 
   /**
-   * Returns the winner if the game has ended, or an empty list. This method
-   * has only correct results if before hasGameEnded was called. Additionally
-   * this method can only be called once, before hasGameEnded needs to be
-   * called again.
+   * Checks if the game has ended regarding the chosen winning rule.
+   * @param simulation the simulation that should be checked if it has ended
+   * @param constants the constants that should be used for computing the result
    *
-   * @return the list of players who fulfill the given rule
+   * @return indicates whether the game has ended or not
    */
-  public List<Player> getWinner() {
-    List<Player> tmp = winner;
-    winner = Collections.emptyList();
-    return tmp;
+  public boolean hasGameEnded(GameSimulation simulation, Constants constants) {
+    return getWinners(simulation, constants).isPresent();
   }
 
-  private static Map<Player, Integer> computePlayerSizes(GameSimulation simulation) {
+  private static Map<Player, Integer> computePlayerSizes(Collection<Sphere> spheres) {
     Map<Player, Integer> sizes = new HashMap<>();
-    for (Sphere s : simulation.getTick(simulation.getSize() - 1).getSpheres()) {
+    for (Sphere s : spheres) {
       Player currentPlayer = s.getOwner();
       if (sizes.containsKey(currentPlayer)) {
         sizes.replace(currentPlayer, sizes.get(currentPlayer) + s.getSize());
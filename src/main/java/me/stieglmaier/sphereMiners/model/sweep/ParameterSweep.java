@@ -0,0 +1,246 @@
+package me.stieglmaier.sphereMiners.model.sweep;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import me.stieglmaier.sphereMiners.main.Constants;
+import me.stieglmaier.sphereMiners.model.MatchResult;
+import me.stieglmaier.sphereMiners.model.rules.WinningConditions;
+import me.stieglmaier.sphereMiners.model.tournament.LocalMatchRunner;
+
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.ConfigurationBuilder;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.common.log.LogManager;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Plays the same matches for every combination of the values of some
+ * configuration options, e.g. for tuning the physics constants. Each
+ * combination (setting) is played with the same seeds, so differences in
+ * the results are caused by the options and not by the random placement of
+ * the dots. Every match of every setting is an independent job, the jobs are
+ * distributed over a fixed amount of threads. Each thread keeps the runner
+ * (and thereby the loaded AIs) of its last setting, so a new runner is only
+ * created when a thread switches to another setting.
+ *
+ * The results are written as CSV table with one row per match as soon as
+ * the match is finished, so the rows are not ordered. The first column is
+ * the index of the setting, followed by the option values, the seed, the
+ * winners, the amount of ticks, the final size of each AI and the wall time.
+ *
+ * @author stieglma
+ *
+ */
+public final class ParameterSweep implements AutoCloseable {
+
+  private static final Joiner CSV_JOINER = Joiner.on(',');
+
+  private final List<SweepParameter> parameters;
+  private final List<List<String>> settings;
+  private final List<Constants> constants = new ArrayList<>();
+  private final LogManager logger;
+  private final ExecutorService executor;
+  /** The runner of each thread, together with the setting it was created for. */
+  private final Map<Thread, ThreadRunner> runners = new ConcurrentHashMap<>();
+
+  /**
+   * Creates the sweep and the configurations of all settings.
+   *
+   * @param baseConfiguration the configuration used for all options that are not swept
+   * @param logger the logger used for all settings
+   * @param parameters the swept options and their values
+   * @param threads the amount of matches played at the same time
+   * @throws InvalidConfigurationException if a value is invalid for its option
+   */
+  public ParameterSweep(
+      Configuration baseConfiguration,
+      LogManager logger,
+      List<SweepParameter> parameters,
+      int threads)
+      throws InvalidConfigurationException {
+    this.parameters = parameters;
+    this.logger = logger;
+
+    List<List<String>> values = new ArrayList<>();
+    parameters.forEach(p -> values.add(p.getValues()));
+    settings = cartesianProduct(values);
+    for (List<String> setting : settings) {
+      ConfigurationBuilder builder = Configuration.builder().copyFrom(baseConfiguration);
+      for (int i = 0; i < parameters.size(); i++) {
+        builder.setOption(parameters.get(i).getOptionName(), setting.get(i));
+      }
+      constants.add(new Constants(builder.build(), logger));
+    }
+
+    executor =
+        Executors.newFixedThreadPool(
+            threads,
+            r -> {
+              Thread t = new Thread(r, "[sphereMiners][sweep]");
+              t.setDaemon(true);
+              return t;
+            });
+  }
+
+  /**
+   * Returns all combinations of one value of each list, the values of the
+   * last list change fastest.
+   */
+  private static List<List<String>> cartesianProduct(List<List<String>> values) {
+    List<List<String>> product = ImmutableList.of(ImmutableList.of());
+    for (List<String> optionValues : values) {
+      List<List<String>> extended = new ArrayList<>();
+      for (List<String> combination : product) {
+        for (String value : optionValues) {
+          extended.add(
+              ImmutableList.<String>builder().addAll(combination).add(value).build());
+        }
+      }
+      product = extended;
+    }
+    return ImmutableList.copyOf(product);
+  }
+
+  /**
+   * Returns the amount of settings, i.e. combinations of option values.
+   *
+   * @return the amount of settings
+   */
+  public int getSettingCount() {
+    return settings.size();
+  }
+
+  /**
+   * Plays one match per seed for every setting and writes the results.
+   *
+   * @param ais the AIs playing in every match
+   * @param maxTicks the amount of ticks after which a match is stopped without a winner
+   * @param seeds the seeds of the matches, the same for every setting
+   * @param out the writer the CSV table is written to
+   * @return the amount of matches that could be played
+   * @throws IOException if the results cannot be written
+   * @throws InterruptedException if the thread is interrupted while waiting for the matches
+   */
+  public int run(List<String> ais, int maxTicks, List<Long> seeds, Writer out)
+      throws IOException, InterruptedException {
+    for (int i = 0; i < settings.size(); i++) {
+      if (maxTicks == Integer.MAX_VALUE
+          && constants.get(i).getWinningCondition() == WinningConditions.OPEN_END) {
+        throw new IllegalArgumentException(
+            "Setting " + settings.get(i) + " uses OPEN_END, the maximum amount of ticks is needed");
+      }
+    }
+
+    writeHeader(ais, out);
+
+    CompletionService<String> completion = new ExecutorCompletionService<>(executor);
+    int jobs = 0;
+    for (int i = 0; i < settings.size(); i++) {
+      for (long seed : seeds) {
+        int setting = i;
+        completion.submit(() -> playMatch(setting, ais, maxTicks, seed));
+        jobs++;
+      }
+    }
+
+    int played = 0;
+    for (int i = 1; i <= jobs; i++) {
+      try {
+        out.write(completion.take().get());
+        out.flush();
+        played++;
+      } catch (ExecutionException e) {
+        logger.logException(Level.WARNING, e.getCause(), "Match could not be played.");
+      }
+      logger.log(Level.INFO, "Finished", i, "of", jobs, "matches of the sweep.");
+    }
+    return played;
+  }
+
+  private void writeHeader(List<String> ais, Writer out) throws IOException {
+    List<String> columns = new ArrayList<>();
+    columns.add("setting");
+    parameters.forEach(p -> columns.add(p.getName()));
+    columns.add("seed");
+    columns.add("winners");
+    columns.add("ended");
+    columns.add("ticks");
+    ais.stream().distinct().forEach(ai -> columns.add("size:" + ai));
+    columns.add("wallMs");
+    columns.add("usPerTick");
+    out.write(CSV_JOINER.join(columns) + "\n");
+    out.flush();
+  }
+
+  private String playMatch(int setting, List<String> ais, int maxTicks, long seed)
+      throws Exception {
+    MatchResult result = getRunner(setting).playMatch(ais, maxTicks, seed);
+
+    List<Object> row = new ArrayList<>();
+    row.add(setting);
+    row.addAll(settings.get(setting));
+    row.add(seed);
+    row.add(Joiner.on(' ').join(result.getWinners()));
+    row.add(result.hasEnded());
+    row.add(result.getTicks());
+    ais.stream().distinct().forEach(ai -> row.add(result.getSizes().getOrDefault(ai, 0)));
+    row.add(result.getDuration(TimeUnit.MILLISECONDS));
+    row.add(
+        result.getTicks() > 0
+            ? result.getDuration(TimeUnit.MICROSECONDS) / result.getTicks()
+            : 0);
+    return CSV_JOINER.join(row) + "\n";
+  }
+
+  /**
+   * Returns the runner of the current thread for the given setting, the
+   * runner of another setting is closed.
+   */
+  private LocalMatchRunner getRunner(int setting) throws MalformedURLException {
+    ThreadRunner current = runners.get(Thread.currentThread());
+    if (current != null && current.setting == setting) {
+      return current.runner;
+    }
+    if (current != null) {
+      current.runner.close();
+    }
+    LocalMatchRunner runner = new LocalMatchRunner(constants.get(setting), 1);
+    runners.put(Thread.currentThread(), new ThreadRunner(setting, runner));
+    return runner;
+  }
+
+  /**
+   * Stops all threads of the sweep.
+   */
+  @Override
+  public void close() {
+    executor.shutdownNow();
+    runners.values().forEach(r -> r.runner.close());
+    runners.clear();
+  }
+
+  private static final class ThreadRunner {
+    private final int setting;
+    private final LocalMatchRunner runner;
+
+    private ThreadRunner(int setting, LocalMatchRunner runner) {
+      this.setting = setting;
+      this.runner = runner;
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package me.stieglmaier.sphereMiners.model.sweep;
+
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import me.stieglmaier.sphereMiners.main.Constants;
+
+import org.sosy_lab.common.configuration.Option;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A configuration option of {@link Constants} together with the values it
+ * takes during a {@link ParameterSweep}. The values are given either as a
+ * comma separated list (<code>dotAmount=400,800</code>) or as a range
+ * <code>start:end:step</code> including both bounds (<code>maxSpeed=10:30:2.5</code>).
+ *
+ * @author stieglma
+ *
+ */
+public final class SweepParameter {
+
+  private static final String PREFIX = "constants.";
+
+  private final String name;
+  private final List<String> values;
+
+  private SweepParameter(String name, List<String> values) {
+    this.name = name;
+    this.values = ImmutableList.copyOf(values);
+  }
+
+  /**
+   * Parses a list of sweep parameters separated by semicolons, e.g.
+   * <code>maxSpeed=10:30:5;dotAmount=400,800</code>.
+   *
+   * @param specification the parameters and their values
+   * @return the parsed parameters
+   * @throws IllegalArgumentException if a parameter is no option of {@link Constants}
+   *                                  or its values are malformed
+   */
+  public static List<SweepParameter> parseAll(String specification) {
+    List<SweepParameter> parameters = new ArrayList<>();
+    for (String spec : Splitter.on(';').trimResults().omitEmptyStrings().split(specification)) {
+      parameters.add(parse(spec));
+    }
+    if (parameters.isEmpty()) {
+      throw new IllegalArgumentException("No sweep parameters given.");
+    }
+    return parameters;
+  }
+
+  /**
+   * Parses one sweep parameter of the form <code>name=values</code>.
+   *
+   * @param specification the parameter and its values
+   * @return the parsed parameter
+   * @throws IllegalArgumentException if the parameter is no option of {@link Constants}
+   *                                  or its values are malformed
+   */
+  public static SweepParameter parse(String specification) {
+    int separator = specification.indexOf('=');
+    if (separator <= 0) {
+      throw new IllegalArgumentException("Expected name=values but was " + specification);
+    }
+    String name = specification.substring(0, separator).trim();
+    if (name.startsWith(PREFIX)) {
+      name = name.substring(PREFIX.length());
+    }
+    checkOption(name);
+
+    String valueSpec = specification.substring(separator + 1).trim();
+    List<String> values =
+        valueSpec.contains(":")
+            ? expandRange(name, valueSpec)
+            : Splitter.on(',').trimResults().omitEmptyStrings().splitToList(valueSpec);
+    if (values.isEmpty()) {
+      throw new IllegalArgumentException("No values given for " + name);
+    }
+    return new SweepParameter(name, values);
+  }
+
+  private static void checkOption(String name) {
+    try {
+      Field field = Constants.class.getDeclaredField(name);
+      if (field.isAnnotationPresent(Option.class)) {
+        return;
+      }
+    } catch (NoSuchFieldException e) {
+      // handled below
+    }
+    throw new IllegalArgumentException("Unknown configuration option " + name);
+  }
+
+  private static List<String> expandRange(String name, String range) {
+    List<String> parts = Splitter.on(':').trimResults().splitToList(range);
+    if (parts.size() != 3) {
+      throw new IllegalArgumentException("Expected start:end:step for " + name);
+    }
+    // BigDecimal prevents rounding errors from summing up over the steps
+    BigDecimal start = new BigDecimal(parts.get(0));
+    BigDecimal end = new BigDecimal(parts.get(1));
+    BigDecimal step = new BigDecimal(parts.get(2));
+    if (step.signum() <= 0 || start.compareTo(end) > 0) {
+      throw new IllegalArgumentException("Empty range " + range + " for " + name);
+    }
+
+    List<String> values = new ArrayList<>();
+    for (BigDecimal v = start; v.compareTo(end) <= 0; v = v.add(step)) {
+      values.add(v.stripTrailingZeros().toPlainString());
+    }
+    return values;
+  }
+
+  /**
+   * Returns the name of the option without the prefix of {@link Constants}.
+   *
+   * @return the name of the option
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns the full name of the option as used in configuration files.
+   *
+   * @return the name of the option including its prefix
+   */
+  public String getOptionName() {
+    return PREFIX + name;
+  }
+
+  /**
+   * Returns the values the option takes, in the order they were given.
+   *
+   * @return the values of the option
+   */
+  public List<String> getValues() {
+    return values;
+  }
+
+  @Override
+  public String toString() {
+    return name + "=" + values;
+  }
+}
@@ -0,0 +1,85 @@
+package me.stieglmaier.sphereMiners.model.tournament;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import me.stieglmaier.sphereMiners.model.MatchResult;
+
+import com.google.common.base.Optional;
+
+/**
+ * Returns cached results for matches that were already played and delegates
+ * all other matches to another runner. Matches with AIs whose hash is
+ * unknown are always played and not cached.
+ *
+ * @author stieglma
+ *
+ */
+public final class CachingMatchRunner implements MatchRunner {
+
+  private final MatchRunner delegate;
+  private final ResultCache cache;
+  private final Function<String, String> aiHashes;
+  private final String configurationHash;
+
+  /**
+   * Creates a caching runner.
+   *
+   * @param delegate the runner playing the matches that are not cached
+   * @param cache the cache for the results
+   * @param aiHashes returns the bytecode hash for the name of an AI, or null
+   * @param configurationHash the hash of all configuration options
+   */
+  public CachingMatchRunner(
+      MatchRunner delegate,
+      ResultCache cache,
+      Function<String, String> aiHashes,
+      String configurationHash) {
+    this.delegate = delegate;
+    this.cache = cache;
+    this.aiHashes = aiHashes;
+    this.configurationHash = configurationHash;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public MatchResult playMatch(List<String> ais, int maxTicks, long seed) throws Exception {
+    List<String> hashes = new ArrayList<>();
+    for (String ai : ais) {
+      String hash = aiHashes.apply(ai);
+      if (hash == null) {
+        return delegate.playMatch(ais, maxTicks, seed);
+      }
+      hashes.add(hash);
+    }
+
+    String key = ResultCache.computeKey(hashes, configurationHash, seed, maxTicks);
+    Optional<MatchResult> cached = cache.get(key);
+    if (cached.isPresent()) {
+      return cached.get();
+    }
+
+    MatchResult result = delegate.playMatch(ais, maxTicks, seed);
+    cache.put(key, result);
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getParallelism() {
+    return delegate.getParallelism();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void close() {
+    delegate.close();
+  }
+}
@@ -0,0 +1,92 @@
+package me.stieglmaier.sphereMiners.model.tournament;
+
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+
+import me.stieglmaier.sphereMiners.main.Constants;
+import me.stieglmaier.sphereMiners.model.MatchResult;
+import me.stieglmaier.sphereMiners.model.Model;
+import me.stieglmaier.sphereMiners.model.ai.AIManager;
+import me.stieglmaier.sphereMiners.model.ai.Player;
+import me.stieglmaier.sphereMiners.model.physics.Physics;
+
+/**
+ * Plays matches within this JVM. There is a separate {@link Model} with its
+ * own {@link Physics} and {@link AIManager} for each parallel match, so
+ * matches running at the same time share no state, and the AIs of each
+ * model are loaded by their own class loaders.
+ *
+ * @author stieglma
+ *
+ */
+public final class LocalMatchRunner implements MatchRunner {
+
+  private final Constants constants;
+  private final BlockingQueue<Model> models;
+  private final List<AIManager> aiManagers = new ArrayList<>();
+
+  /**
+   * Creates the models for the given amount of parallel matches. The AI
+   * folder is not watched, such that all matches use the same version of
+   * the AIs.
+   *
+   * @param constants the constants used for all matches
+   * @param parallelism the amount of matches played at the same time
+   * @throws MalformedURLException if the configured AI location is malformed
+   */
+  public LocalMatchRunner(Constants constants, int parallelism) throws MalformedURLException {
+    this.constants = constants;
+    models = new ArrayBlockingQueue<>(parallelism);
+    for (int i = 0; i < parallelism; i++) {
+      AIManager ais = new AIManager(constants, false);
+      aiManagers.add(ais);
+      models.add(
+          new Model(
+              new Physics(constants),
+              ais,
+              constants,
+              l -> l.forEach(p -> constants.getLogger().log(Level.WARNING, "Bad AI:", p)),
+              (title, message) -> constants.getLogger().log(Level.WARNING, title, message)));
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public MatchResult playMatch(List<String> ais, int maxTicks, long seed)
+      throws InterruptedException {
+    Model model = models.take();
+    try {
+      List<Player> players =
+          ais
+              .stream()
+              .map(n -> new Player(n, constants.getInitialSphereSize()))
+              .collect(Collectors.toList());
+      return model.playGame(players, maxTicks, seed);
+    } finally {
+      models.add(model);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getParallelism() {
+    return aiManagers.size();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void close() {
+    aiManagers.forEach(AIManager::close);
+  }
+}
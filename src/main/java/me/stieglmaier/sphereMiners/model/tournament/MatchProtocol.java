@@ -0,0 +1,128 @@
+package me.stieglmaier.sphereMiners.model.tournament;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import me.stieglmaier.sphereMiners.model.MatchResult;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+
+/**
+ * The line based protocol between the coordinator of a tournament and its
+ * workers. Each message is one line with tab separated fields, the first
+ * field is the type of the message:
+ * <ul>
+ * <li><code>PLAY maxTicks seed ai,ai,...</code>: the worker should play a match</li>
+ * <li><code>RESULT ended ticks durationNanos ai,ai,... winner,... ai=size,...</code>:
+ *     the result of the last match</li>
+ * <li><code>ERROR message</code>: the last match could not be played</li>
+ * </ul>
+ * Names of AIs containing the separators of the protocol are rejected.
+ *
+ * @author stieglma
+ *
+ */
+final class MatchProtocol {
+
+  static final String PLAY = "PLAY";
+  static final String RESULT = "RESULT";
+  static final String ERROR = "ERROR";
+
+  private static final Splitter FIELD_SPLITTER = Splitter.on('\t');
+  private static final Joiner FIELD_JOINER = Joiner.on('\t');
+  private static final Splitter NAME_SPLITTER = Splitter.on(',').omitEmptyStrings();
+  private static final Joiner NAME_JOINER = Joiner.on(',');
+  private static final Splitter.MapSplitter SIZE_SPLITTER =
+      Splitter.on(',').omitEmptyStrings().withKeyValueSeparator('=');
+  private static final Joiner.MapJoiner SIZE_JOINER = NAME_JOINER.withKeyValueSeparator("=");
+  private static final CharMatcher SEPARATORS = CharMatcher.anyOf("\t\r\n,=");
+
+  private MatchProtocol() {
+    /* utility class */
+  }
+
+  /**
+   * Checks that the given names of AIs can be sent with this protocol.
+   *
+   * @param ais the names of the AIs
+   * @throws IllegalArgumentException if a name contains a separator of the protocol
+   */
+  static void checkNames(Collection<String> ais) {
+    for (String ai : ais) {
+      if (SEPARATORS.matchesAnyOf(ai)) {
+        throw new IllegalArgumentException("Invalid AI name for the worker protocol: " + ai);
+      }
+    }
+  }
+
+  static String encodeJob(List<String> ais, int maxTicks, long seed) {
+    checkNames(ais);
+    return FIELD_JOINER.join(PLAY, maxTicks, seed, NAME_JOINER.join(ais));
+  }
+
+  static String encodeResult(MatchResult result) {
+    checkNames(result.getPlayers());
+    return FIELD_JOINER.join(
+        RESULT,
+        result.hasEnded(),
+        result.getTicks(),
+        result.getDuration(TimeUnit.NANOSECONDS),
+        NAME_JOINER.join(result.getPlayers()),
+        NAME_JOINER.join(result.getWinners()),
+        SIZE_JOINER.join(result.getSizes()));
+  }
+
+  static String encodeError(String message) {
+    // the message must not break the line based protocol
+    return FIELD_JOINER.join(ERROR, String.valueOf(message).replaceAll("\\s+", " "));
+  }
+
+  /**
+   * Splits a message into its fields.
+   *
+   * @param line the received line
+   * @return the fields, the first one is the type of the message
+   * @throws IOException if the connection was closed
+   */
+  static List<String> split(String line) throws IOException {
+    if (line == null) {
+      throw new IOException("Connection closed");
+    }
+    return FIELD_SPLITTER.splitToList(line);
+  }
+
+  static int getMaxTicks(List<String> job) {
+    return Integer.parseInt(job.get(1));
+  }
+
+  static long getSeed(List<String> job) {
+    return Long.parseLong(job.get(2));
+  }
+
+  static List<String> getAIs(List<String> job) {
+    return NAME_SPLITTER.splitToList(job.get(3));
+  }
+
+  static MatchResult decodeResult(List<String> fields) {
+    Map<String, Integer> sizes = new LinkedHashMap<>();
+    if (fields.size() > 6) {
+      SIZE_SPLITTER
+          .split(fields.get(6))
+          .forEach((ai, size) -> sizes.put(ai, Integer.valueOf(size)));
+    }
+    return new MatchResult(
+        NAME_SPLITTER.splitToList(fields.get(4)),
+        fields.size() > 5 ? NAME_SPLITTER.splitToList(fields.get(5)) : Collections.emptyList(),
+        sizes,
+        Integer.parseInt(fields.get(2)),
+        Boolean.parseBoolean(fields.get(1)),
+        Long.parseLong(fields.get(3)));
+  }
+}
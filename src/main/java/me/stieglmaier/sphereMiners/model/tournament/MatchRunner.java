@@ -0,0 +1,40 @@
+package me.stieglmaier.sphereMiners.model.tournament;
+
+import java.util.List;
+
+import me.stieglmaier.sphereMiners.model.MatchResult;
+
+/**
+ * Plays the matches of a tournament, either in this JVM or in worker
+ * processes. Implementations have to support as many concurrent calls of
+ * {@link #playMatch(List, int, long)} as given by {@link #getParallelism()}.
+ *
+ * @author stieglma
+ *
+ */
+public interface MatchRunner extends AutoCloseable {
+
+  /**
+   * Plays a match and waits for its result.
+   *
+   * @param ais the names of the AIs playing in the match
+   * @param maxTicks the maximum amount of ticks of the match
+   * @param seed the seed for the random decisions of the physics
+   * @return the result of the match
+   * @throws Exception if the match could not be played
+   */
+  MatchResult playMatch(List<String> ais, int maxTicks, long seed) throws Exception;
+
+  /**
+   * Returns the amount of matches that can be played at the same time.
+   *
+   * @return the amount of parallel matches
+   */
+  int getParallelism();
+
+  /**
+   * Stops all threads and processes used for playing matches.
+   */
+  @Override
+  void close();
+}
@@ -0,0 +1,99 @@
+package me.stieglmaier.sphereMiners.model.tournament;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.logging.Level;
+
+import me.stieglmaier.sphereMiners.main.Constants;
+import me.stieglmaier.sphereMiners.model.MatchResult;
+
+/**
+ * A worker plays the matches the coordinator of a tournament sends over a
+ * socket connection, see {@link MatchProtocol}. Each connection is served by
+ * its own thread with its own models, so a coordinator can play several
+ * matches at once on the same worker by opening several connections.
+ *
+ * @author stieglma
+ *
+ */
+public final class MatchWorker {
+
+  private final Constants constants;
+  private final ServerSocket serverSocket;
+
+  /**
+   * Creates the worker and binds its server socket.
+   *
+   * @param constants the constants used for all matches
+   * @param address the address the worker listens on, the loopback address
+   *                only accepts connections from the same machine
+   * @param port the port the worker listens on, 0 for any free port
+   * @throws IOException if the socket cannot be bound
+   */
+  public MatchWorker(Constants constants, InetAddress address, int port) throws IOException {
+    this.constants = constants;
+    serverSocket = new ServerSocket(port, 50, address);
+  }
+
+  /**
+   * Returns the port the worker listens on.
+   *
+   * @return the port of the worker
+   */
+  public int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  /**
+   * Accepts connections until the server socket is closed.
+   *
+   * @throws IOException if accepting connections fails
+   */
+  public void serve() throws IOException {
+    while (true) {
+      Socket socket = serverSocket.accept();
+      Thread t = new Thread(() -> handle(socket), "[sphereMiners][workerConnection]");
+      t.setDaemon(true);
+      t.start();
+    }
+  }
+
+  private void handle(Socket socket) {
+    try (Socket s = socket;
+        BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), UTF_8));
+        PrintWriter out = new PrintWriter(s.getOutputStream(), true);
+        LocalMatchRunner runner = new LocalMatchRunner(constants, 1)) {
+      String line;
+      while ((line = in.readLine()) != null) {
+        List<String> job = MatchProtocol.split(line);
+        if (!MatchProtocol.PLAY.equals(job.get(0))) {
+          out.println(MatchProtocol.encodeError("Unknown message " + job.get(0)));
+          continue;
+        }
+        try {
+          MatchResult result =
+              runner.playMatch(
+                  MatchProtocol.getAIs(job),
+                  MatchProtocol.getMaxTicks(job),
+                  MatchProtocol.getSeed(job));
+          out.println(MatchProtocol.encodeResult(result));
+        } catch (RuntimeException e) {
+          constants.getLogger().logException(Level.WARNING, e, "Match could not be played.");
+          out.println(MatchProtocol.encodeError(e.toString()));
+        }
+      }
+    } catch (IOException e) {
+      constants.getLogger().logException(Level.INFO, e, "Connection to coordinator lost.");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
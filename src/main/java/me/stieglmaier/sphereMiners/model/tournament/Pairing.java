@@ -0,0 +1,118 @@
+package me.stieglmaier.sphereMiners.model.tournament;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The schemes for pairing the AIs of a tournament. A tournament consists of
+ * rounds, all matches of a round are independent of each other and can be
+ * played in parallel. Groups with only one AI are byes, the AI gets the
+ * points of a won match without playing.
+ *
+ * @author stieglma
+ *
+ */
+public enum Pairing {
+
+  /**
+   * Each round every AI plays once against each other AI.
+   */
+  ROUND_ROBIN {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<List<String>> pairRound(
+        List<String> ais, Standings standings, int playersPerMatch, Random random) {
+      List<List<String>> matches = new ArrayList<>();
+      for (int i = 0; i < ais.size(); i++) {
+        for (int j = i + 1; j < ais.size(); j++) {
+          List<String> match = new ArrayList<>();
+          match.add(ais.get(i));
+          match.add(ais.get(j));
+          matches.add(match);
+        }
+      }
+      return matches;
+    }
+  },
+
+  /**
+   * Each round the AIs are sorted by their points and AIs with similar
+   * points play against each other, rematches are avoided if possible.
+   * With an odd number of AIs the lowest ranked AI gets a bye.
+   */
+  SWISS {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<List<String>> pairRound(
+        List<String> ais, Standings standings, int playersPerMatch, Random random) {
+      List<String> unpaired = new ArrayList<>(standings.getRanking());
+      unpaired.retainAll(ais);
+
+      List<List<String>> matches = new ArrayList<>();
+      if (unpaired.size() % 2 == 1) {
+        matches.add(Collections.singletonList(unpaired.remove(unpaired.size() - 1)));
+      }
+
+      while (!unpaired.isEmpty()) {
+        String first = unpaired.remove(0);
+        int opponent = 0;
+        for (int i = 0; i < unpaired.size(); i++) {
+          if (!standings.havePlayed(first, unpaired.get(i))) {
+            opponent = i;
+            break;
+          }
+        }
+        List<String> match = new ArrayList<>();
+        match.add(first);
+        match.add(unpaired.remove(opponent));
+        matches.add(match);
+      }
+      return matches;
+    }
+  },
+
+  /**
+   * Each round the AIs are shuffled and split into matches with the given
+   * amount of players, all playing against each other at once.
+   */
+  FREE_FOR_ALL {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<List<String>> pairRound(
+        List<String> ais, Standings standings, int playersPerMatch, Random random) {
+      List<String> shuffled = new ArrayList<>(ais);
+      Collections.shuffle(shuffled, random);
+
+      List<List<String>> matches = new ArrayList<>();
+      for (int i = 0; i < shuffled.size(); i += playersPerMatch) {
+        matches.add(
+            new ArrayList<>(shuffled.subList(i, Math.min(i + playersPerMatch, shuffled.size()))));
+      }
+      return matches;
+    }
+  };
+
+  /**
+   * Computes the matches of the next round.
+   *
+   * @param ais the AIs taking part in the tournament
+   * @param standings the standings after the previous rounds
+   * @param playersPerMatch the amount of AIs playing in one match, only used
+   *                        by schemes where more than two AIs play at once
+   * @param random the random generator for schemes with random pairings
+   * @return the list of matches, each given by the AIs playing in it
+   */
+  public abstract List<List<String>> pairRound(
+      List<String> ais, Standings standings, int playersPerMatch, Random random);
+}
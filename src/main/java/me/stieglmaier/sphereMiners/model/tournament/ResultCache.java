@@ -0,0 +1,162 @@
+package me.stieglmaier.sphereMiners.model.tournament;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+import me.stieglmaier.sphereMiners.model.MatchResult;
+
+import org.sosy_lab.common.log.LogManager;
+
+import com.google.common.base.Optional;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * A persistent cache for the results of matches. A match is identified by
+ * the bytecode of the participating AIs, the values of the configuration
+ * options relevant for the outcome, the seed of the physics and the maximum
+ * amount of ticks, see {@link #computeKey(List, String, long, int)}. The
+ * results are appended to the cache file as soon as they are known, so they
+ * survive a crash. The file is locked while appending, such that several
+ * processes can share a cache file.
+ *
+ * Cached results are only valid if the AIs behave deterministically, i.e.
+ * they do not use unseeded random numbers and do not exceed their
+ * computation time.
+ *
+ * @author stieglma
+ *
+ */
+public final class ResultCache {
+
+  /**
+   * Has to be increased whenever the simulation changes in a way that
+   * changes the outcome of games, such that old results are not used anymore.
+   */
+  private static final int SIMULATION_VERSION = 1;
+
+  private static final String HEADER = "# sphereMiners result cache v1";
+  private static final String SEPARATOR = "\t";
+
+  private final File file;
+  private final LogManager logger;
+  private final Map<String, MatchResult> results = new ConcurrentHashMap<>();
+
+  /**
+   * Creates the cache and loads the results from the given file, if it exists.
+   *
+   * @param file the file the results are persisted to
+   * @param logger the logger for reporting problems with the cache file
+   */
+  public ResultCache(File file, LogManager logger) {
+    this.file = file;
+    this.logger = logger;
+    load();
+  }
+
+  /**
+   * Computes the key identifying a match.
+   *
+   * @param aiHashes the bytecode hashes of the AIs in the order they play
+   * @param configurationHash the hash of the configuration options relevant for the outcome
+   * @param seed the seed of the physics
+   * @param maxTicks the maximum amount of ticks of the match
+   * @return the key of the match
+   */
+  public static String computeKey(
+      List<String> aiHashes, String configurationHash, long seed, int maxTicks) {
+    Hasher hasher = Hashing.sha256().newHasher();
+    hasher.putInt(SIMULATION_VERSION);
+    aiHashes.forEach(h -> hasher.putString(h, UTF_8).putChar(','));
+    hasher.putString(configurationHash, UTF_8);
+    hasher.putLong(seed);
+    hasher.putInt(maxTicks);
+    return hasher.hash().toString();
+  }
+
+  /**
+   * Returns the cached result of a match.
+   *
+   * @param key the key of the match
+   * @return the result, or absent if the match was not played before
+   */
+  public Optional<MatchResult> get(String key) {
+    return Optional.fromNullable(results.get(key));
+  }
+
+  /**
+   * Adds the result of a match to the cache and the cache file.
+   *
+   * @param key the key of the match
+   * @param result the result of the match
+   */
+  public synchronized void put(String key, MatchResult result) {
+    if (results.putIfAbsent(key, result) != null) {
+      return;
+    }
+
+    StringBuilder lines = new StringBuilder();
+    try (FileChannel channel =
+        FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+      FileLock lock = channel.lock();
+      try {
+        // the end of the file is only known while holding the lock
+        if (channel.size() == 0) {
+          lines.append(HEADER).append('\n');
+        }
+        lines.append(key).append(SEPARATOR).append(MatchProtocol.encodeResult(result)).append('\n');
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(UTF_8));
+        long position = channel.size();
+        while (buffer.hasRemaining()) {
+          position += channel.write(buffer, position);
+        }
+      } finally {
+        lock.release();
+      }
+    } catch (IOException e) {
+      logger.logException(Level.WARNING, e, "Result could not be written to the cache file.");
+    }
+  }
+
+  private void load() {
+    if (!file.isFile()) {
+      return;
+    }
+
+    try (BufferedReader reader = Files.newBufferedReader(file.toPath(), UTF_8)) {
+      if (!HEADER.equals(reader.readLine())) {
+        logger.log(Level.WARNING, "Unknown format of result cache", file, ", it is not used.");
+        return;
+      }
+      String line;
+      while ((line = reader.readLine()) != null) {
+        int separator = line.indexOf(SEPARATOR);
+        if (separator < 0) {
+          continue;
+        }
+        try {
+          results.put(
+              line.substring(0, separator),
+              MatchProtocol.decodeResult(MatchProtocol.split(line.substring(separator + 1))));
+        } catch (RuntimeException e) {
+          // e.g. an incompletely written last line, the match is played again
+          logger.log(Level.INFO, "Ignoring invalid line in result cache:", line);
+        }
+      }
+    } catch (IOException e) {
+      logger.logException(Level.WARNING, e, "Result cache could not be read.");
+    }
+  }
+}
@@ -0,0 +1,184 @@
+package me.stieglmaier.sphereMiners.model.tournament;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import me.stieglmaier.sphereMiners.model.MatchResult;
+
+/**
+ * The standings of a tournament. The winners of a match share one point,
+ * matches without a winner give no points.
+ *
+ * @author stieglma
+ *
+ */
+public final class Standings {
+
+  private final Map<String, Record> records = new LinkedHashMap<>();
+  private int matches = 0;
+  private long ticks = 0;
+  private long durationNanos = 0;
+
+  /**
+   * Creates empty standings for the given AIs.
+   *
+   * @param ais the AIs taking part in the tournament
+   */
+  Standings(List<String> ais) {
+    ais.forEach(ai -> records.put(ai, new Record()));
+  }
+
+  /**
+   * Adds the result of a finished match.
+   *
+   * @param result the result of the match
+   */
+  void add(MatchResult result) {
+    matches++;
+    ticks += result.getTicks();
+    durationNanos += result.getDuration(TimeUnit.NANOSECONDS);
+
+    for (String player : result.getPlayers()) {
+      Record r = records.get(player);
+      r.matches++;
+      r.opponents.addAll(result.getPlayers());
+      r.opponents.remove(player);
+    }
+    for (String winner : result.getWinners()) {
+      Record r = records.get(winner);
+      r.wins++;
+      r.points += 1.0 / result.getWinners().size();
+    }
+  }
+
+  /**
+   * Adds a bye for the given AI, it counts as a won match.
+   *
+   * @param ai the AI that does not play this round
+   */
+  void addBye(String ai) {
+    Record r = records.get(ai);
+    r.points += 1;
+    r.byes++;
+  }
+
+  /**
+   * Checks if the given AIs already played against each other.
+   *
+   * @param ai the first AI
+   * @param other the second AI
+   * @return indicates if both AIs played in the same match before
+   */
+  boolean havePlayed(String ai, String other) {
+    return records.get(ai).opponents.contains(other);
+  }
+
+  /**
+   * Returns the points of the given AI.
+   *
+   * @param ai the name of the AI
+   * @return the points of the AI
+   */
+  public double getPoints(String ai) {
+    return records.get(ai).points;
+  }
+
+  /**
+   * Returns the amount of won matches of the given AI, byes are not counted.
+   *
+   * @param ai the name of the AI
+   * @return the amount of won matches
+   */
+  public int getWins(String ai) {
+    return records.get(ai).wins;
+  }
+
+  /**
+   * Returns the amount of played matches of the given AI.
+   *
+   * @param ai the name of the AI
+   * @return the amount of played matches
+   */
+  public int getMatches(String ai) {
+    return records.get(ai).matches;
+  }
+
+  /**
+   * Returns the AIs ordered by their points, the best AI first. AIs with the
+   * same points are ordered by name.
+   *
+   * @return the ranking of the AIs
+   */
+  public List<String> getRanking() {
+    List<String> ranking = new ArrayList<>(records.keySet());
+    ranking.sort(
+        Comparator.comparingDouble((String ai) -> -getPoints(ai))
+            .thenComparing(Comparator.naturalOrder()));
+    return ranking;
+  }
+
+  /**
+   * Returns the amount of matches played in the tournament.
+   *
+   * @return the amount of played matches
+   */
+  public int getMatchCount() {
+    return matches;
+  }
+
+  /**
+   * Returns the amount of ticks computed in all matches.
+   *
+   * @return the amount of computed ticks
+   */
+  public long getTickCount() {
+    return ticks;
+  }
+
+  /**
+   * Returns the sum of the durations of all matches. As matches are played
+   * in parallel this is usually larger than the duration of the tournament.
+   *
+   * @param unit the unit of the returned duration
+   * @return the summed duration of all matches
+   */
+  public long getMatchDuration(TimeUnit unit) {
+    return unit.convert(durationNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    int rank = 1;
+    for (String ai : getRanking()) {
+      Record r = records.get(ai);
+      sb.append(
+          String.format(
+              "%3d. %-40s %6.2f points, %d/%d wins, %d byes%n",
+              rank++,
+              ai,
+              r.points,
+              r.wins,
+              r.matches,
+              r.byes));
+    }
+    return sb.toString();
+  }
+
+  private static final class Record {
+    private double points = 0;
+    private int wins = 0;
+    private int matches = 0;
+    private int byes = 0;
+    private final Set<String> opponents = new HashSet<>();
+  }
+}
@@ -0,0 +1,128 @@
+package me.stieglmaier.sphereMiners.model.tournament;
+
+import java.net.MalformedURLException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+import me.stieglmaier.sphereMiners.main.Constants;
+import me.stieglmaier.sphereMiners.model.MatchResult;
+import me.stieglmaier.sphereMiners.model.Model;
+
+/**
+ * Runs the matches of a tournament in parallel. The matches are played by a
+ * {@link MatchRunner}, either in this JVM or in separate worker processes.
+ *
+ * @author stieglma
+ *
+ */
+public final class Tournament implements AutoCloseable {
+
+  private final Constants constants;
+  private final MatchRunner runner;
+  private final ExecutorService executor;
+
+  /**
+   * Creates a tournament which plays its matches within this JVM, with one
+   * separate {@link Model} per thread.
+   *
+   * @param constants the constants used for all matches
+   * @param parallelism the amount of matches played at the same time,
+   *                    usually the amount of available processors
+   * @throws MalformedURLException if the configured AI location is malformed
+   */
+  public Tournament(Constants constants, int parallelism) throws MalformedURLException {
+    this(constants, new LocalMatchRunner(constants, parallelism));
+  }
+
+  /**
+   * Creates a tournament which plays its matches with the given runner.
+   * The runner is closed together with the tournament.
+   *
+   * @param constants the constants used for logging
+   * @param runner the runner playing the matches
+   */
+  public Tournament(Constants constants, MatchRunner runner) {
+    this.constants = constants;
+    this.runner = runner;
+    executor =
+        Executors.newFixedThreadPool(
+            runner.getParallelism(),
+            r -> {
+              Thread t = new Thread(r, "[sphereMiners][tournamentThread]");
+              t.setDaemon(true);
+              return t;
+            });
+  }
+
+  /**
+   * Plays a tournament. The matches of a round are played in parallel and
+   * their results are added to the standings as soon as they finish.
+   *
+   * @param ais the names of the AIs taking part in the tournament
+   * @param pairing the scheme for pairing the AIs each round
+   * @param rounds the amount of rounds
+   * @param playersPerMatch the amount of AIs playing in one free-for-all match
+   * @param maxTicks the maximum amount of ticks of a match, afterwards it is
+   *                 stopped without a winner
+   * @param random the random generator for random pairings and the seeds of
+   *               the matches, the tournament is reproducible with the same seed
+   * @param resultListener is called with the result of each finished match
+   * @return the final standings
+   * @throws InterruptedException if the tournament was interrupted
+   */
+  public Standings play(
+      List<String> ais,
+      Pairing pairing,
+      int rounds,
+      int playersPerMatch,
+      int maxTicks,
+      Random random,
+      Consumer<MatchResult> resultListener)
+      throws InterruptedException {
+    Standings standings = new Standings(ais);
+
+    for (int round = 0; round < rounds; round++) {
+      CompletionService<MatchResult> results = new ExecutorCompletionService<>(executor);
+      int submitted = 0;
+      for (List<String> match : pairing.pairRound(ais, standings, playersPerMatch, random)) {
+        if (match.size() < 2) {
+          match.forEach(standings::addBye);
+        } else {
+          long seed = random.nextLong();
+          results.submit(() -> runner.playMatch(match, maxTicks, seed));
+          submitted++;
+        }
+      }
+
+      for (int i = 0; i < submitted; i++) {
+        try {
+          MatchResult result = results.take().get();
+          standings.add(result);
+          resultListener.accept(result);
+        } catch (ExecutionException e) {
+          constants
+              .getLogger()
+              .logException(Level.WARNING, e.getCause(), "Match could not be played.");
+        }
+      }
+    }
+
+    return standings;
+  }
+
+  /**
+   * Stops all threads of the tournament and of its match runner.
+   */
+  @Override
+  public void close() {
+    executor.shutdownNow();
+    runner.close();
+  }
+}
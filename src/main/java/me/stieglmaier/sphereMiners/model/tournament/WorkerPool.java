@@ -0,0 +1,336 @@
+package me.stieglmaier.sphereMiners.model.tournament;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import me.stieglmaier.sphereMiners.main.Constants;
+import me.stieglmaier.sphereMiners.model.MatchResult;
+import me.stieglmaier.sphereMiners.model.ai.AIManager;
+import me.stieglmaier.sphereMiners.model.ai.TimeCalibration;
+import me.stieglmaier.sphereMiners.model.rules.WinningConditions;
+
+/**
+ * Plays matches in worker processes, which are connected over sockets (see
+ * {@link MatchWorker}). The workers are either started by the pool as local
+ * JVMs, or they are already running on the given hosts. A crashed local
+ * worker is started again, a lost remote worker is reconnected, and the
+ * interrupted match is played again.
+ *
+ * Each slot of the pool is one connection playing one match at a time, so
+ * a remote worker can be given several times to use more of its cores.
+ *
+ * A worker that does not answer within the longest time a match can take
+ * is treated like a crashed worker. This time is computed from the tick
+ * limit and the computation time of the AIs on this machine, so remote
+ * workers should not be much slower than this machine.
+ *
+ * @author stieglma
+ *
+ */
+public final class WorkerPool implements MatchRunner {
+
+  /**
+   * The main class started for local workers, it has to print the port of
+   * the worker as first line to stdout.
+   */
+  private static final String WORKER_MAIN_CLASS =
+      "me.stieglmaier.sphereMiners.main.HeadlessSphereMiners";
+
+  private static final int MAX_ATTEMPTS = 3;
+  private static final long RECONNECT_DELAY_MILLIS = 1000;
+
+  /**
+   * The time a match may take in addition to the computation time of the
+   * AIs, e.g. for starting the match and computing the physics.
+   */
+  private static final long MATCH_SLACK_MILLIS = 30_000;
+
+  /**
+   * The computation time of the AIs is multiplied by this factor, as the
+   * threads of the AIs and the physics share the cores of the worker.
+   */
+  private static final int MATCH_TIMEOUT_FACTOR = 2;
+
+  private final Constants constants;
+  /** The computation time of the AIs on this machine in milliseconds. */
+  private final long aiComputationTime;
+  private final BlockingQueue<Slot> slots;
+  private final List<Slot> allSlots = new ArrayList<>();
+
+  private WorkerPool(Constants constants, List<Slot> slots) {
+    this.constants = constants;
+    aiComputationTime = TimeCalibration.getAIComputationTime(constants);
+    this.slots = new ArrayBlockingQueue<>(slots.size(), false, slots);
+    allSlots.addAll(slots);
+  }
+
+  /**
+   * Starts the given amount of worker JVMs on this machine. They use the
+   * same classpath as this JVM and the given configuration file. The speed
+   * factor of the machine is calibrated once here and given to the workers,
+   * such that they neither calibrate at the same time nor write the
+   * calibration file concurrently.
+   *
+   * @param constants the constants used for logging and calibration
+   * @param workers the amount of worker processes
+   * @param configFile the configuration file for the workers, or null for the default
+   * @return the pool using the started workers
+   * @throws IOException if a worker could not be started
+   */
+  public static WorkerPool startLocal(Constants constants, int workers, String configFile)
+      throws IOException {
+    double speedFactor =
+        constants.isAIComputationTimeCalibrated() ? TimeCalibration.getSpeedFactor(constants) : 0;
+    List<Slot> slots = new ArrayList<>();
+    try {
+      for (int i = 0; i < workers; i++) {
+        Slot slot = new LocalSlot(configFile, speedFactor);
+        slots.add(slot);
+        slot.connect();
+      }
+    } catch (IOException e) {
+      slots.forEach(Slot::close);
+      throw e;
+    }
+    return new WorkerPool(constants, slots);
+  }
+
+  /**
+   * Connects to workers that are already running, e.g. on other machines.
+   * The workers have to use the same configuration and AIs as this JVM.
+   *
+   * @param constants the constants used for logging
+   * @param hosts the addresses of the workers in the form host:port
+   * @return the pool using the given workers
+   * @throws IOException if a worker cannot be reached
+   */
+  public static WorkerPool connect(Constants constants, List<String> hosts) throws IOException {
+    List<Slot> slots = new ArrayList<>();
+    try {
+      for (String host : hosts) {
+        int separator = host.lastIndexOf(':');
+        if (separator < 0) {
+          throw new IllegalArgumentException("Missing port in " + host);
+        }
+        Slot slot =
+            new RemoteSlot(
+                host.substring(0, separator), Integer.parseInt(host.substring(separator + 1)));
+        slots.add(slot);
+        slot.connect();
+      }
+    } catch (IOException | IllegalArgumentException e) {
+      slots.forEach(Slot::close);
+      throw new IOException("Worker could not be reached: " + e.getMessage(), e);
+    }
+    return new WorkerPool(constants, slots);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public MatchResult playMatch(List<String> ais, int maxTicks, long seed)
+      throws IOException, InterruptedException {
+    int timeout = getMatchTimeout(ais.size(), maxTicks);
+    Slot slot = slots.take();
+    try {
+      IOException lastException = null;
+      for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+        try {
+          if (lastException != null) {
+            slot.restart();
+          }
+          slot.socket.setSoTimeout(timeout);
+          slot.out.println(MatchProtocol.encodeJob(ais, maxTicks, seed));
+          List<String> answer = MatchProtocol.split(slot.in.readLine());
+          if (MatchProtocol.ERROR.equals(answer.get(0))) {
+            // the worker is fine, but the match cannot be played
+            throw new IllegalStateException("Worker " + slot + ": " + answer.get(1));
+          }
+          return MatchProtocol.decodeResult(answer);
+        } catch (IOException e) {
+          lastException = e;
+          constants
+              .getLogger()
+              .logException(Level.WARNING, e, "Worker " + slot + " failed, restarting it.");
+          TimeUnit.MILLISECONDS.sleep(RECONNECT_DELAY_MILLIS);
+        }
+      }
+      throw lastException;
+    } finally {
+      slots.add(slot);
+    }
+  }
+
+  /**
+   * Returns the longest time a match can take: each AI uses its whole
+   * computation time in every tick and warm-up turn, the warm-up turns are
+   * only cut off after {@link AIManager#WARMUP_TIMEOUT_FACTOR} times the
+   * computation time.
+   *
+   * @param players the amount of AIs playing the match
+   * @param maxTicks the maximal amount of ticks of the match
+   * @return the timeout for the answer of the worker in milliseconds, 0 if
+   *         the match has no maximal amount of ticks
+   */
+  private int getMatchTimeout(int players, int maxTicks) {
+    long ticks = maxTicks;
+    if (constants.getWinningCondition() == WinningConditions.BIGGEST_AFTER_TIME) {
+      ticks = Math.min(ticks, (constants.getTotalGameTime() + 1L) * constants.getFramesPerSecond());
+    } else if (maxTicks == Integer.MAX_VALUE) {
+      return 0;
+    }
+    long turns =
+        ticks + (long) constants.getAIWarmupTurns() * AIManager.WARMUP_TIMEOUT_FACTOR + 1;
+    double timeout =
+        MATCH_SLACK_MILLIS
+            + (double) MATCH_TIMEOUT_FACTOR
+                * players
+                * aiComputationTime
+                * turns;
+    return (int) Math.min(Integer.MAX_VALUE, timeout);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getParallelism() {
+    return allSlots.size();
+  }
+
+  /**
+   * Closes all connections and stops the local workers.
+   */
+  @Override
+  public void close() {
+    allSlots.forEach(Slot::close);
+  }
+
+  /**
+   * One connection to a worker.
+   */
+  private abstract static class Slot {
+    private Socket socket;
+    private BufferedReader in;
+    private PrintWriter out;
+
+    abstract void connect() throws IOException;
+
+    void restart() throws IOException {
+      close();
+      connect();
+    }
+
+    void open(String host, int port) throws IOException {
+      socket = new Socket(host, port);
+      in = new BufferedReader(new InputStreamReader(socket.getInputStream(), UTF_8));
+      out = new PrintWriter(socket.getOutputStream(), true);
+    }
+
+    void close() {
+      if (socket != null) {
+        try {
+          socket.close();
+        } catch (IOException e) {
+          // the connection is not used anymore anyway
+        }
+      }
+    }
+  }
+
+  private static final class RemoteSlot extends Slot {
+    private final String host;
+    private final int port;
+
+    private RemoteSlot(String host, int port) {
+      this.host = host;
+      this.port = port;
+    }
+
+    @Override
+    void connect() throws IOException {
+      open(host, port);
+    }
+
+    @Override
+    public String toString() {
+      return host + ":" + port;
+    }
+  }
+
+  private static final class LocalSlot extends Slot {
+    private final String configFile;
+    /** The speed factor of this machine, 0 if the computation time is not calibrated. */
+    private final double speedFactor;
+    private Process process;
+    private int port;
+
+    private LocalSlot(String configFile, double speedFactor) {
+      this.configFile = configFile;
+      this.speedFactor = speedFactor;
+    }
+
+    /**
+     * Starts a new worker JVM and connects to it.
+     */
+    @Override
+    void connect() throws IOException {
+      List<String> command = new ArrayList<>();
+      command.add(
+          System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+      command.add("-cp");
+      command.add(System.getProperty("java.class.path"));
+      command.add(WORKER_MAIN_CLASS);
+      command.add("--worker=0");
+      if (configFile != null) {
+        command.add("--config=" + configFile);
+      }
+      if (speedFactor > 0) {
+        command.add("--aiSpeedFactor=" + speedFactor);
+      }
+
+      process =
+          new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+      BufferedReader processOut =
+          new BufferedReader(new InputStreamReader(process.getInputStream(), UTF_8));
+      String portLine = processOut.readLine();
+      if (portLine == null) {
+        process.destroyForcibly();
+        throw new IOException("Worker process did not start");
+      }
+      try {
+        port = Integer.parseInt(portLine.trim());
+      } catch (NumberFormatException e) {
+        process.destroyForcibly();
+        throw new IOException("Unexpected output of worker process: " + portLine, e);
+      }
+      open("localhost", port);
+    }
+
+    @Override
+    void close() {
+      super.close();
+      if (process != null) {
+        process.destroyForcibly();
+      }
+    }
+
+    @Override
+    public String toString() {
+      return "localhost:" + port;
+    }
+  }
+}
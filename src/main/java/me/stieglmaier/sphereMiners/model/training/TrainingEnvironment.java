@@ -0,0 +1,377 @@
+package me.stieglmaier.sphereMiners.model.training;
+
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+
+import me.stieglmaier.sphereMiners.main.Constants;
+import me.stieglmaier.sphereMiners.model.ai.AIManager;
+import me.stieglmaier.sphereMiners.model.ai.AIManager.LoadingStatus;
+import me.stieglmaier.sphereMiners.model.ai.CommandBatch;
+import me.stieglmaier.sphereMiners.model.ai.Player;
+import me.stieglmaier.sphereMiners.model.physics.Physics;
+import me.stieglmaier.sphereMiners.model.util.Position;
+import me.stieglmaier.sphereMiners.model.util.Sphere;
+
+import com.google.common.base.Optional;
+
+/**
+ * A programmatic environment for training agents, e.g. by reinforcement
+ * learning. A game is started with {@link #reset(long, float[], float[])} and
+ * advanced by one tick with {@link #step(float[], float[], float[], float[])}.
+ * Everything is computed synchronously on the calling thread: no simulation
+ * thread, no JavaFX thread and no time limits for the opponent AIs. No ticks
+ * are kept, the observations are written into buffers provided by the
+ * caller, so a training loop does not create garbage for them.
+ *
+ * There are two kinds of players: agents, which are controlled by the
+ * actions passed to {@link #step(float[], float[], float[], float[])}, and
+ * opponents, which are regular AIs loaded by an {@link AIManager}. Agents are
+ * the first players, followed by the opponents.
+ *
+ * The buffers have the following layouts:
+ * <ul>
+ * <li>spheres: for each player {@link Constants#getMaxSphereAmount()} slots of
+ *     {@link #SPHERE_FIELDS} values (present, x, y, size), the spheres of a
+ *     player are in the order they were created, unused slots are 0</li>
+ * <li>dots: {@link Constants#getDotAmount()} slots of {@link #DOT_FIELDS}
+ *     values (present, x, y)</li>
+ * <li>actions: for each agent {@link Constants#getMaxSphereAmount()} slots of
+ *     {@link #ACTION_FIELDS} values (direction x, direction y, split, absorb),
+ *     slot k controls the sphere in slot k of the last observation. A direction
+ *     of (0, 0) keeps the current direction, split and absorb are done if
+ *     their value is greater than 0.5. Absorbing mines an enemy sphere and
+ *     merges an own sphere in range, if there are any.</li>
+ * <li>rewards: one value per agent, the change of its overall size</li>
+ * </ul>
+ *
+ * An environment is not thread-safe, parallel training uses one
+ * environment per thread.
+ *
+ * @author stieglma
+ *
+ */
+public final class TrainingEnvironment implements AutoCloseable {
+
+  /** The amount of values per sphere slot in the sphere observation. */
+  public static final int SPHERE_FIELDS = 4;
+
+  /** The amount of values per dot slot in the dot observation. */
+  public static final int DOT_FIELDS = 3;
+
+  /** The amount of values per sphere slot in the actions. */
+  public static final int ACTION_FIELDS = 4;
+
+  private static final float THRESHOLD = 0.5f;
+
+  private final Constants constants;
+  private final Physics physics;
+  private final AIManager opponentAIs;
+  private final List<Player> players = new ArrayList<>();
+  private final List<Player> opponents = new ArrayList<>();
+  private final Map<Player, Integer> playerIndex = new IdentityHashMap<>();
+  private final int agents;
+  private final int maxSpheres;
+  private final int maxTicks;
+
+  /** The spheres of each player in the order of the slots of the last observation. */
+  private final Sphere[][] slots;
+  private final int[] sphereCounts;
+  private final int[] sizes;
+
+  private int tick;
+  private boolean isRunning = false;
+  private List<String> winners = Collections.emptyList();
+  private int dotIndex;
+
+  /**
+   * Creates the environment, the game is started by {@link #reset(long, float[], float[])}.
+   *
+   * @param constants the constants used for the games
+   * @param agents the amount of players controlled by actions
+   * @param opponentNames the AIs playing against the agents, may be empty
+   * @param maxTicks the amount of ticks after which a game is done without a winner
+   * @throws MalformedURLException if the configured AI location is malformed
+   * @throws IllegalArgumentException if an opponent AI is unknown
+   */
+  public TrainingEnvironment(
+      Constants constants, int agents, List<String> opponentNames, int maxTicks)
+      throws MalformedURLException {
+    this.constants = constants;
+    this.agents = agents;
+    this.maxTicks = maxTicks;
+    maxSpheres = constants.getMaxSphereAmount();
+    physics = new Physics(constants);
+
+    for (int i = 0; i < agents; i++) {
+      players.add(new Player("agent" + i, constants.getInitialSphereSize()));
+    }
+    for (String name : opponentNames) {
+      opponents.add(new Player(name, constants.getInitialSphereSize()));
+    }
+    players.addAll(opponents);
+    for (int i = 0; i < players.size(); i++) {
+      playerIndex.put(players.get(i), i);
+    }
+
+    if (opponents.isEmpty()) {
+      opponentAIs = null;
+    } else {
+      opponentAIs = new AIManager(constants, false);
+      opponentAIs.setPhysics(physics);
+      for (String name : opponentNames) {
+        if (!opponentAIs.getAIList().contains(name)) {
+          opponentAIs.close();
+          throw new IllegalArgumentException("Unknown AI " + name);
+        }
+      }
+    }
+
+    slots = new Sphere[players.size()][maxSpheres];
+    sphereCounts = new int[players.size()];
+    sizes = new int[players.size()];
+  }
+
+  /**
+   * Returns the amount of values of the sphere observation buffer.
+   *
+   * @return the size of the sphere buffer
+   */
+  public int getSphereObservationSize() {
+    return players.size() * maxSpheres * SPHERE_FIELDS;
+  }
+
+  /**
+   * Returns the amount of values of the dot observation buffer.
+   *
+   * @return the size of the dot buffer
+   */
+  public int getDotObservationSize() {
+    return constants.getDotAmount() * DOT_FIELDS;
+  }
+
+  /**
+   * Returns the amount of values of the action buffer.
+   *
+   * @return the size of the action buffer
+   */
+  public int getActionSize() {
+    return agents * maxSpheres * ACTION_FIELDS;
+  }
+
+  /**
+   * Returns the amount of agents, i.e. the size of the reward buffer.
+   *
+   * @return the amount of agents
+   */
+  public int getAgentCount() {
+    return agents;
+  }
+
+  /**
+   * Starts a new game. The opponent AIs are instantiated again, which
+   * includes their warm-up, so training with opponents should disable it
+   * with the option <code>constants.aiWarmupTurns</code>.
+   *
+   * @param seed the seed for all random decisions of the game
+   * @param spheres the buffer the initial spheres are written to
+   * @param dots the buffer the initial dots are written to
+   */
+  public void reset(long seed, float[] spheres, float[] dots) {
+    physics.createInitialTick(players, seed);
+    if (opponentAIs != null) {
+      Map<Player, LoadingStatus> status = opponentAIs.initializeGameAIs(opponents);
+      status
+          .entrySet()
+          .stream()
+          .filter(e -> e.getValue() != LoadingStatus.LOADED)
+          .forEach(e -> constants.getLogger().log(Level.WARNING, "Bad AI:", e.getKey()));
+    }
+
+    tick = 0;
+    isRunning = true;
+    winners = Collections.emptyList();
+    indexSpheres();
+    computeSizes();
+    observe(spheres, dots);
+  }
+
+  /**
+   * Applies the actions of the agents and the commands of the opponents
+   * and computes the next tick.
+   *
+   * @param actions the actions of all agents
+   * @param spheres the buffer the spheres of the new tick are written to
+   * @param dots the buffer the dots of the new tick are written to
+   * @param rewards the buffer the reward of each agent is written to
+   * @return indicates whether the game is done, afterwards it has to be reset
+   */
+  public boolean step(float[] actions, float[] spheres, float[] dots, float[] rewards) {
+    if (!isRunning) {
+      throw new IllegalStateException("The game is done, it has to be reset first.");
+    }
+    checkSize(actions, getActionSize(), "action");
+    checkSize(rewards, agents, "reward");
+
+    List<CommandBatch> commands = new ArrayList<>();
+    for (int agent = 0; agent < agents; agent++) {
+      commands.add(toCommands(agent, actions));
+    }
+    if (opponentAIs != null) {
+      commands.addAll(opponentAIs.computeMovesOnCallingThread());
+    }
+    physics.applyCommands(commands);
+    physics.advance();
+    tick++;
+
+    for (int agent = 0; agent < agents; agent++) {
+      rewards[agent] = -sizes[agent];
+    }
+    indexSpheres();
+    computeSizes();
+    for (int agent = 0; agent < agents; agent++) {
+      rewards[agent] += sizes[agent];
+    }
+    observe(spheres, dots);
+
+    Optional<List<Player>> gameWinners =
+        constants.getWinningCondition().getWinners(physics.getAISpheres(), tick + 1, constants);
+    if (gameWinners.isPresent()) {
+      winners =
+          gameWinners
+              .get()
+              .stream()
+              .filter(p -> p != null)
+              .map(Player::getInternalName)
+              .collect(Collectors.toList());
+      isRunning = false;
+    } else if (tick >= maxTicks) {
+      isRunning = false;
+    }
+    return !isRunning;
+  }
+
+  /**
+   * Returns the amount of ticks computed since the last reset.
+   *
+   * @return the current tick
+   */
+  public int getTick() {
+    return tick;
+  }
+
+  /**
+   * Returns the names of the winners, agents are named <code>agent0</code>,
+   * <code>agent1</code> and so on.
+   *
+   * @return the winners, empty if the game did not end according to the winning condition
+   */
+  public List<String> getWinners() {
+    return winners;
+  }
+
+  /**
+   * Stops all threads of the opponent AIs, afterwards this environment cannot
+   * be used anymore.
+   */
+  @Override
+  public void close() {
+    if (opponentAIs != null) {
+      opponentAIs.close();
+    }
+  }
+
+  private CommandBatch toCommands(int agent, float[] actions) {
+    Player player = players.get(agent);
+    Map<Sphere, Sphere> mines = new HashMap<>();
+    Map<Sphere, Sphere> merges = new HashMap<>();
+    List<Sphere> splits = new ArrayList<>();
+    Map<Sphere, Position> directions = new HashMap<>();
+
+    for (int slot = 0; slot < sphereCounts[agent]; slot++) {
+      Sphere sphere = slots[agent][slot];
+      int i = (agent * maxSpheres + slot) * ACTION_FIELDS;
+      if (actions[i] != 0 || actions[i + 1] != 0) {
+        directions.put(sphere, new Position(actions[i], actions[i + 1]));
+      }
+      if (actions[i + 2] > THRESHOLD) {
+        splits.add(sphere);
+      }
+      if (actions[i + 3] > THRESHOLD) {
+        for (Sphere other : physics.getAISpheres()) {
+          if (other != sphere && sphere.canBeMergedWidth(other)) {
+            if (other.getOwner() == player) {
+              merges.putIfAbsent(sphere, other);
+            } else {
+              mines.putIfAbsent(sphere, other);
+            }
+          }
+        }
+      }
+    }
+    return new CommandBatch(player, mines, merges, splits, directions);
+  }
+
+  private void indexSpheres() {
+    Arrays.fill(sphereCounts, 0);
+    for (Sphere s : physics.getAISpheres()) {
+      int player = playerIndex.get(s.getOwner());
+      // more spheres than allowed cannot be created by splitting
+      if (sphereCounts[player] < maxSpheres) {
+        slots[player][sphereCounts[player]++] = s;
+      }
+    }
+  }
+
+  private void computeSizes() {
+    Arrays.fill(sizes, 0);
+    for (int player = 0; player < players.size(); player++) {
+      for (int slot = 0; slot < sphereCounts[player]; slot++) {
+        sizes[player] += slots[player][slot].getSize();
+      }
+    }
+  }
+
+  private void observe(float[] spheres, float[] dots) {
+    checkSize(spheres, getSphereObservationSize(), "sphere");
+    checkSize(dots, getDotObservationSize(), "dot");
+
+    Arrays.fill(spheres, 0);
+    for (int player = 0; player < players.size(); player++) {
+      for (int slot = 0; slot < sphereCounts[player]; slot++) {
+        Sphere s = slots[player][slot];
+        int i = (player * maxSpheres + slot) * SPHERE_FIELDS;
+        spheres[i] = 1;
+        spheres[i + 1] = (float) s.getPosition().getX();
+        spheres[i + 2] = (float) s.getPosition().getY();
+        spheres[i + 3] = s.getSize();
+      }
+    }
+
+    Arrays.fill(dots, 0);
+    dotIndex = 0;
+    physics.forEachDot(
+        d -> {
+          if (dotIndex < dots.length) {
+            dots[dotIndex] = 1;
+            dots[dotIndex + 1] = (float) d.getPosition().getX();
+            dots[dotIndex + 2] = (float) d.getPosition().getY();
+            dotIndex += DOT_FIELDS;
+          }
+        });
+  }
+
+  private static void checkSize(float[] buffer, int size, String name) {
+    if (buffer.length < size) {
+      throw new IllegalArgumentException(
+          "The " + name + " buffer has " + buffer.length + " values instead of " + size);
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package me.stieglmaier.sphereMiners.model.util;
+
+import javafx.scene.paint.Color;
+
+/**
+ * A fixed palette of 256 colors, such that a color can be stored in one
+ * byte. The palette uses 3 bits for red and green and 2 bits for blue,
+ * other colors are mapped to the nearest palette color per channel.
+ *
+ * @author stieglma
+ *
+ */
+public final class ColorPalette {
+
+  private static final Color[] COLORS = new Color[256];
+
+  static {
+    for (int i = 0; i < COLORS.length; i++) {
+      COLORS[i] = new Color(((i >> 5) & 7) / 7.0, ((i >> 2) & 7) / 7.0, (i & 3) / 3.0, 1);
+    }
+  }
+
+  private ColorPalette() {
+    /* utility class */
+  }
+
+  /**
+   * Returns the index of the palette color nearest to the given color.
+   *
+   * @param color the color, null is mapped to black
+   * @return the index of the palette color
+   */
+  public static byte indexOf(Color color) {
+    if (color == null) {
+      return 0;
+    }
+    int red = (int) Math.round(color.getRed() * 7);
+    int green = (int) Math.round(color.getGreen() * 7);
+    int blue = (int) Math.round(color.getBlue() * 3);
+    return (byte) (red << 5 | green << 2 | blue);
+  }
+
+  /**
+   * Returns the palette color with the given index.
+   *
+   * @param index the index of the color
+   * @return the palette color
+   */
+  public static Color get(byte index) {
+    return COLORS[index & 0xFF];
+  }
+}
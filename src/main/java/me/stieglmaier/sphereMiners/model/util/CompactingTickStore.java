@@ -0,0 +1,214 @@
+package me.stieglmaier.sphereMiners.model.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import me.stieglmaier.sphereMiners.model.ai.Player;
+
+/**
+ * Keeps the recent ticks as they are and compresses older ticks in the
+ * background. As soon as a segment of ticks is more than a threshold behind
+ * the last added tick, a separate thread encodes the ticks of the segment
+ * with a {@link TickCodec}, compresses them with a {@link Deflater} and then
+ * replaces them by the compressed segment. Consecutive ticks are very similar,
+ * so a segment needs only a small part of the memory of its ticks.
+ *
+ * Requesting a compressed tick decompresses its whole segment, the most
+ * recently decompressed segments are cached, so playing the ticks of a
+ * segment decompresses it only once. The lock of the store is held neither
+ * while compressing nor while decompressing, so reading an old tick never
+ * delays adding ticks. The compressing thread ends when there is nothing to
+ * compress anymore, e.g. when the game has ended.
+ *
+ * @author stieglma
+ *
+ */
+public final class CompactingTickStore implements TickStore, Closeable {
+
+  private final TickCodec codec;
+  private final int threshold;
+  private final int segmentSize;
+  /** The ticks that are not compressed yet, null for the compressed ticks. */
+  private final List<Tick> ticks = new ArrayList<>();
+  /** The compressed segments, segment i contains the ticks from i * segmentSize on. */
+  private final List<Segment> segments = new ArrayList<>();
+  private final LruCache<Integer, Tick[]> decompressed;
+  private int scheduledSegments;
+
+  /** How long the compressing thread waits for new segments before it ends. */
+  private static final long COMPACTOR_KEEP_ALIVE_SECONDS = 10;
+
+  private final ThreadPoolExecutor compactor =
+      new ThreadPoolExecutor(
+          1,
+          1,
+          COMPACTOR_KEEP_ALIVE_SECONDS,
+          TimeUnit.SECONDS,
+          new LinkedBlockingQueue<>(),
+          r -> {
+            Thread t = new Thread(r, "[sphereMiners][tickCompactorThread]");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+          });
+
+  /**
+   * Creates an empty store.
+   *
+   * @param players the players owning the spheres of the ticks
+   * @param threshold how many of the last ticks are never compressed
+   * @param segmentSize how many ticks are compressed together
+   * @param cachedSegments how many decompressed segments are cached
+   */
+  public CompactingTickStore(
+      List<Player> players, int threshold, int segmentSize, int cachedSegments) {
+    if (threshold < 1 || segmentSize < 1 || cachedSegments < 1) {
+      throw new IllegalArgumentException(
+          "Invalid threshold "
+              + threshold
+              + ", segment size "
+              + segmentSize
+              + " or cached segments "
+              + cachedSegments);
+    }
+    codec = new TickCodec(players);
+    this.threshold = threshold;
+    this.segmentSize = segmentSize;
+    decompressed = new LruCache<>(cachedSegments);
+    compactor.allowCoreThreadTimeOut(true);
+  }
+
+  @Override
+  public synchronized void add(Tick tick) {
+    ticks.add(tick);
+    if (ticks.size() - threshold >= (scheduledSegments + 1) * segmentSize) {
+      int segment = scheduledSegments++;
+      compactor.execute(() -> compact(segment));
+    }
+  }
+
+  /** Runs on the compactor thread, only the ticks are copied while holding the lock. */
+  private void compact(int segment) {
+    int start = segment * segmentSize;
+    Tick[] segmentTicks;
+    synchronized (this) {
+      segmentTicks = ticks.subList(start, start + segmentSize).toArray(new Tick[segmentSize]);
+    }
+
+    ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+    for (Tick tick : segmentTicks) {
+      byte[] record = codec.encode(tick);
+      encoded.write(record, 0, record.length);
+    }
+    byte[] raw = encoded.toByteArray();
+    Deflater deflater = new Deflater();
+    deflater.setInput(raw);
+    deflater.finish();
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 4);
+    byte[] buffer = new byte[1 << 16];
+    while (!deflater.finished()) {
+      compressed.write(buffer, 0, deflater.deflate(buffer));
+    }
+    deflater.end();
+
+    synchronized (this) {
+      segments.add(new Segment(compressed.toByteArray(), raw.length));
+      for (int i = start; i < start + segmentSize; i++) {
+        ticks.set(i, null);
+      }
+    }
+  }
+
+  @Override
+  public Tick get(int index) {
+    int segment = index / segmentSize;
+    Segment compressed;
+    synchronized (this) {
+      if (index < 0 || index >= ticks.size()) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + ticks.size());
+      }
+      Tick tick = ticks.get(index);
+      if (tick != null) {
+        return tick;
+      }
+      Tick[] segmentTicks = decompressed.get(segment);
+      if (segmentTicks != null) {
+        return segmentTicks[index % segmentSize];
+      }
+      compressed = segments.get(segment);
+    }
+
+    // segments are never changed, so they are decompressed without holding the lock
+    Tick[] segmentTicks = compressed.decompress();
+    synchronized (this) {
+      decompressed.put(segment, segmentTicks);
+    }
+    return segmentTicks[index % segmentSize];
+  }
+
+  @Override
+  public synchronized int size() {
+    return ticks.size();
+  }
+
+  /**
+   * The store synchronizes all accesses by itself, and holds its lock only
+   * for short times.
+   */
+  @Override
+  public boolean isConcurrentlyReadable() {
+    return true;
+  }
+
+  /**
+   * Stops compressing ticks, the already compressed ticks can still be
+   * requested.
+   */
+  @Override
+  public void close() {
+    compactor.shutdownNow();
+  }
+
+  /** The compressed records of the ticks of one segment. */
+  private final class Segment {
+
+    private final byte[] data;
+    private final int length;
+
+    private Segment(byte[] data, int length) {
+      this.data = data;
+      this.length = length;
+    }
+
+    private Tick[] decompress() {
+      byte[] raw = new byte[length];
+      Inflater inflater = new Inflater();
+      try {
+        inflater.setInput(data);
+        if (inflater.inflate(raw) != length) {
+          throw new IllegalStateException("Compressed segment of ticks is incomplete");
+        }
+      } catch (DataFormatException e) {
+        throw new IllegalStateException("Compressed segment of ticks is corrupt", e);
+      } finally {
+        inflater.end();
+      }
+
+      ByteBuffer in = ByteBuffer.wrap(raw);
+      Tick[] result = new Tick[segmentSize];
+      for (int i = 0; i < segmentSize; i++) {
+        result[i] = codec.decode(in);
+      }
+      return result;
+    }
+  }
+}
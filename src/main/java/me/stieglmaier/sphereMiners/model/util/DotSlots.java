@@ -0,0 +1,413 @@
+package me.stieglmaier.sphereMiners.model.util;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import javafx.scene.paint.Color;
+import me.stieglmaier.sphereMiners.model.ai.Player;
+
+/**
+ * A persistent (immutable) collection of dots for {@link Tick}s. Each dot
+ * has a slot, which is its identifier as long as it is on the playground.
+ * The slots are grouped in chunks of {@link #CHUNK_SIZE} slots, each stored
+ * in primitive columns, which are either arrays or views of an encoded tick
+ * (see {@link TickCodec}). A new version is created by a {@link Builder},
+ * which copies only the chunks that changed since its last version, all
+ * other chunks are shared. As most dots stay unchanged between two ticks,
+ * a snapshot costs time and memory proportional to the changed dots.
+ *
+ * @author stieglma
+ *
+ */
+public final class DotSlots {
+
+  /** The amount of slots per chunk. */
+  public static final int CHUNK_SIZE = 32;
+
+  private static final DotSlots EMPTY = new DotSlots(new Chunk[0]);
+
+  private final Chunk[] chunks;
+  /** The amount of dots before each chunk, for finding the i-th dot. */
+  private final int[] chunkStart;
+  private final int size;
+
+  private DotSlots(Chunk[] chunks) {
+    this.chunks = chunks;
+    chunkStart = new int[chunks.length];
+    int count = 0;
+    for (int c = 0; c < chunks.length; c++) {
+      chunkStart[c] = count;
+      count += Integer.bitCount(chunks[c].occupied);
+    }
+    size = count;
+  }
+
+  /**
+   * Returns the empty collection of dots.
+   *
+   * @return the empty collection
+   */
+  public static DotSlots empty() {
+    return EMPTY;
+  }
+
+  /**
+   * Creates a collection of the given dots, in slots of the order of the list.
+   *
+   * @param dots the dots
+   * @return the collection of the dots
+   */
+  public static DotSlots copyOf(Iterable<? extends Sphere> dots) {
+    Builder builder = new Builder();
+    for (Sphere d : dots) {
+      builder.add(d);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Creates a collection of dots from the given columns, which contain the
+   * slots of all chunks one after the other and must not be changed
+   * afterwards, such that they can be views of an encoded tick.
+   *
+   * @param occupied the bits of the occupied slots of each chunk
+   * @param x the x coordinates of the slots
+   * @param y the y coordinates of the slots
+   * @param size the sizes of the slots
+   * @param color the indices of the colors of the slots in the {@link ColorPalette}
+   * @return the collection of the dots
+   */
+  static DotSlots wrap(
+      int[] occupied, FloatBuffer x, FloatBuffer y, IntBuffer size, ByteBuffer color) {
+    Chunk[] chunks = new Chunk[occupied.length];
+    for (int c = 0; c < chunks.length; c++) {
+      chunks[c] = new Chunk(occupied[c], x, y, size, color, c * CHUNK_SIZE);
+    }
+    return new DotSlots(chunks);
+  }
+
+  /**
+   * Returns the amount of dots.
+   *
+   * @return the amount of dots
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the amount of slots, i.e. one more than the highest possibly occupied slot.
+   *
+   * @return the amount of slots
+   */
+  public int getCapacity() {
+    return chunks.length * CHUNK_SIZE;
+  }
+
+  /**
+   * Indicates whether the given slot contains a dot.
+   *
+   * @param slot the slot
+   * @return indicates whether there is a dot in the slot
+   */
+  public boolean isOccupied(int slot) {
+    return slot >= 0
+        && slot < getCapacity()
+        && (chunks[slot / CHUNK_SIZE].occupied & 1 << slot % CHUNK_SIZE) != 0;
+  }
+
+  /**
+   * Indicates whether the chunk with the given index is the same in both
+   * collections, i.e. none of its slots changed.
+   *
+   * @param other the other collection
+   * @param chunk the index of the chunk
+   * @return indicates whether the chunk is shared
+   */
+  public boolean sharesChunk(DotSlots other, int chunk) {
+    return chunk < chunks.length
+        && chunk < other.chunks.length
+        && chunks[chunk] == other.chunks[chunk];
+  }
+
+  /**
+   * Returns a view of the dot in the given slot.
+   *
+   * @param slot the occupied slot
+   * @return the dot
+   */
+  public Sphere get(int slot) {
+    if (!isOccupied(slot)) {
+      throw new IllegalArgumentException("Slot " + slot + " does not contain a dot");
+    }
+    return new Dot(chunks[slot / CHUNK_SIZE], slot % CHUNK_SIZE);
+  }
+
+  /**
+   * Returns the dots in the order of their slots, the list is a view which
+   * creates the dot views on demand.
+   *
+   * @return the list of dots
+   */
+  public List<Sphere> asList() {
+    return new AbstractList<Sphere>() {
+      @Override
+      public Sphere get(int index) {
+        if (index < 0 || index >= size) {
+          throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        // the last chunk starting at or before the index contains the dot,
+        // empty chunks start at the same index as their successor
+        int c = 0;
+        int high = chunks.length - 1;
+        while (c < high) {
+          int mid = (c + high + 1) >>> 1;
+          if (chunkStart[mid] <= index) {
+            c = mid;
+          } else {
+            high = mid - 1;
+          }
+        }
+        int occupied = chunks[c].occupied;
+        for (int i = chunkStart[c]; i < index; i++) {
+          occupied &= occupied - 1; // drop lowest occupied slot
+        }
+        return new Dot(chunks[c], Integer.numberOfTrailingZeros(occupied));
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  /**
+   * Creates versions of a collection of dots, each version shares the
+   * chunks that did not change since the previous version.
+   */
+  public static final class Builder {
+
+    private Chunk[] chunks;
+    /** The chunks that were copied since the last version and may be changed. */
+    private boolean[] isOwned;
+    private final BitSet occupied = new BitSet();
+
+    /**
+     * Creates a builder without dots.
+     */
+    public Builder() {
+      this(EMPTY);
+    }
+
+    /**
+     * Creates a builder starting with the dots of the given version, all
+     * chunks are shared until they are changed.
+     *
+     * @param base the version to start with
+     */
+    public Builder(DotSlots base) {
+      chunks = base.chunks.clone();
+      isOwned = new boolean[chunks.length];
+      for (int c = 0; c < chunks.length; c++) {
+        int bits = chunks[c].occupied;
+        while (bits != 0) {
+          occupied.set(c * CHUNK_SIZE + Integer.numberOfTrailingZeros(bits));
+          bits &= bits - 1;
+        }
+      }
+    }
+
+    /**
+     * Adds a dot in the lowest free slot.
+     *
+     * @param dot the dot, its state is copied
+     * @return the slot of the dot
+     */
+    public int add(Sphere dot) {
+      int slot = occupied.nextClearBit(0);
+      put(
+          slot,
+          (float) dot.getPosition().getX(),
+          (float) dot.getPosition().getY(),
+          dot.getSize(),
+          ColorPalette.indexOf(dot.getColor()));
+      return slot;
+    }
+
+    /**
+     * Puts a dot into the given slot, replacing the dot in it if there is one.
+     *
+     * @param slot the slot of the dot
+     * @param x the x coordinate of the dot
+     * @param y the y coordinate of the dot
+     * @param size the size of the dot
+     * @param color the index of the color of the dot in the {@link ColorPalette}
+     */
+    void put(int slot, float x, float y, int size, byte color) {
+      occupied.set(slot);
+      Chunk chunk = writableChunk(slot / CHUNK_SIZE);
+      int i = slot % CHUNK_SIZE;
+      chunk.x.put(i, x);
+      chunk.y.put(i, y);
+      chunk.size.put(i, size);
+      chunk.color.put(i, color);
+      chunk.occupied |= 1 << i;
+    }
+
+    /**
+     * Removes the dot in the given slot, the slot is reused by later dots.
+     *
+     * @param slot the slot of the dot
+     */
+    public void remove(int slot) {
+      if (!occupied.get(slot)) {
+        return;
+      }
+      occupied.clear(slot);
+      writableChunk(slot / CHUNK_SIZE).occupied &= ~(1 << slot % CHUNK_SIZE);
+    }
+
+    /**
+     * Removes all dots.
+     */
+    public void clear() {
+      chunks = new Chunk[0];
+      isOwned = new boolean[0];
+      occupied.clear();
+    }
+
+    /**
+     * Creates a version with the current dots. The chunks of the version are
+     * never changed afterwards, further changes copy them.
+     *
+     * @return the current dots
+     */
+    public DotSlots build() {
+      Arrays.fill(isOwned, false);
+      return new DotSlots(chunks.clone());
+    }
+
+    private Chunk writableChunk(int c) {
+      if (c >= chunks.length) {
+        int old = chunks.length;
+        chunks = Arrays.copyOf(chunks, c + 1);
+        isOwned = Arrays.copyOf(isOwned, c + 1);
+        for (int i = old; i <= c; i++) {
+          chunks[i] = new Chunk();
+          isOwned[i] = true;
+        }
+      }
+      if (!isOwned[c]) {
+        chunks[c] = new Chunk(chunks[c]);
+        isOwned[c] = true;
+      }
+      return chunks[c];
+    }
+  }
+
+  /**
+   * The columns of one chunk, it is only changed by the builder that created
+   * it until it is part of a version. The slots of a chunk start at the
+   * offset in its columns, which is 0 unless the columns are shared by all
+   * chunks of a version.
+   */
+  private static final class Chunk {
+    private int occupied;
+    private final FloatBuffer x;
+    private final FloatBuffer y;
+    private final IntBuffer size;
+    private final ByteBuffer color;
+    private final int offset;
+
+    private Chunk() {
+      this(
+          0,
+          FloatBuffer.allocate(CHUNK_SIZE),
+          FloatBuffer.allocate(CHUNK_SIZE),
+          IntBuffer.allocate(CHUNK_SIZE),
+          ByteBuffer.allocate(CHUNK_SIZE),
+          0);
+    }
+
+    private Chunk(Chunk chunk) {
+      this();
+      occupied = chunk.occupied;
+      for (int i = 0; i < CHUNK_SIZE; i++) {
+        x.put(i, chunk.x.get(chunk.offset + i));
+        y.put(i, chunk.y.get(chunk.offset + i));
+        size.put(i, chunk.size.get(chunk.offset + i));
+        color.put(i, chunk.color.get(chunk.offset + i));
+      }
+    }
+
+    private Chunk(
+        int occupied, FloatBuffer x, FloatBuffer y, IntBuffer size, ByteBuffer color, int offset) {
+      this.occupied = occupied;
+      this.x = x;
+      this.y = y;
+      this.size = size;
+      this.color = color;
+      this.offset = offset;
+    }
+  }
+
+  /**
+   * An immutable view of a dot.
+   */
+  private static final class Dot extends ReadOnlySphere {
+
+    private final Chunk chunk;
+    private final int index;
+
+    private Dot(Chunk chunk, int index) {
+      this.chunk = chunk;
+      this.index = index;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Player getOwner() {
+      return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Position getDirection() {
+      return new Position();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Position getPosition() {
+      return new Position(chunk.x.get(chunk.offset + index), chunk.y.get(chunk.offset + index));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getSize() {
+      return chunk.size.get(chunk.offset + index);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Color getColor() {
+      return ColorPalette.get(chunk.color.get(chunk.offset + index));
+    }
+  }
+}
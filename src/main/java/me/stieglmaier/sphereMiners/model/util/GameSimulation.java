@@ -2,29 +2,45 @@ package me.stieglmaier.sphereMiners.model.util;
 
 import static java.util.Objects.requireNonNull;
 
-import java.util.ArrayList;
 import java.util.List;
-
-import javafx.collections.FXCollections;
-import javafx.collections.ListChangeListener;
-import javafx.collections.ObservableList;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 /**
- * This representation of a game can be displayed by the GUI.
+ * This representation of a game can be displayed by the GUI. It does not
+ * depend on JavaFX, such that games can also be simulated headless. Listeners
+ * are called in the thread adding the ticks, so GUI listeners have to hand
+ * over to the application thread by themselves.
+ *
+ * Ticks are added by a single thread (the simulation), while the GUI reads
+ * them. If the store supports this, reading never waits for adding and
+ * adding never waits for reading, otherwise all accesses are synchronized.
  */
 public final class GameSimulation {
 
   /**
-   * A list containing all ticks of the game.
+   * The store containing all ticks of the game.
    */
-  private final ObservableList<Tick> ticks = FXCollections.observableArrayList();
-  private final List<ListChangeListener<Tick>> registeredListeners = new ArrayList<>();
+  private final TickStore ticks;
+  private final boolean isLockFree;
+  private final List<Consumer<Tick>> registeredListeners = new CopyOnWriteArrayList<>();
 
   /**
    * Creates a new empty {@link GameSimulation}.
    */
   public GameSimulation() {
-    /* nothing to do here*/
+    this(new ListTickStore());
+  }
+
+  /**
+   * Creates a new {@link GameSimulation} which stores its ticks in the
+   * given store, ticks already in the store are part of the simulation.
+   *
+   * @param store The store for the ticks.
+   */
+  public GameSimulation(TickStore store) {
+    ticks = requireNonNull(store);
+    isLockFree = store.isConcurrentlyReadable();
   }
 
   /**
@@ -33,7 +49,8 @@ public final class GameSimulation {
    * @param simulationList List of created ticks.
    */
   public GameSimulation(List<Tick> simulationList) {
-    ticks.addAll(simulationList);
+    this();
+    simulationList.forEach(ticks::add);
   }
 
   /**
@@ -42,16 +59,25 @@ public final class GameSimulation {
    * @param tick The {@link Tick} to add.
    */
   public void addInstance(final Tick tick) {
-    ticks.add(requireNonNull(tick));
+    requireNonNull(tick);
+    if (isLockFree) {
+      ticks.add(tick);
+    } else {
+      synchronized (ticks) {
+        ticks.add(tick);
+      }
+    }
+    for (Consumer<Tick> listener : registeredListeners) {
+      listener.accept(tick);
+    }
   }
 
   /**
-   * Adds an list change listener to the underlying list of ticks.
+   * Adds a listener which is notified about each added tick.
    *
    * @param listener The listener that should be attached to the GameSimulation
    */
-  public void addObserver(ListChangeListener<Tick> listener) {
-    ticks.addListener(listener);
+  public void addObserver(Consumer<Tick> listener) {
     registeredListeners.add(listener);
   }
 
@@ -59,9 +85,7 @@ public final class GameSimulation {
    * Removes all observers from this GameSimulation
    */
   public void removeObservers() {
-    for (ListChangeListener<Tick> listener : registeredListeners) {
-      ticks.removeListener(listener);
-    }
+    registeredListeners.clear();
   }
 
   /**
@@ -73,7 +97,16 @@ public final class GameSimulation {
    *         maximum number of ticks).
    */
   public Tick getTick(final int numberOfTick) {
-    if (numberOfTick < 0 || numberOfTick > ticks.size()) {
+    if (isLockFree) {
+      return getStoredTick(numberOfTick);
+    }
+    synchronized (ticks) {
+      return getStoredTick(numberOfTick);
+    }
+  }
+
+  private Tick getStoredTick(final int numberOfTick) {
+    if (numberOfTick < 0 || numberOfTick >= ticks.size()) {
       return null;
     } else {
       return ticks.get(numberOfTick);
@@ -86,6 +119,11 @@ public final class GameSimulation {
    * @return the amount of ticks in the GameSimulation
    */
   public int getSize() {
-    return ticks.size();
+    if (isLockFree) {
+      return ticks.size();
+    }
+    synchronized (ticks) {
+      return ticks.size();
+    }
   }
 }
@@ -0,0 +1,338 @@
+package me.stieglmaier.sphereMiners.model.util;
+
+import static java.lang.Float.floatToRawIntBits;
+import static java.lang.Float.intBitsToFloat;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import me.stieglmaier.sphereMiners.model.ai.Player;
+
+/**
+ * Stores every n-th tick completely (a keyframe) and the ticks in between as
+ * the difference to their predecessor, encoded into a byte array:
+ * <ul>
+ * <li>spheres are matched with the next sphere of the same owner in the
+ * previous tick, for these only the changes of position, size and direction
+ * are saved, all other spheres (e.g. after a split) are saved completely</li>
+ * <li>dots are compared slot by slot, skipping the chunks that are shared with
+ * the previous tick, and only removed and added dots are saved</li>
+ * </ul>
+ * Positions are saved as difference of their float bits, so the encoding is
+ * lossless and reconstructed ticks are exactly the same as the added ticks.
+ *
+ * A tick is reconstructed from the nearest keyframe or cached tick before it.
+ * The most recently reconstructed ticks are cached, such that playing a game
+ * forwards or scrubbing near the current tick decodes only a few differences.
+ *
+ * @author stieglma
+ *
+ */
+public final class KeyframeTickStore implements TickStore {
+
+  private static final int SIZE_CHANGED = 1;
+  private static final int DIRECTION_CHANGED = 2;
+
+  private final int keyframeInterval;
+  /** The encoded differences per tick, null for the ticks stored completely. */
+  private final List<byte[]> deltas = new ArrayList<>();
+  private final Map<Integer, Tick> fullTicks = new HashMap<>();
+  private final LruCache<Integer, Tick> cache;
+
+  /** The owners of the spheres, the encoded owners are indices into this list. */
+  private final List<Player> players = new ArrayList<>();
+  private final Map<Player, Integer> playerIndex = new IdentityHashMap<>();
+  private Player[] playerArray = new Player[0];
+
+  /** The last added tick, the next tick is encoded as difference to it. */
+  private Tick previous;
+
+  /**
+   * Creates an empty store.
+   *
+   * @param keyframeInterval every how many ticks a tick is stored completely
+   * @param cacheSize how many reconstructed ticks are cached
+   */
+  public KeyframeTickStore(int keyframeInterval, int cacheSize) {
+    if (keyframeInterval < 1) {
+      throw new IllegalArgumentException("Invalid keyframe interval " + keyframeInterval);
+    }
+    this.keyframeInterval = keyframeInterval;
+    cache = new LruCache<>(cacheSize);
+  }
+
+  @Override
+  public void add(Tick tick) {
+    int index = deltas.size();
+    // winning ticks are kept as they are, as they carry the winners
+    if (index % keyframeInterval == 0 || tick instanceof Tick.WinningTick) {
+      deltas.add(null);
+      fullTicks.put(index, tick);
+    } else {
+      deltas.add(encode(previous, tick));
+    }
+    previous = tick;
+  }
+
+  @Override
+  public Tick get(int index) {
+    if (index < 0 || index >= deltas.size()) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + deltas.size());
+    }
+    // the first tick is always stored completely, so this terminates
+    int start = index;
+    Tick tick = lookup(start);
+    while (tick == null) {
+      start--;
+      tick = lookup(start);
+    }
+    for (int i = start + 1; i <= index; i++) {
+      tick = decode(tick, deltas.get(i));
+      cache.put(i, tick);
+    }
+    return tick;
+  }
+
+  @Override
+  public int size() {
+    return deltas.size();
+  }
+
+  private Tick lookup(int index) {
+    return deltas.get(index) == null ? fullTicks.get(index) : cache.get(index);
+  }
+
+  private int indexOf(Player player) {
+    Integer index = playerIndex.get(player);
+    if (index == null) {
+      index = players.size();
+      players.add(player);
+      playerIndex.put(player, index);
+      playerArray = players.toArray(new Player[players.size()]);
+    }
+    return index;
+  }
+
+  private byte[] encode(Tick prev, Tick cur) {
+    Output out = new Output();
+    List<Sphere> prevSpheres = prev.getSpheres();
+    List<Sphere> curSpheres = cur.getSpheres();
+    out.writeVarint(curSpheres.size());
+    // the first sphere of the previous tick that was not matched yet
+    int next = 0;
+    for (Sphere s : curSpheres) {
+      int ref = next;
+      while (ref < prevSpheres.size() && prevSpheres.get(ref).getOwner() != s.getOwner()) {
+        ref++;
+      }
+      if (ref == prevSpheres.size()) {
+        out.writeVarint(0);
+        out.writeVarint(indexOf(s.getOwner()));
+        out.writeFloat((float) s.getPosition().getX());
+        out.writeFloat((float) s.getPosition().getY());
+        out.writeVarint(s.getSize());
+        out.writeFloat((float) s.getDirection().getX());
+        out.writeFloat((float) s.getDirection().getY());
+        continue;
+      }
+
+      Sphere p = prevSpheres.get(ref);
+      // the decoder needs the index of the owner of the matched sphere
+      indexOf(p.getOwner());
+      out.writeVarint(ref - next + 1);
+      next = ref + 1;
+      boolean sizeChanged = s.getSize() != p.getSize();
+      boolean directionChanged = !isSamePosition(s.getDirection(), p.getDirection());
+      out.writeByte(
+          (sizeChanged ? SIZE_CHANGED : 0) | (directionChanged ? DIRECTION_CHANGED : 0));
+      out.writeSignedVarint(floatBits(s.getPosition().getX()) - floatBits(p.getPosition().getX()));
+      out.writeSignedVarint(floatBits(s.getPosition().getY()) - floatBits(p.getPosition().getY()));
+      if (sizeChanged) {
+        out.writeSignedVarint(s.getSize() - p.getSize());
+      }
+      if (directionChanged) {
+        out.writeFloat((float) s.getDirection().getX());
+        out.writeFloat((float) s.getDirection().getY());
+      }
+    }
+
+    DotSlots prevDots = prev.getDotSlots();
+    DotSlots curDots = cur.getDotSlots();
+    Output removed = new Output();
+    int removedCount = 0;
+    int lastRemoved = 0;
+    Output added = new Output();
+    int addedCount = 0;
+    int lastAdded = 0;
+    int chunks = Math.max(prevDots.getCapacity(), curDots.getCapacity()) / DotSlots.CHUNK_SIZE;
+    for (int c = 0; c < chunks; c++) {
+      if (curDots.sharesChunk(prevDots, c)) {
+        continue;
+      }
+      for (int slot = c * DotSlots.CHUNK_SIZE; slot < (c + 1) * DotSlots.CHUNK_SIZE; slot++) {
+        boolean wasOccupied = prevDots.isOccupied(slot);
+        if (!curDots.isOccupied(slot)) {
+          if (wasOccupied) {
+            removed.writeVarint(slot - lastRemoved);
+            lastRemoved = slot;
+            removedCount++;
+          }
+        } else if (!wasOccupied || !isSameDot(prevDots.get(slot), curDots.get(slot))) {
+          Sphere dot = curDots.get(slot);
+          added.writeVarint(slot - lastAdded);
+          lastAdded = slot;
+          added.writeFloat((float) dot.getPosition().getX());
+          added.writeFloat((float) dot.getPosition().getY());
+          added.writeVarint(dot.getSize());
+          added.writeByte(ColorPalette.indexOf(dot.getColor()));
+          addedCount++;
+        }
+      }
+    }
+    out.writeVarint(removedCount);
+    out.write(removed);
+    out.writeVarint(addedCount);
+    out.write(added);
+    return out.toByteArray();
+  }
+
+  private Tick decode(Tick prev, byte[] delta) {
+    ByteBuffer in = ByteBuffer.wrap(delta);
+    List<Sphere> prevSpheres = prev.getSpheres();
+    int count = readVarint(in);
+    short[] owner = new short[count];
+    float[] x = new float[count];
+    float[] y = new float[count];
+    int[] size = new int[count];
+    float[] directionX = new float[count];
+    float[] directionY = new float[count];
+    int next = 0;
+    for (int i = 0; i < count; i++) {
+      int skip = readVarint(in);
+      if (skip == 0) {
+        owner[i] = (short) readVarint(in);
+        x[i] = in.getFloat();
+        y[i] = in.getFloat();
+        size[i] = readVarint(in);
+        directionX[i] = in.getFloat();
+        directionY[i] = in.getFloat();
+        continue;
+      }
+
+      Sphere p = prevSpheres.get(next + skip - 1);
+      next += skip;
+      int flags = in.get();
+      owner[i] = playerIndex.get(p.getOwner()).shortValue();
+      x[i] = intBitsToFloat(floatBits(p.getPosition().getX()) + readSignedVarint(in));
+      y[i] = intBitsToFloat(floatBits(p.getPosition().getY()) + readSignedVarint(in));
+      size[i] = p.getSize();
+      if ((flags & SIZE_CHANGED) != 0) {
+        size[i] += readSignedVarint(in);
+      }
+      if ((flags & DIRECTION_CHANGED) != 0) {
+        directionX[i] = in.getFloat();
+        directionY[i] = in.getFloat();
+      } else {
+        directionX[i] = (float) p.getDirection().getX();
+        directionY[i] = (float) p.getDirection().getY();
+      }
+    }
+
+    DotSlots.Builder dots = new DotSlots.Builder(prev.getDotSlots());
+    int slot = 0;
+    for (int i = readVarint(in); i > 0; i--) {
+      slot += readVarint(in);
+      dots.remove(slot);
+    }
+    slot = 0;
+    for (int i = readVarint(in); i > 0; i--) {
+      slot += readVarint(in);
+      dots.put(slot, in.getFloat(), in.getFloat(), readVarint(in), in.get());
+    }
+    return new Tick(playerArray, owner, x, y, size, directionX, directionY, dots.build());
+  }
+
+  private static boolean isSameDot(Sphere a, Sphere b) {
+    return a.getSize() == b.getSize()
+        && isSamePosition(a.getPosition(), b.getPosition())
+        && ColorPalette.indexOf(a.getColor()) == ColorPalette.indexOf(b.getColor());
+  }
+
+  /** Compares exactly, in contrast to {@link Position#equals(Object)}. */
+  private static boolean isSamePosition(Position a, Position b) {
+    return floatBits(a.getX()) == floatBits(b.getX()) && floatBits(a.getY()) == floatBits(b.getY());
+  }
+
+  private static int floatBits(double value) {
+    return floatToRawIntBits((float) value);
+  }
+
+  private static int readVarint(ByteBuffer in) {
+    int value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = in.get();
+      value |= (b & 0x7F) << shift;
+      shift += 7;
+    } while (b < 0);
+    return value;
+  }
+
+  private static int readSignedVarint(ByteBuffer in) {
+    int value = readVarint(in);
+    return value >>> 1 ^ -(value & 1);
+  }
+
+  /**
+   * A growing byte array for encoding a tick.
+   */
+  private static final class Output {
+    private byte[] bytes = new byte[64];
+    private int size;
+
+    private void writeByte(int value) {
+      if (size == bytes.length) {
+        bytes = Arrays.copyOf(bytes, size * 2);
+      }
+      bytes[size++] = (byte) value;
+    }
+
+    /** Writes a non-negative int in groups of 7 bits, lowest group first. */
+    private void writeVarint(int value) {
+      while ((value & ~0x7F) != 0) {
+        writeByte(value & 0x7F | 0x80);
+        value >>>= 7;
+      }
+      writeByte(value);
+    }
+
+    /** Writes an int such that values near zero take few bytes (zigzag encoding). */
+    private void writeSignedVarint(int value) {
+      writeVarint(value << 1 ^ value >> 31);
+    }
+
+    private void writeFloat(float value) {
+      int bits = floatToRawIntBits(value);
+      writeByte(bits >>> 24);
+      writeByte(bits >>> 16);
+      writeByte(bits >>> 8);
+      writeByte(bits);
+    }
+
+    private void write(Output other) {
+      for (int i = 0; i < other.size; i++) {
+        writeByte(other.bytes[i]);
+      }
+    }
+
+    private byte[] toByteArray() {
+      return Arrays.copyOf(bytes, size);
+    }
+  }
+}
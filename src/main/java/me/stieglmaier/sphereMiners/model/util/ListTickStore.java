@@ -0,0 +1,63 @@
+package me.stieglmaier.sphereMiners.model.util;
+
+import java.util.Arrays;
+
+/**
+ * Stores all ticks completely in an append-only log of fixed-size chunks.
+ * Ticks are only appended by a single thread, all other threads can request
+ * ticks at the same time without any locking: the amount of ticks is only
+ * increased after the tick was stored, and chunks are never moved, so a
+ * reader sees every tick below the amount it read completely.
+ *
+ * @author stieglma
+ *
+ */
+public final class ListTickStore implements TickStore {
+
+  private static final int CHUNK_BITS = 10;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+  /** The chunks, a new array is published when more chunks are needed. */
+  private volatile Tick[][] chunks = new Tick[16][];
+  /** The amount of published ticks, written only by the adding thread. */
+  private volatile int size;
+
+  @Override
+  public void add(Tick tick) {
+    int index = size;
+    int chunk = index >>> CHUNK_BITS;
+    Tick[][] currentChunks = chunks;
+    if (chunk == currentChunks.length) {
+      currentChunks = Arrays.copyOf(currentChunks, 2 * currentChunks.length);
+      chunks = currentChunks;
+    }
+    if (currentChunks[chunk] == null) {
+      currentChunks[chunk] = new Tick[CHUNK_SIZE];
+    }
+    currentChunks[chunk][index & (CHUNK_SIZE - 1)] = tick;
+    // publishes the tick and the chunks to the readers
+    size = index + 1;
+  }
+
+  @Override
+  public Tick get(int index) {
+    int currentSize = size;
+    if (index < 0 || index >= currentSize) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + currentSize);
+    }
+    return chunks[index >>> CHUNK_BITS][index & (CHUNK_SIZE - 1)];
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Ticks can be requested while the single adding thread appends ticks.
+   */
+  @Override
+  public boolean isConcurrentlyReadable() {
+    return true;
+  }
+}
@@ -0,0 +1,60 @@
+package me.stieglmaier.sphereMiners.model.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A map of limited size, which removes the least recently used entry when an
+ * entry is added to a full cache. This class is not thread-safe.
+ *
+ * @author stieglma
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the cached values
+ */
+public final class LruCache<K, V> {
+
+  private final Map<K, V> entries;
+
+  /**
+   * Creates an empty cache.
+   *
+   * @param capacity how many entries are kept at most, 0 disables the cache
+   */
+  public LruCache(int capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("Invalid cache size " + capacity);
+    }
+    entries =
+        new LinkedHashMap<K, V>(16, 0.75f, true) {
+          private static final long serialVersionUID = 1L;
+
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > capacity;
+          }
+        };
+  }
+
+  /**
+   * Returns the cached value of the given key and marks it as most recently
+   * used.
+   *
+   * @param key the key
+   * @return the cached value, or null if it is not cached
+   */
+  public V get(K key) {
+    return entries.get(key);
+  }
+
+  /**
+   * Caches a value, the least recently used entry is removed if the cache is
+   * full.
+   *
+   * @param key the key
+   * @param value the value
+   */
+  public void put(K key, V value) {
+    entries.put(key, value);
+  }
+}
@@ -177,12 +177,21 @@ public class MutableSphere implements Sphere {
    * @return an immutable copy of this sphere
    */
   public Sphere immutableCopy() {
+    return copy().toImmutableSphere();
+  }
+
+  /**
+   * Creates a copy of this sphere object, which can be changed independently.
+   *
+   * @return a copy of this sphere
+   */
+  public MutableSphere copy() {
     MutableSphere newSphere = new MutableSphere(constants, owner);
     newSphere.size = size;
     newSphere.direction = direction;
     newSphere.position = position;
     newSphere.color = color;
-    return newSphere.toImmutableSphere();
+    return newSphere;
   }
 
   /**
@@ -192,7 +201,7 @@ public class MutableSphere implements Sphere {
     return "Sphere (" + size + ") at " + position;
   }
 
-  private static class ImmutableSphere implements Sphere {
+  private static class ImmutableSphere extends ReadOnlySphere {
     Sphere sphere;
 
     private ImmutableSphere(Sphere sphere) {
@@ -246,54 +255,6 @@ public class MutableSphere implements Sphere {
       return sphere.getColor();
     }
 
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public void setColor(Color color) {
-      throw new UnsupportedOperationException("This object is immutable!");
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public void setSize(int size) {
-      throw new UnsupportedOperationException("This object is immutable!");
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public void setDirection(Position direction) {
-      throw new UnsupportedOperationException("This object is immutable!");
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public void setPosition(Position position) {
-      throw new UnsupportedOperationException("This object is immutable!");
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public MutableSphere split() {
-      throw new UnsupportedOperationException("This object is immutable!");
-    }
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public void merge(Sphere sphere) {
-      throw new UnsupportedOperationException("This object is immutable!");
-    }
-
     /**
      * {@inheritDoc}
      */
@@ -301,9 +262,5 @@ public class MutableSphere implements Sphere {
     public boolean canBeMergedWidth(Sphere sphere2) {
       return sphere.canBeMergedWidth(sphere2);
     }
-
-    public String toString() {
-      return "Sphere (" + sphere.getSize() + ") at " + sphere.getPosition();
-    }
   }
 }
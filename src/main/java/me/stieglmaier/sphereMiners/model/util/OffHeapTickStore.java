@@ -0,0 +1,98 @@
+package me.stieglmaier.sphereMiners.model.util;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import me.stieglmaier.sphereMiners.model.ai.Player;
+
+/**
+ * Stores the ticks outside of the Java heap, encoded by a {@link TickCodec}
+ * into direct buffers of a fixed size (arenas), which are filled one after
+ * the other. The garbage collector neither copies nor scans the content of
+ * direct buffers, so the pauses of the garbage collector do not grow with
+ * the length of the game. Only the last tick and the position of each tick
+ * (8 bytes per tick) are kept on the heap.
+ *
+ * A requested tick is a view of its record in the arena, its columns are not
+ * copied to the heap. A tick that is still used keeps its arena alive after
+ * the store is closed.
+ *
+ * @author stieglma
+ *
+ */
+public final class OffHeapTickStore implements TickStore, Closeable {
+
+  private static final int ARENA_SIZE = 1 << 22;
+
+  private final TickCodec codec;
+  private List<ByteBuffer> arenas = new ArrayList<>();
+  /** The arena (upper 32 bits) and the position in it (lower 32 bits) of each tick. */
+  private long[] positions = new long[1024];
+  private int size;
+  /** The last added tick, it is read far more often than all other ticks. */
+  private Tick last;
+
+  /**
+   * Creates an empty store.
+   *
+   * @param players the players owning the spheres of the ticks
+   */
+  public OffHeapTickStore(List<Player> players) {
+    codec = new TickCodec(players);
+  }
+
+  @Override
+  public void add(Tick tick) {
+    if (arenas == null) {
+      throw new IllegalStateException("The ticks were already released");
+    }
+    byte[] record = codec.encode(tick);
+    ByteBuffer arena = arenas.isEmpty() ? null : arenas.get(arenas.size() - 1);
+    if (arena == null || arena.remaining() < record.length) {
+      // records larger than an arena get an arena of their own
+      arena = ByteBuffer.allocateDirect(Math.max(ARENA_SIZE, record.length));
+      arenas.add(arena);
+    }
+    if (size == positions.length) {
+      positions = Arrays.copyOf(positions, 2 * positions.length);
+    }
+    positions[size++] = (long) (arenas.size() - 1) << 32 | arena.position();
+    arena.put(record);
+    last = tick;
+  }
+
+  @Override
+  public Tick get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+    if (index == size - 1) {
+      return last;
+    }
+    if (arenas == null) {
+      throw new IllegalStateException("The ticks were already released");
+    }
+    ByteBuffer record = arenas.get((int) (positions[index] >>> 32)).duplicate();
+    record.position((int) positions[index]);
+    return codec.decode(record);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Releases the arenas, their memory is freed with the next garbage
+   * collection once no tick read from them is used anymore. The model closes
+   * the store when its game is deleted or replaced, also if the game ended
+   * normally. Afterwards only the last tick can be requested.
+   */
+  @Override
+  public void close() {
+    arenas = null;
+  }
+}
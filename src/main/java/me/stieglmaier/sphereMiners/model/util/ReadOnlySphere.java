@@ -0,0 +1,84 @@
+package me.stieglmaier.sphereMiners.model.util;
+
+import javafx.scene.paint.Color;
+
+/**
+ * Base class of the spheres that cannot be changed, e.g. the views given to
+ * the AIs and the spheres of stored ticks. All modifying methods throw an
+ * {@link UnsupportedOperationException}. By default such a sphere belongs to
+ * a past tick, so it cannot be merged anymore either.
+ *
+ * @author stieglma
+ *
+ */
+abstract class ReadOnlySphere implements Sphere {
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public double getRadius() {
+    return Math.sqrt(getSize() / Math.PI);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final void setColor(Color color) {
+    throw new UnsupportedOperationException("This object is immutable!");
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final void setSize(int size) {
+    throw new UnsupportedOperationException("This object is immutable!");
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final void setDirection(Position direction) {
+    throw new UnsupportedOperationException("This object is immutable!");
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final void setPosition(Position position) {
+    throw new UnsupportedOperationException("This object is immutable!");
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final MutableSphere split() {
+    throw new UnsupportedOperationException("This object is immutable!");
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final void merge(Sphere sphere) {
+    throw new UnsupportedOperationException("This object is immutable!");
+  }
+
+  /**
+   * Spheres of past ticks cannot be merged anymore.
+   */
+  @Override
+  public boolean canBeMergedWidth(Sphere sphere) {
+    throw new UnsupportedOperationException("This sphere belongs to a past tick!");
+  }
+
+  @Override
+  public String toString() {
+    return "Sphere (" + getSize() + ") at " + getPosition();
+  }
+}
@@ -0,0 +1,133 @@
+package me.stieglmaier.sphereMiners.model.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import me.stieglmaier.sphereMiners.model.ai.Player;
+
+/**
+ * Keeps the most recent ticks in memory and appends all older ticks, encoded
+ * by a {@link TickCodec}, to a temporary file. Ticks in the file are read
+ * again when they are requested, the most recently read ones are cached.
+ * Apart from the offset of each tick in the file (8 bytes per tick), the
+ * memory needed does not grow with the length of the game.
+ *
+ * The file is deleted when the store is closed, afterwards only the ticks in
+ * memory can be requested.
+ *
+ * @author stieglma
+ *
+ */
+public final class SpillingTickStore implements TickStore, Closeable {
+
+  private final TickCodec codec;
+  private final FileChannel file;
+  /** The last ticks, tick i is at position i % length while it is in memory. */
+  private final Tick[] hotTicks;
+  private final LruCache<Integer, Tick> cache;
+  /** The offsets of the ticks in the file, the end of the file is the last offset. */
+  private long[] offsets = new long[1025];
+  private int spilled;
+  private int size;
+
+  /**
+   * Creates an empty store with its file in the temporary directory.
+   *
+   * @param players the players owning the spheres of the ticks
+   * @param hotWindow how many of the last ticks are kept in memory
+   * @param cacheSize how many ticks read from the file are cached
+   * @throws IOException if the file cannot be created
+   */
+  public SpillingTickStore(List<Player> players, int hotWindow, int cacheSize)
+      throws IOException {
+    if (hotWindow < 1) {
+      throw new IllegalArgumentException("Invalid hot window " + hotWindow);
+    }
+    codec = new TickCodec(players);
+    Path path = Files.createTempFile("sphereMiners-ticks", ".tmp");
+    path.toFile().deleteOnExit();
+    file =
+        FileChannel.open(
+            path,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.DELETE_ON_CLOSE);
+    hotTicks = new Tick[hotWindow];
+    cache = new LruCache<>(cacheSize);
+  }
+
+  @Override
+  public void add(Tick tick) {
+    int slot = size % hotTicks.length;
+    if (hotTicks[slot] != null) {
+      spill(hotTicks[slot]);
+    }
+    hotTicks[slot] = tick;
+    size++;
+  }
+
+  /** Appends the oldest tick in memory to the file. */
+  private void spill(Tick tick) {
+    ByteBuffer record = ByteBuffer.wrap(codec.encode(tick));
+    long offset = offsets[spilled];
+    try {
+      while (record.hasRemaining()) {
+        offset += file.write(record, offset);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Tick could not be written to the file", e);
+    }
+    if (spilled + 1 == offsets.length) {
+      offsets = Arrays.copyOf(offsets, 2 * offsets.length);
+    }
+    offsets[++spilled] = offset;
+  }
+
+  @Override
+  public Tick get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+    if (index >= spilled) {
+      return hotTicks[index % hotTicks.length];
+    }
+    Tick tick = cache.get(index);
+    if (tick == null) {
+      ByteBuffer record = ByteBuffer.allocate((int) (offsets[index + 1] - offsets[index]));
+      try {
+        while (record.hasRemaining()) {
+          if (file.read(record, offsets[index] + record.position()) < 0) {
+            throw new IOException("Unexpected end of file");
+          }
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException("Tick " + index + " could not be read", e);
+      }
+      record.flip();
+      tick = codec.decode(record);
+      cache.put(index, tick);
+    }
+    return tick;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Closes and deletes the file.
+   */
+  @Override
+  public void close() throws IOException {
+    file.close();
+  }
+}
@@ -1,38 +1,204 @@
 package me.stieglmaier.sphereMiners.model.util;
 
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
+import javafx.scene.paint.Color;
 import me.stieglmaier.sphereMiners.model.ai.Player;
 
 /**
  * Tick objects represent the information for one tick (aka frame).
  *
+ * The spheres and dots are stored in columns of primitives, i.e. one
+ * buffer per attribute instead of one object per sphere, as a game keeps
+ * thousands of ticks with hundreds of dots each. Positions are stored as
+ * floats and owners as index into the players of the tick. The columns are
+ * either arrays or views of an encoded tick (see {@link TickCodec}), such
+ * that a stored tick can be read without copying it. The dots are
+ * kept in {@link DotSlots}, which share their unchanged parts with the
+ * dots of the previous tick. The {@link Sphere} objects returned by
+ * {@link #getSpheres()} and {@link #getDots()} are immutable views which are
+ * created on demand.
+ *
  * @author stieglma
  *
  */
 public class Tick {
 
-  private final List<Sphere> allSpheres;
-  private final List<Sphere> dots;
+  private final Player[] owners;
+
+  private final int sphereCount;
+  private final FloatBuffer sphereX;
+  private final FloatBuffer sphereY;
+  private final IntBuffer sphereSize;
+  private final ShortBuffer sphereOwner;
+  private final FloatBuffer sphereDirectionX;
+  private final FloatBuffer sphereDirectionY;
+
+  private final DotSlots dots;
 
   /**
-   * Create a new Tick.
+   * Create a new Tick, the state of the given spheres is copied.
    *
    * @param spheres the list of spheres for the tick
    * @param dots the list of dots on the playground
    */
-  public Tick(List<Sphere> spheres, List<Sphere> dots) {
-    this.allSpheres = spheres;
+  public Tick(Collection<? extends Sphere> spheres, Collection<? extends Sphere> dots) {
+    this(spheres, DotSlots.copyOf(dots));
+  }
+
+  /**
+   * Create a new Tick, the state of the given spheres is copied.
+   *
+   * @param spheres the list of spheres for the tick
+   * @param dots the dots on the playground
+   */
+  public Tick(Collection<? extends Sphere> spheres, DotSlots dots) {
+    Map<Player, Short> ownerIndex = new IdentityHashMap<>();
+    List<Player> ownerList = new ArrayList<>();
+
+    sphereCount = spheres.size();
+    float[] x = new float[sphereCount];
+    float[] y = new float[sphereCount];
+    int[] size = new int[sphereCount];
+    short[] owner = new short[sphereCount];
+    float[] directionX = new float[sphereCount];
+    float[] directionY = new float[sphereCount];
+    int i = 0;
+    for (Sphere s : spheres) {
+      x[i] = (float) s.getPosition().getX();
+      y[i] = (float) s.getPosition().getY();
+      size[i] = s.getSize();
+      directionX[i] = (float) s.getDirection().getX();
+      directionY[i] = (float) s.getDirection().getY();
+      owner[i] =
+          ownerIndex.computeIfAbsent(
+              s.getOwner(),
+              p -> {
+                ownerList.add(p);
+                return (short) (ownerList.size() - 1);
+              });
+      i++;
+    }
+    owners = ownerList.toArray(new Player[ownerList.size()]);
+    sphereX = FloatBuffer.wrap(x);
+    sphereY = FloatBuffer.wrap(y);
+    sphereSize = IntBuffer.wrap(size);
+    sphereOwner = ShortBuffer.wrap(owner);
+    sphereDirectionX = FloatBuffer.wrap(directionX);
+    sphereDirectionY = FloatBuffer.wrap(directionY);
+    this.dots = dots;
+  }
+
+  /**
+   * Creates a tick from the given columns, which must not be changed afterwards.
+   *
+   * @param owners the players the owners of the spheres refer to
+   * @param sphereOwner the index of the owner of each sphere
+   * @param sphereX the x coordinate of each sphere
+   * @param sphereY the y coordinate of each sphere
+   * @param sphereSize the size of each sphere
+   * @param sphereDirectionX the x coordinate of the direction of each sphere
+   * @param sphereDirectionY the y coordinate of the direction of each sphere
+   * @param dots the dots on the playground
+   */
+  Tick(
+      Player[] owners,
+      short[] sphereOwner,
+      float[] sphereX,
+      float[] sphereY,
+      int[] sphereSize,
+      float[] sphereDirectionX,
+      float[] sphereDirectionY,
+      DotSlots dots) {
+    this(
+        owners,
+        ShortBuffer.wrap(sphereOwner),
+        FloatBuffer.wrap(sphereX),
+        FloatBuffer.wrap(sphereY),
+        IntBuffer.wrap(sphereSize),
+        FloatBuffer.wrap(sphereDirectionX),
+        FloatBuffer.wrap(sphereDirectionY),
+        dots);
+  }
+
+  /**
+   * Creates a tick from the given columns, which are read from index 0 on
+   * and must not be changed afterwards.
+   *
+   * @param owners the players the owners of the spheres refer to
+   * @param sphereOwner the index of the owner of each sphere, its limit is the amount of spheres
+   * @param sphereX the x coordinate of each sphere
+   * @param sphereY the y coordinate of each sphere
+   * @param sphereSize the size of each sphere
+   * @param sphereDirectionX the x coordinate of the direction of each sphere
+   * @param sphereDirectionY the y coordinate of the direction of each sphere
+   * @param dots the dots on the playground
+   */
+  Tick(
+      Player[] owners,
+      ShortBuffer sphereOwner,
+      FloatBuffer sphereX,
+      FloatBuffer sphereY,
+      IntBuffer sphereSize,
+      FloatBuffer sphereDirectionX,
+      FloatBuffer sphereDirectionY,
+      DotSlots dots) {
+    this.owners = owners;
+    sphereCount = sphereOwner.limit();
+    this.sphereOwner = sphereOwner;
+    this.sphereX = sphereX;
+    this.sphereY = sphereY;
+    this.sphereSize = sphereSize;
+    this.sphereDirectionX = sphereDirectionX;
+    this.sphereDirectionY = sphereDirectionY;
     this.dots = dots;
   }
 
+  /**
+   * Creates a tick sharing the (immutable) state of the given tick.
+   *
+   * @param tick the tick whose state is shared
+   */
+  protected Tick(Tick tick) {
+    owners = tick.owners;
+    sphereCount = tick.sphereCount;
+    sphereX = tick.sphereX;
+    sphereY = tick.sphereY;
+    sphereSize = tick.sphereSize;
+    sphereOwner = tick.sphereOwner;
+    sphereDirectionX = tick.sphereDirectionX;
+    sphereDirectionY = tick.sphereDirectionY;
+    dots = tick.dots;
+  }
+
   /**
    * Returns the list of spheres for this tick.
    *
    * @return the list of spheres
    */
   public List<Sphere> getSpheres() {
-    return allSpheres;
+    return new AbstractList<Sphere>() {
+      @Override
+      public Sphere get(int index) {
+        if (index < 0 || index >= sphereCount) {
+          throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + sphereCount);
+        }
+        return new TickSphere(index);
+      }
+
+      @Override
+      public int size() {
+        return sphereCount;
+      }
+    };
   }
 
   /**
@@ -41,6 +207,15 @@ public class Tick {
    * @return the list of dots
    */
   public List<Sphere> getDots() {
+    return dots.asList();
+  }
+
+  /**
+   * Returns the dots on the playground together with their slots.
+   *
+   * @return the dots
+   */
+  public DotSlots getDotSlots() {
     return dots;
   }
 
@@ -51,7 +226,7 @@ public class Tick {
    * @return the created winning tick
    */
   public WinningTick toWinningTick(List<Player> winners) {
-    return new WinningTick(allSpheres, dots, winners);
+    return new WinningTick(this, winners);
   }
 
   public class WinningTick extends Tick {
@@ -70,6 +245,11 @@ public class Tick {
       this.winners = winners;
     }
 
+    private WinningTick(Tick tick, List<Player> winners) {
+      super(tick);
+      this.winners = winners;
+    }
+
     /**
      * Returns the list players that won this round
      *
@@ -79,4 +259,57 @@ public class Tick {
       return winners;
     }
   }
+
+  /**
+   * An immutable view of a sphere of this tick.
+   */
+  private final class TickSphere extends ReadOnlySphere {
+
+    private final int index;
+
+    private TickSphere(int index) {
+      this.index = index;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Player getOwner() {
+      return owners[sphereOwner.get(index)];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Position getDirection() {
+      return new Position(sphereDirectionX.get(index), sphereDirectionY.get(index));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Position getPosition() {
+      return new Position(sphereX.get(index), sphereY.get(index));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getSize() {
+      return sphereSize.get(index);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Color getColor() {
+      Player owner = getOwner();
+      return owner == null ? null : owner.getColor();
+    }
+  }
 }
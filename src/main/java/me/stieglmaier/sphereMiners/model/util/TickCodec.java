@@ -0,0 +1,183 @@
+package me.stieglmaier.sphereMiners.model.util;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import me.stieglmaier.sphereMiners.model.ai.Player;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Encodes ticks into a compact binary record, the owners of the spheres are
+ * encoded as index into a fixed list of players. A record stores each
+ * attribute of the spheres and dots as one column:
+ * <pre>
+ * byte      flags (1 if it is a winning tick)
+ * int       amount of winners, int[] winners (only for winning ticks)
+ * int       amount of spheres n
+ * short[n]  owner, float[n] x, float[n] y, int[n] size,
+ * float[n]  direction x, float[n] direction y
+ * int       amount of chunks of dot slots k, int[k] occupied slots of each chunk
+ * float[s]  x, float[s] y, int[s] size, byte[s] color of the s = 32 * k slots
+ * </pre>
+ * The columns can be read directly from a record, so decoding a tick does
+ * not copy its spheres and dots.
+ *
+ * @author stieglma
+ *
+ */
+public final class TickCodec {
+
+  private static final byte WINNING_TICK = 1;
+
+  private final Player[] players;
+  private final Map<Player, Integer> playerIndex = new IdentityHashMap<>();
+
+  /**
+   * Creates a codec for ticks of the given players.
+   *
+   * @param players the players owning the spheres of the ticks
+   */
+  public TickCodec(List<Player> players) {
+    this.players = players.toArray(new Player[players.size()]);
+    for (int i = 0; i < this.players.length; i++) {
+      playerIndex.put(this.players[i], i);
+    }
+  }
+
+  /**
+   * Returns the players the owners of the spheres refer to.
+   *
+   * @return the players
+   */
+  public List<Player> getPlayers() {
+    return ImmutableList.copyOf(players);
+  }
+
+  /**
+   * Encodes a tick.
+   *
+   * @param tick the tick, all owners of its spheres have to be players of this codec
+   * @return the encoded tick
+   */
+  public byte[] encode(Tick tick) {
+    List<Sphere> spheres = tick.getSpheres();
+    DotSlots dots = tick.getDotSlots();
+    List<Player> winners =
+        tick instanceof Tick.WinningTick ? ((Tick.WinningTick) tick).getWinners() : null;
+    int n = spheres.size();
+    int slots = dots.getCapacity();
+    int chunks = slots / DotSlots.CHUNK_SIZE;
+    int winnerBytes = winners == null ? 0 : 4 + 4 * winners.size();
+    ByteBuffer out =
+        ByteBuffer.allocate(1 + winnerBytes + 4 + 22 * n + 4 + 4 * chunks + 13 * slots);
+
+    if (winners != null) {
+      out.put(WINNING_TICK);
+      out.putInt(winners.size());
+      winners.forEach(p -> out.putInt(indexOf(p)));
+    } else {
+      out.put((byte) 0);
+    }
+
+    out.putInt(n);
+    spheres.forEach(s -> out.putShort((short) indexOf(s.getOwner())));
+    spheres.forEach(s -> out.putFloat((float) s.getPosition().getX()));
+    spheres.forEach(s -> out.putFloat((float) s.getPosition().getY()));
+    spheres.forEach(s -> out.putInt(s.getSize()));
+    spheres.forEach(s -> out.putFloat((float) s.getDirection().getX()));
+    spheres.forEach(s -> out.putFloat((float) s.getDirection().getY()));
+
+    // free slots are written as zeros
+    Sphere[] slotDots = new Sphere[slots];
+    out.putInt(chunks);
+    for (int c = 0; c < chunks; c++) {
+      int occupied = 0;
+      for (int i = 0; i < DotSlots.CHUNK_SIZE; i++) {
+        int slot = c * DotSlots.CHUNK_SIZE + i;
+        if (dots.isOccupied(slot)) {
+          occupied |= 1 << i;
+          slotDots[slot] = dots.get(slot);
+        }
+      }
+      out.putInt(occupied);
+    }
+    for (Sphere d : slotDots) {
+      out.putFloat(d == null ? 0 : (float) d.getPosition().getX());
+    }
+    for (Sphere d : slotDots) {
+      out.putFloat(d == null ? 0 : (float) d.getPosition().getY());
+    }
+    for (Sphere d : slotDots) {
+      out.putInt(d == null ? 0 : d.getSize());
+    }
+    for (Sphere d : slotDots) {
+      out.put(d == null ? 0 : ColorPalette.indexOf(d.getColor()));
+    }
+    return out.array();
+  }
+
+  /**
+   * Decodes a tick encoded by {@link #encode(Tick)} starting at the current
+   * position of the buffer, the position is moved behind the record. The
+   * spheres and dots of the tick are views of the record, which therefore
+   * must not be changed afterwards.
+   *
+   * @param in the buffer containing the record
+   * @return the decoded tick
+   */
+  public Tick decode(ByteBuffer in) {
+    List<Player> winners = null;
+    if (in.get() == WINNING_TICK) {
+      ImmutableList.Builder<Player> winnerList = ImmutableList.builder();
+      for (int i = in.getInt(); i > 0; i--) {
+        winnerList.add(players[in.getInt()]);
+      }
+      winners = winnerList.build();
+    }
+
+    int n = in.getInt();
+    ShortBuffer owner = view(in, 2 * n).asShortBuffer();
+    FloatBuffer x = view(in, 4 * n).asFloatBuffer();
+    FloatBuffer y = view(in, 4 * n).asFloatBuffer();
+    IntBuffer size = view(in, 4 * n).asIntBuffer();
+    FloatBuffer directionX = view(in, 4 * n).asFloatBuffer();
+    FloatBuffer directionY = view(in, 4 * n).asFloatBuffer();
+
+    int[] occupied = new int[in.getInt()];
+    in.asIntBuffer().get(occupied);
+    in.position(in.position() + 4 * occupied.length);
+    int slots = occupied.length * DotSlots.CHUNK_SIZE;
+    DotSlots dots =
+        DotSlots.wrap(
+            occupied,
+            view(in, 4 * slots).asFloatBuffer(),
+            view(in, 4 * slots).asFloatBuffer(),
+            view(in, 4 * slots).asIntBuffer(),
+            view(in, slots));
+
+    Tick tick = new Tick(players, owner, x, y, size, directionX, directionY, dots);
+    return winners == null ? tick : tick.toWinningTick(winners);
+  }
+
+  private int indexOf(Player player) {
+    Integer index = playerIndex.get(player);
+    if (index == null) {
+      throw new IllegalArgumentException("Player " + player + " is not known to this codec");
+    }
+    return index;
+  }
+
+  /** Returns the next bytes of the buffer as separate buffer and skips them. */
+  private static ByteBuffer view(ByteBuffer in, int length) {
+    ByteBuffer view = in.slice();
+    view.limit(length);
+    in.position(in.position() + length);
+    return view;
+  }
+}
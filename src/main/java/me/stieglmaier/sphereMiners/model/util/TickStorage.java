@@ -0,0 +1,47 @@
+package me.stieglmaier.sphereMiners.model.util;
+
+/**
+ * The ways the ticks of a game can be stored. Only {@link #LIST} and
+ * {@link #KEYFRAMES} are available for all games, the others are only used
+ * for games started from the GUI, all other games store their ticks in a
+ * {@link ListTickStore} then.
+ *
+ * @author stieglma
+ *
+ */
+public enum TickStorage {
+
+  /**
+   * All ticks are kept in memory as they are, see {@link ListTickStore}.
+   */
+  LIST,
+
+  /**
+   * Every n-th tick is kept completely and the ticks in between as difference
+   * to their predecessor, see {@link KeyframeTickStore}.
+   */
+  KEYFRAMES,
+
+  /**
+   * Only the state of the physics every n ticks is kept, the other ticks are
+   * recomputed from the recorded commands of the AIs when they are needed.
+   */
+  RESIMULATE,
+
+  /**
+   * Only the last n ticks are kept in memory, older ticks are written to a
+   * temporary file, see {@link SpillingTickStore}.
+   */
+  SPILL,
+
+  /**
+   * Old ticks are compressed in the background, see
+   * {@link CompactingTickStore}.
+   */
+  COMPACT,
+
+  /**
+   * All ticks are kept outside of the Java heap, see {@link OffHeapTickStore}.
+   */
+  OFF_HEAP
+}
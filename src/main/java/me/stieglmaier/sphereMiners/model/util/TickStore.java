@@ -0,0 +1,63 @@
+package me.stieglmaier.sphereMiners.model.util;
+
+import me.stieglmaier.sphereMiners.main.Constants;
+
+/**
+ * Stores the ticks of a {@link GameSimulation}. Ticks are only appended, and
+ * a stored tick can be requested at any time afterwards. Implementations do
+ * not need to be thread-safe, the simulation synchronizes all accesses unless
+ * the store is {@link #isConcurrentlyReadable()}.
+ *
+ * @author stieglma
+ *
+ */
+public interface TickStore {
+
+  /**
+   * Appends a tick.
+   *
+   * @param tick the tick to append
+   */
+  void add(Tick tick);
+
+  /**
+   * Returns the tick with the given number.
+   *
+   * @param index the number of the tick, between 0 and {@link #size()} (exclusive)
+   * @return the tick, or a tick equal to it
+   */
+  Tick get(int index);
+
+  /**
+   * Returns the amount of stored ticks.
+   *
+   * @return the amount of stored ticks
+   */
+  int size();
+
+  /**
+   * Whether ticks can be requested and the size read by any thread while a
+   * single other thread adds ticks, without synchronizing the accesses.
+   *
+   * @return true if reading does not need to be synchronized with adding
+   */
+  default boolean isConcurrentlyReadable() {
+    return false;
+  }
+
+  /**
+   * Creates the store configured by the given constants, which is a
+   * {@link ListTickStore} for the tick storages that need more than the
+   * ticks, e.g. the recorded commands of the AIs.
+   *
+   * @param constants the constants with the tick storage options
+   * @return a new empty store
+   */
+  static TickStore create(Constants constants) {
+    if (constants.getTickStorage() == TickStorage.KEYFRAMES) {
+      return new KeyframeTickStore(
+          constants.getTickKeyframeInterval(), constants.getTickCacheSize());
+    }
+    return new ListTickStore();
+  }
+}
@@ -0,0 +1,202 @@
+package me.stieglmaier.sphereMiners.model.physics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import me.stieglmaier.sphereMiners.main.Constants;
+import me.stieglmaier.sphereMiners.model.ai.CommandBatch;
+import me.stieglmaier.sphereMiners.model.ai.Player;
+import me.stieglmaier.sphereMiners.model.util.Position;
+import me.stieglmaier.sphereMiners.model.util.Sphere;
+
+import org.junit.Test;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.common.log.BasicLogManager;
+
+import com.google.common.primitives.Ints;
+
+/**
+ * Checks that {@link BatchedPhysics} computes each world exactly like
+ * {@link Physics} given the same seed and commands.
+ *
+ * @author stieglma
+ *
+ */
+public class BatchedPhysicsTest {
+
+  private static final int WORLDS = 8;
+  private static final int PLAYERS = 3;
+  private static final int TICKS = 600;
+  private static final long SEED = 1000;
+
+  @Test
+  public void worldsAreComputedLikePhysics() throws InvalidConfigurationException {
+    // spheres can be split early, such that the maximal amount of spheres is reached
+    Constants constants = createConstants(60, 6);
+    List<Player> players = createPlayers();
+
+    BatchedPhysics batched = new BatchedPhysics(constants, WORLDS, PLAYERS);
+    Physics[] physics = new Physics[WORLDS];
+    for (int w = 0; w < WORLDS; w++) {
+      physics[w] = new Physics(constants);
+      physics[w].createInitialTick(players, SEED + w);
+      batched.reset(w, SEED + w);
+    }
+
+    Random random = new Random(42);
+    boolean limitReached = false;
+    for (int tick = 0; tick < TICKS; tick++) {
+      for (int w = 0; w < WORLDS; w++) {
+        List<Sphere> spheres = new ArrayList<>(physics[w].getAISpheres());
+        assertEquals(spheres.size(), batched.getSphereSlots(w));
+
+        List<CommandBatch> batches = new ArrayList<>();
+        for (int p = 0; p < PLAYERS; p++) {
+          Player player = players.get(p);
+          List<Integer> own = new ArrayList<>();
+          for (int s = 0; s < spheres.size(); s++) {
+            if (spheres.get(s).getOwner() == player) {
+              own.add(s);
+            }
+          }
+
+          Map<Sphere, Sphere> mines = new LinkedHashMap<>();
+          Map<Sphere, Sphere> merges = new LinkedHashMap<>();
+          List<Sphere> splits = new ArrayList<>();
+          Map<Sphere, Position> directions = new LinkedHashMap<>();
+          List<int[]> mineSlots = new ArrayList<>();
+          List<int[]> mergeSlots = new ArrayList<>();
+          List<Integer> splitSlots = new ArrayList<>();
+          for (int s : own) {
+            Sphere sphere = spheres.get(s);
+            double r = random.nextDouble();
+            if (r < 0.1) {
+              directions.put(
+                  sphere, new Position(random.nextDouble() - 0.5, random.nextDouble() - 0.5));
+            } else if (r < 0.2) {
+              splits.add(sphere);
+              splitSlots.add(s);
+            } else if (r < 0.3) {
+              int other = random.nextInt(spheres.size());
+              if (spheres.get(other).getOwner() != player) {
+                mines.put(sphere, spheres.get(other));
+                mineSlots.add(new int[] {s, other});
+              }
+            } else if (r < 0.35) {
+              int other = own.get(random.nextInt(own.size()));
+              if (other != s) {
+                merges.put(sphere, spheres.get(other));
+                mergeSlots.add(new int[] {s, other});
+              }
+            }
+          }
+          batches.add(new CommandBatch(player, mines, merges, splits, directions));
+
+          // the same commands in the same order as Physics.applyCommands
+          for (int[] m : mineSlots) {
+            batched.mine(w, m[0], m[1]);
+          }
+          for (int[] m : mergeSlots) {
+            batched.merge(w, m[0], m[1]);
+          }
+          int ownedSpheres = countSpheres(batched, w, p);
+          limitReached |= ownedSpheres + splitSlots.size() > constants.getMaxSphereAmount();
+          batched.split(w, p, Ints.toArray(splitSlots));
+          for (Map.Entry<Sphere, Position> e : directions.entrySet()) {
+            batched.changeDirection(
+                w, spheres.indexOf(e.getKey()), e.getValue().getX(), e.getValue().getY());
+          }
+        }
+        physics[w].applyCommands(batches);
+        physics[w].advance();
+      }
+      batched.advance();
+
+      for (int w = 0; w < WORLDS; w++) {
+        assertSameWorld("tick " + tick + ", world " + w, physics[w], batched, w, players);
+        for (int p = 0; p < PLAYERS; p++) {
+          assertTrue(countSpheres(batched, w, p) <= constants.getMaxSphereAmount());
+        }
+      }
+    }
+    assertTrue("the maximal amount of spheres was never reached", limitReached);
+  }
+
+  @Test
+  public void splitRespectsMaxSphereAmount() throws InvalidConfigurationException {
+    Constants constants = createConstants(10, 2);
+    BatchedPhysics batched = new BatchedPhysics(constants, 1, PLAYERS);
+    batched.reset(0, SEED);
+
+    batched.split(0, 0, 0);
+    assertEquals(2, countSpheres(batched, 0, 0));
+
+    // a third sphere would exceed the limit
+    batched.split(0, 0, 0);
+    assertEquals(2, countSpheres(batched, 0, 0));
+
+    // two splits at once would exceed the limit, so none of them is done
+    batched.split(0, 1, 1, 1);
+    assertEquals(1, countSpheres(batched, 0, 1));
+
+    // spheres of other players cannot be split
+    batched.split(0, 2, 1);
+    assertEquals(1, countSpheres(batched, 0, 1));
+    assertEquals(1, countSpheres(batched, 0, 2));
+  }
+
+  private static Constants createConstants(int minSplittingsize, int maxSphereAmount)
+      throws InvalidConfigurationException {
+    Configuration config =
+        Configuration.builder()
+            .setOption("constants.minSplittingsize", Integer.toString(minSplittingsize))
+            .setOption("constants.maxSphereAmount", Integer.toString(maxSphereAmount))
+            .build();
+    return new Constants(config, new BasicLogManager(config));
+  }
+
+  private static List<Player> createPlayers() {
+    List<Player> players = new ArrayList<>();
+    for (int p = 0; p < PLAYERS; p++) {
+      players.add(new Player("player" + p, 0));
+    }
+    return players;
+  }
+
+  private static int countSpheres(BatchedPhysics batched, int world, int player) {
+    int count = 0;
+    for (int s = 0; s < batched.getSphereSlots(world); s++) {
+      if (batched.getOwner(world, s) == player) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static void assertSameWorld(
+      String message, Physics physics, BatchedPhysics batched, int w, List<Player> players) {
+    List<Sphere> spheres = new ArrayList<>(physics.getAISpheres());
+    assertEquals(message, spheres.size(), batched.getSphereSlots(w));
+    for (int s = 0; s < spheres.size(); s++) {
+      Sphere sphere = spheres.get(s);
+      assertEquals(message, players.indexOf(sphere.getOwner()), batched.getOwner(w, s));
+      assertEquals(message, sphere.getSize(), batched.getSize(w, s));
+      assertEquals(message, sphere.getPosition().getX(), batched.getX(w, s), 0);
+      assertEquals(message, sphere.getPosition().getY(), batched.getY(w, s), 0);
+    }
+
+    List<Sphere> dots = new ArrayList<>(physics.getDots());
+    assertEquals(message, dots.size(), batched.getDotCount(w));
+    for (int d = 0; d < dots.size(); d++) {
+      assertEquals(message, dots.get(d).getPosition().getX(), batched.getDotX(w, d), 0);
+      assertEquals(message, dots.get(d).getPosition().getY(), batched.getDotY(w, d), 0);
+    }
+  }
+}
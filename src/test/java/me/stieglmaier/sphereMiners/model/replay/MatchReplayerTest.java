@@ -0,0 +1,136 @@
+package me.stieglmaier.sphereMiners.model.replay;
+
+import static me.stieglmaier.sphereMiners.model.util.TestTicks.assertSameTick;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import me.stieglmaier.sphereMiners.main.Constants;
+import me.stieglmaier.sphereMiners.model.ai.CommandBatch;
+import me.stieglmaier.sphereMiners.model.ai.Player;
+import me.stieglmaier.sphereMiners.model.physics.Physics;
+import me.stieglmaier.sphereMiners.model.util.GameSimulation;
+import me.stieglmaier.sphereMiners.model.util.MutableSphere;
+import me.stieglmaier.sphereMiners.model.util.Position;
+import me.stieglmaier.sphereMiners.model.util.Sphere;
+import me.stieglmaier.sphereMiners.model.util.Tick;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.common.log.BasicLogManager;
+
+/**
+ * Checks that a game recorded by a {@link MatchRecorder} is replayed by a
+ * {@link MatchReplayer} to exactly the same ticks.
+ *
+ * @author stieglma
+ *
+ */
+public class MatchReplayerTest {
+
+  private static final int TICKS = 1000;
+  private static final long SEED = 42;
+
+  private static Constants constants;
+  private static List<Player> players;
+  private static List<Tick> game;
+  private static MatchRecording recording;
+
+  @BeforeClass
+  public static void recordGame() throws InvalidConfigurationException, IOException {
+    Configuration config = Configuration.defaultConfiguration();
+    constants = new Constants(config, new BasicLogManager(config));
+    players = Arrays.asList(new Player("a", 50), new Player("b", 50), new Player("c", 50));
+
+    Physics physics = new Physics(constants);
+    MatchRecorder recorder = MatchRecorder.start(physics, constants, players, SEED);
+    GameSimulation simulation = new GameSimulation();
+    simulation.addInstance(recorder.createInitialTick());
+
+    // commands on spheres of the player and, rarely, on unknown spheres
+    Random random = new Random(5);
+    Sphere unknown = new MutableSphere(constants, players.get(0)).toImmutableSphere();
+    for (int i = 1; i < TICKS; i++) {
+      List<Sphere> spheres = new ArrayList<>(physics.getAISpheres());
+      List<CommandBatch> batches = new ArrayList<>();
+      for (Player player : players) {
+        Map<Sphere, Sphere> mines = new LinkedHashMap<>();
+        Map<Sphere, Sphere> merges = new LinkedHashMap<>();
+        List<Sphere> splits = new ArrayList<>();
+        Map<Sphere, Position> directions = new LinkedHashMap<>();
+        for (Sphere sphere : spheres) {
+          if (random.nextInt(10) == 0) {
+            directions.put(
+                sphere, new Position(random.nextDouble() * 2 - 1, random.nextDouble() * 2 - 1));
+          }
+          if (random.nextInt(300) == 0) {
+            splits.add(sphere);
+          }
+          if (random.nextInt(50) == 0) {
+            Sphere other = spheres.get(random.nextInt(spheres.size()));
+            if (other != sphere) {
+              (random.nextBoolean() ? mines : merges).put(sphere, other);
+            }
+          }
+        }
+        if (random.nextInt(100) == 0) {
+          splits.add(unknown);
+          directions.put(unknown, new Position(1, 0));
+        }
+        batches.add(new CommandBatch(player, mines, merges, splits, directions));
+      }
+      physics.applyCommands(batches);
+      simulation.addInstance(physics.applyPhysics());
+    }
+
+    game = new ArrayList<>();
+    for (int i = 0; i < simulation.getSize(); i++) {
+      game.add(simulation.getTick(i));
+    }
+
+    // the recording is replayed after writing and reading it
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    recorder.getRecording(simulation).writeTo(bytes);
+    recording = MatchRecording.readFrom(new ByteArrayInputStream(bytes.toByteArray()));
+  }
+
+  @Test
+  public void replayIsIdentical() {
+    MatchReplayer replayer = new MatchReplayer(constants, recording);
+    assertEquals(TICKS, replayer.getTickCount());
+    List<Player> replayPlayers = replayer.getPlayers();
+    for (int i = 0; i < TICKS; i++) {
+      assertSameTick("tick " + i, game.get(i), players, replayer.getTick(i), replayPlayers);
+    }
+  }
+
+  @Test
+  public void randomAccessIsIdentical() {
+    MatchReplayer replayer = new MatchReplayer(constants, recording);
+    List<Player> replayPlayers = replayer.getPlayers();
+    Random random = new Random(7);
+    for (int n = 0; n < 20; n++) {
+      int i = random.nextInt(TICKS);
+      assertSameTick("tick " + i, game.get(i), players, replayer.getTick(i), replayPlayers);
+    }
+  }
+
+  @Test
+  public void verify() {
+    assertTrue(new MatchReplayer(constants, recording).verify());
+    assertEquals(
+        Arrays.asList(true, true),
+        MatchReplayer.verifyAll(constants, Arrays.asList(recording, recording)));
+  }
+}
@@ -0,0 +1,64 @@
+package me.stieglmaier.sphereMiners.model.replay;
+
+import static me.stieglmaier.sphereMiners.model.util.TestTicks.assertSameTick;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import me.stieglmaier.sphereMiners.main.Constants;
+import me.stieglmaier.sphereMiners.model.ai.Player;
+import me.stieglmaier.sphereMiners.model.util.TestTicks;
+import me.stieglmaier.sphereMiners.model.util.Tick;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.common.log.BasicLogManager;
+
+/**
+ * Checks that a replay file written by a {@link ReplayWriter} is read back by
+ * a {@link ReplayReader} to exactly the same ticks.
+ *
+ * @author stieglma
+ *
+ */
+public class ReplayReaderTest {
+
+  private static final int TICKS = 1500;
+
+  private static Constants constants;
+  private static List<Player> players;
+  private static List<Tick> game;
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @BeforeClass
+  public static void generateGame() throws InvalidConfigurationException {
+    Configuration config = Configuration.defaultConfiguration();
+    constants = new Constants(config, new BasicLogManager(config));
+    players = TestTicks.createPlayers(3);
+    game = TestTicks.generateGame(constants, players, TICKS, 1000);
+  }
+
+  @Test
+  public void replayIsIdentical() throws IOException {
+    Path file = folder.newFile("game.smr").toPath();
+    try (ReplayWriter writer = new ReplayWriter(file, players)) {
+      for (Tick tick : game) {
+        writer.write(tick);
+      }
+    }
+
+    try (ReplayReader reader = ReplayReader.open(file, constants)) {
+      assertEquals(game.size(), reader.size());
+      for (int i = game.size() - 1; i >= 0; i--) {
+        assertSameTick("tick " + i, game.get(i), players, reader.get(i), reader.getPlayers());
+      }
+    }
+  }
+}
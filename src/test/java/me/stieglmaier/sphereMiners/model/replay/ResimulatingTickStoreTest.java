@@ -0,0 +1,134 @@
+package me.stieglmaier.sphereMiners.model.replay;
+
+import static me.stieglmaier.sphereMiners.model.util.TestTicks.assertSameTick;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import me.stieglmaier.sphereMiners.main.Constants;
+import me.stieglmaier.sphereMiners.model.ai.CommandBatch;
+import me.stieglmaier.sphereMiners.model.ai.Player;
+import me.stieglmaier.sphereMiners.model.physics.Physics;
+import me.stieglmaier.sphereMiners.model.util.MutableSphere;
+import me.stieglmaier.sphereMiners.model.util.Position;
+import me.stieglmaier.sphereMiners.model.util.Sphere;
+import me.stieglmaier.sphereMiners.model.util.Tick;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.common.log.BasicLogManager;
+
+/**
+ * Checks that a {@link ResimulatingTickStore} recomputes exactly the ticks
+ * of the recorded game, independent of the order in which they are
+ * requested. The small snapshot interval and cache force most ticks to be
+ * recomputed, partly by continuing the last recomputation.
+ *
+ * @author stieglma
+ *
+ */
+public class ResimulatingTickStoreTest {
+
+  private static final int TICKS = 1000;
+  private static final int SNAPSHOT_INTERVAL = 16;
+  private static final int CACHE_SIZE = 8;
+
+  private List<Player> players;
+  private List<Tick> game;
+  private ResimulatingTickStore store;
+
+  @Before
+  public void recordGame() throws InvalidConfigurationException {
+    Configuration config = Configuration.defaultConfiguration();
+    Constants constants = new Constants(config, new BasicLogManager(config));
+    players = Arrays.asList(new Player("a", 50), new Player("b", 50), new Player("c", 50));
+
+    Physics physics = new Physics(constants);
+    MatchRecorder recorder = MatchRecorder.start(physics, constants, players, 42);
+    store = new ResimulatingTickStore(constants, recorder, SNAPSHOT_INTERVAL, CACHE_SIZE);
+    game = new ArrayList<>();
+    Tick initialTick = recorder.createInitialTick();
+    store.add(initialTick);
+    game.add(initialTick);
+
+    // commands on spheres of the player and, rarely, on unknown spheres
+    Random random = new Random(5);
+    Sphere unknown = new MutableSphere(constants, players.get(0)).toImmutableSphere();
+    for (int i = 1; i < TICKS; i++) {
+      List<Sphere> spheres = new ArrayList<>(physics.getAISpheres());
+      List<CommandBatch> batches = new ArrayList<>();
+      for (Player player : players) {
+        Map<Sphere, Sphere> merges = new LinkedHashMap<>();
+        List<Sphere> splits = new ArrayList<>();
+        Map<Sphere, Position> directions = new LinkedHashMap<>();
+        for (Sphere sphere : spheres) {
+          if (random.nextInt(10) == 0) {
+            directions.put(
+                sphere, new Position(random.nextDouble() * 2 - 1, random.nextDouble() * 2 - 1));
+          }
+          if (random.nextInt(300) == 0) {
+            splits.add(sphere);
+          }
+          if (random.nextInt(100) == 0) {
+            merges.put(sphere, spheres.get(random.nextInt(spheres.size())));
+          }
+        }
+        if (random.nextInt(100) == 0) {
+          splits.add(unknown);
+        }
+        batches.add(
+            new CommandBatch(player, Collections.emptyMap(), merges, splits, directions));
+      }
+      physics.applyCommands(batches);
+      Tick tick = physics.applyPhysics();
+      store.add(tick);
+      game.add(tick);
+    }
+    assertEquals(TICKS, store.size());
+  }
+
+  @Test
+  public void forward() {
+    for (int i = 0; i < TICKS; i++) {
+      assertSameTick("tick " + i, game.get(i), players, store.get(i), players);
+    }
+  }
+
+  @Test
+  public void backward() {
+    for (int i = TICKS - 1; i >= 0; i--) {
+      assertSameTick("tick " + i, game.get(i), players, store.get(i), players);
+    }
+  }
+
+  @Test
+  public void shuffled() {
+    List<Integer> order = new ArrayList<>();
+    for (int i = 0; i < TICKS; i++) {
+      order.add(i);
+    }
+    Collections.shuffle(order, new Random(42));
+    for (int i : order) {
+      assertSameTick("tick " + i, game.get(i), players, store.get(i), players);
+    }
+  }
+
+  @Test
+  public void scrubbing() {
+    // short jumps back and forth continue or restart the recomputation
+    Random random = new Random(3);
+    int i = 0;
+    for (int n = 0; n < 2000; n++) {
+      i = Math.max(0, Math.min(TICKS - 1, i + random.nextInt(41) - 15));
+      assertSameTick("tick " + i, game.get(i), players, store.get(i), players);
+    }
+  }
+}
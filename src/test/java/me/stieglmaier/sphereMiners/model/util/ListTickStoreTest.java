@@ -0,0 +1,96 @@
+package me.stieglmaier.sphereMiners.model.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * Stresses the lock-free {@link ListTickStore}: while a single thread appends
+ * millions of ticks, other threads read them and must always see exactly the
+ * ticks that were added.
+ *
+ * @author stieglma
+ *
+ */
+public class ListTickStoreTest {
+
+  /** Thousands of chunks, so the array of chunks is replaced many times. */
+  private static final int TICKS = 3_000_000;
+  private static final int READERS = 3;
+
+  @Test(timeout = 120_000)
+  public void concurrentReadsWhileAppending() throws InterruptedException {
+    // a few distinct ticks suffice, the readers check them by identity
+    Tick[] ticks = new Tick[7];
+    for (int i = 0; i < ticks.length; i++) {
+      ticks[i] = new Tick(Collections.<Sphere>emptyList(), DotSlots.empty());
+    }
+
+    ListTickStore store = new ListTickStore();
+    AtomicBoolean isDone = new AtomicBoolean();
+    AtomicReference<String> failure = new AtomicReference<>();
+    AtomicLong reads = new AtomicLong();
+    List<Thread> readers = new ArrayList<>();
+    for (int r = 0; r < READERS; r++) {
+      Random random = new Random(r);
+      Thread reader =
+          new Thread(
+              () -> {
+                int lastSize = 0;
+                long count = 0;
+                while (!isDone.get() && failure.get() == null) {
+                  int size = store.size();
+                  if (size < lastSize) {
+                    failure.compareAndSet(null, "size decreased from " + lastSize + " to " + size);
+                  }
+                  lastSize = size;
+                  if (size == 0) {
+                    continue;
+                  }
+                  // the newest tick and a random older one
+                  for (int index : new int[] {size - 1, random.nextInt(size)}) {
+                    if (store.get(index) != ticks[index % ticks.length]) {
+                      failure.compareAndSet(null, "wrong tick " + index + " at size " + size);
+                    }
+                  }
+                  count++;
+                }
+                reads.addAndGet(count);
+              });
+      reader.start();
+      readers.add(reader);
+    }
+
+    for (int i = 0; i < TICKS; i++) {
+      store.add(ticks[i % ticks.length]);
+    }
+    isDone.set(true);
+    for (Thread reader : readers) {
+      reader.join();
+    }
+
+    assertNull(failure.get(), failure.get());
+    assertTrue("the readers did not read while appending", reads.get() > 0);
+    assertEquals(TICKS, store.size());
+    for (int i = 0; i < TICKS; i++) {
+      assertTrue("tick " + i, store.get(i) == ticks[i % ticks.length]);
+    }
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void tickBeyondSize() {
+    ListTickStore store = new ListTickStore();
+    store.add(new Tick(Collections.<Sphere>emptyList(), DotSlots.empty()));
+    store.get(1);
+  }
+}
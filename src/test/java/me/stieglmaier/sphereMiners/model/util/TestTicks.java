@@ -0,0 +1,243 @@
+package me.stieglmaier.sphereMiners.model.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import me.stieglmaier.sphereMiners.main.Constants;
+import me.stieglmaier.sphereMiners.model.ai.Player;
+
+/**
+ * Creates synthetic games for testing the storage of ticks and compares
+ * ticks exactly.
+ *
+ * @author stieglma
+ *
+ */
+public final class TestTicks {
+
+  /**
+   * Coordinates that have to survive encoding unchanged. NaN is rejected by
+   * {@link Position}, so it cannot be part of a tick.
+   */
+  private static final float[] SPECIAL_VALUES = {
+    0.0f,
+    -0.0f,
+    Float.MAX_VALUE,
+    -Float.MAX_VALUE,
+    Float.MIN_VALUE,
+    -Float.MIN_VALUE,
+    Float.POSITIVE_INFINITY,
+    Float.NEGATIVE_INFINITY,
+    1e30f,
+    -1e-30f
+  };
+
+  private TestTicks() {
+    /* utility class */
+  }
+
+  /**
+   * Creates the given amount of players.
+   *
+   * @param amount the amount of players
+   * @return the players
+   */
+  public static List<Player> createPlayers(int amount) {
+    List<Player> players = new ArrayList<>();
+    for (int p = 0; p < amount; p++) {
+      players.add(new Player("player" + p, 0));
+    }
+    return players;
+  }
+
+  /**
+   * Creates a game with random changes of the spheres and dots between the
+   * ticks. The game contains special coordinates (positive and negative zero,
+   * extreme and infinite values), ticks without spheres and without dots,
+   * spheres appearing and vanishing, and ends with a winning tick.
+   *
+   * @param constants the constants for the spheres
+   * @param players the owners of the spheres
+   * @param length the amount of ticks
+   * @param seed the seed for the random changes
+   * @return the ticks of the game
+   */
+  public static List<Tick> generateGame(
+      Constants constants, List<Player> players, int length, long seed) {
+    Random random = new Random(seed);
+    List<MutableSphere> spheres = new ArrayList<>();
+    for (Player player : players) {
+      spheres.add(createSphere(constants, player, random));
+    }
+    DotSlots.Builder dots = new DotSlots.Builder();
+
+    List<Tick> ticks = new ArrayList<>();
+    for (int i = 0; i < length; i++) {
+      for (MutableSphere sphere : spheres) {
+        double r = random.nextDouble();
+        if (r < 0.3) {
+          sphere.setPosition(
+              new Position(
+                  sphere.getPosition().getX() + random.nextGaussian(),
+                  sphere.getPosition().getY() + random.nextGaussian()));
+        } else if (r < 0.4) {
+          sphere.setSize(sphere.getSize() + random.nextInt(21) - 10);
+        } else if (r < 0.5) {
+          sphere.setDirection(new Position(random.nextGaussian(), random.nextGaussian()));
+        }
+      }
+      if (random.nextInt(20) == 0 && !spheres.isEmpty()) {
+        spheres.remove(random.nextInt(spheres.size()));
+      }
+      if (random.nextInt(10) == 0) {
+        Player owner = players.get(random.nextInt(players.size()));
+        spheres.add(random.nextInt(spheres.size() + 1), createSphere(constants, owner, random));
+      }
+      if (i % 37 == 0 && !spheres.isEmpty()) {
+        MutableSphere sphere = spheres.get(random.nextInt(spheres.size()));
+        sphere.setPosition(new Position(special(random), special(random)));
+        sphere.setDirection(new Position(special(random), special(random)));
+      }
+
+      if (i % 101 == 0) {
+        dots.clear();
+      }
+      for (int d = random.nextInt(5); d > 0; d--) {
+        dots.remove(random.nextInt(100));
+      }
+      for (int d = random.nextInt(5); d > 0; d--) {
+        MutableSphere dot = new MutableSphere(constants);
+        dot.setPosition(
+            i % 23 == 0
+                ? new Position(special(random), special(random))
+                : new Position(random.nextInt(801), random.nextInt(801)));
+        dot.setSize(random.nextInt(20));
+        dot.setColor(ColorPalette.get((byte) random.nextInt(256)));
+        dots.add(dot);
+      }
+
+      // some ticks have no spheres at all
+      List<MutableSphere> tickSpheres =
+          i % 50 < 3 ? Collections.<MutableSphere>emptyList() : spheres;
+      ticks.add(new Tick(tickSpheres, dots.build()));
+    }
+
+    int last = ticks.size() - 1;
+    ticks.set(last, ticks.get(last).toWinningTick(players.subList(0, 1)));
+    return ticks;
+  }
+
+  private static MutableSphere createSphere(Constants constants, Player owner, Random random) {
+    MutableSphere sphere = new MutableSphere(constants, owner);
+    sphere.setPosition(new Position(random.nextInt(801), random.nextInt(801)));
+    sphere.setSize(10 + random.nextInt(1000));
+    return sphere;
+  }
+
+  private static float special(Random random) {
+    return SPECIAL_VALUES[random.nextInt(SPECIAL_VALUES.length)];
+  }
+
+  /**
+   * Checks that the ticks are exactly the same, including the bits of all
+   * coordinates, the slots of the dots and the winners.
+   *
+   * @param message the message in case the ticks differ
+   * @param expected the original tick
+   * @param actual the stored tick
+   */
+  public static void assertSameTick(String message, Tick expected, Tick actual) {
+    assertSameTick(message, expected, null, actual, null);
+  }
+
+  /**
+   * Checks that the ticks are exactly the same like
+   * {@link #assertSameTick(String, Tick, Tick)}, but the owners of the
+   * spheres of the two ticks are different objects, e.g. the players
+   * recreated for a replay. Owners are the same if they have the same index
+   * in the respective list of players.
+   *
+   * @param message the message in case the ticks differ
+   * @param expected the original tick
+   * @param expectedPlayers the players of the original tick
+   * @param actual the tick to check
+   * @param actualPlayers the players of the tick to check
+   */
+  public static void assertSameTick(
+      String message,
+      Tick expected,
+      List<Player> expectedPlayers,
+      Tick actual,
+      List<Player> actualPlayers) {
+    assertEquals(message, expected.getClass(), actual.getClass());
+    if (expected instanceof Tick.WinningTick) {
+      List<Player> expectedWinners = ((Tick.WinningTick) expected).getWinners();
+      List<Player> actualWinners = ((Tick.WinningTick) actual).getWinners();
+      assertEquals(message, expectedWinners.size(), actualWinners.size());
+      for (int i = 0; i < expectedWinners.size(); i++) {
+        assertSameOwner(
+            message, expectedWinners.get(i), expectedPlayers, actualWinners.get(i), actualPlayers);
+      }
+    }
+
+    List<Sphere> expectedSpheres = expected.getSpheres();
+    List<Sphere> actualSpheres = actual.getSpheres();
+    assertEquals(message, expectedSpheres.size(), actualSpheres.size());
+    for (int i = 0; i < expectedSpheres.size(); i++) {
+      Sphere e = expectedSpheres.get(i);
+      Sphere a = actualSpheres.get(i);
+      assertSameOwner(message, e.getOwner(), expectedPlayers, a.getOwner(), actualPlayers);
+      assertEquals(message, e.getSize(), a.getSize());
+      assertSameBits(message, e.getPosition(), a.getPosition());
+      assertSameBits(message, e.getDirection(), a.getDirection());
+    }
+
+    DotSlots expectedDots = expected.getDotSlots();
+    DotSlots actualDots = actual.getDotSlots();
+    assertEquals(message, expectedDots.size(), actualDots.size());
+    int capacity = Math.max(expectedDots.getCapacity(), actualDots.getCapacity());
+    for (int slot = 0; slot < capacity; slot++) {
+      boolean occupied = slot < expectedDots.getCapacity() && expectedDots.isOccupied(slot);
+      assertEquals(
+          message + ", dot slot " + slot,
+          occupied,
+          slot < actualDots.getCapacity() && actualDots.isOccupied(slot));
+      if (occupied) {
+        Sphere e = expectedDots.get(slot);
+        Sphere a = actualDots.get(slot);
+        assertEquals(message, e.getSize(), a.getSize());
+        assertEquals(message, e.getColor(), a.getColor());
+        assertSameBits(message, e.getPosition(), a.getPosition());
+      }
+    }
+  }
+
+  private static void assertSameOwner(
+      String message,
+      Player expected,
+      List<Player> expectedPlayers,
+      Player actual,
+      List<Player> actualPlayers) {
+    if (expectedPlayers == null) {
+      assertSame(message, expected, actual);
+    } else {
+      assertEquals(message, expectedPlayers.indexOf(expected), actualPlayers.indexOf(actual));
+    }
+  }
+
+  private static void assertSameBits(String message, Position expected, Position actual) {
+    assertEquals(
+        message,
+        Float.floatToIntBits((float) expected.getX()),
+        Float.floatToIntBits((float) actual.getX()));
+    assertEquals(
+        message,
+        Float.floatToIntBits((float) expected.getY()),
+        Float.floatToIntBits((float) actual.getY()));
+  }
+}
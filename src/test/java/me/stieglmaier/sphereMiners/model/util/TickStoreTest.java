@@ -0,0 +1,161 @@
+package me.stieglmaier.sphereMiners.model.util;
+
+import static me.stieglmaier.sphereMiners.model.util.TestTicks.assertSameTick;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import me.stieglmaier.sphereMiners.main.Constants;
+import me.stieglmaier.sphereMiners.model.ai.Player;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.sosy_lab.common.configuration.Configuration;
+import org.sosy_lab.common.configuration.InvalidConfigurationException;
+import org.sosy_lab.common.log.BasicLogManager;
+
+/**
+ * Checks that the tick stores and the {@link TickCodec} return exactly the
+ * ticks that were added, independent of the order in which they are
+ * requested.
+ *
+ * @author stieglma
+ *
+ */
+public class TickStoreTest {
+
+  /** More than one chunk of the {@link ListTickStore}. */
+  private static final int TICKS = 1500;
+
+  private static List<Player> players;
+  private static List<Tick> game;
+
+  @BeforeClass
+  public static void generateGame() throws InvalidConfigurationException {
+    Configuration config = Configuration.defaultConfiguration();
+    Constants constants = new Constants(config, new BasicLogManager(config));
+    players = TestTicks.createPlayers(3);
+    game = TestTicks.generateGame(constants, players, TICKS, 1000);
+  }
+
+  @Test
+  public void listTickStore() {
+    checkStore(new ListTickStore());
+  }
+
+  @Test
+  public void keyframeTickStoreWithKeyframesOnly() {
+    checkStore(new KeyframeTickStore(1, 0));
+  }
+
+  @Test
+  public void keyframeTickStoreWithoutCache() {
+    checkStore(new KeyframeTickStore(10, 0));
+  }
+
+  @Test
+  public void keyframeTickStoreWithCache() {
+    checkStore(new KeyframeTickStore(64, 4));
+  }
+
+  @Test
+  public void compactingTickStore() {
+    // the ticks are compressed while they are requested
+    CompactingTickStore store = new CompactingTickStore(players, 100, 16, 2);
+    checkStore(store);
+    store.close();
+  }
+
+  @Test
+  public void spillingTickStore() throws IOException {
+    // most ticks are written to the file and read back from it
+    SpillingTickStore store = new SpillingTickStore(players, 100, 16);
+    checkStore(store);
+    store.close();
+  }
+
+  @Test
+  public void offHeapTickStore() {
+    OffHeapTickStore store = new OffHeapTickStore(players);
+    checkStore(store);
+
+    // ticks read before closing stay valid, afterwards only the last tick is kept
+    Tick first = store.get(0);
+    store.close();
+    assertSameTick("tick 0 after closing", game.get(0), first);
+    assertSameTick("last tick after closing", game.get(TICKS - 1), store.get(TICKS - 1));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void offHeapTickStoreIsReleased() {
+    OffHeapTickStore store = new OffHeapTickStore(players);
+    store.add(game.get(0));
+    store.add(game.get(1));
+    store.close();
+    store.get(0);
+  }
+
+  @Test
+  public void codecRoundTrip() {
+    TickCodec codec = new TickCodec(players);
+    ByteArrayOutputStream records = new ByteArrayOutputStream();
+    for (int i = 0; i < game.size(); i++) {
+      byte[] record = codec.encode(game.get(i));
+      records.write(record, 0, record.length);
+      ByteBuffer in = ByteBuffer.wrap(record);
+      assertSameTick("tick " + i, game.get(i), codec.decode(in));
+      assertFalse("tick " + i + " was not read completely", in.hasRemaining());
+    }
+
+    // records decoded one after the other from a single buffer
+    ByteBuffer in = ByteBuffer.wrap(records.toByteArray());
+    for (int i = 0; i < game.size(); i++) {
+      assertSameTick("tick " + i, game.get(i), codec.decode(in));
+    }
+    assertFalse(in.hasRemaining());
+  }
+
+  @Test
+  public void emptyTick() {
+    Tick empty = new Tick(Collections.<Sphere>emptyList(), DotSlots.empty());
+    TickCodec codec = new TickCodec(players);
+    assertSameTick("empty tick", empty, codec.decode(ByteBuffer.wrap(codec.encode(empty))));
+
+    TickStore store = new KeyframeTickStore(2, 0);
+    store.add(empty);
+    store.add(empty);
+    store.add(empty);
+    for (int i = 0; i < store.size(); i++) {
+      assertSameTick("tick " + i, empty, store.get(i));
+    }
+  }
+
+  private static void checkStore(TickStore store) {
+    for (Tick tick : game) {
+      store.add(tick);
+    }
+    assertEquals(game.size(), store.size());
+
+    for (int i = 0; i < game.size(); i++) {
+      assertSameTick("forward, tick " + i, game.get(i), store.get(i));
+    }
+    for (int i = game.size() - 1; i >= 0; i--) {
+      assertSameTick("backward, tick " + i, game.get(i), store.get(i));
+    }
+    List<Integer> order = new ArrayList<>();
+    for (int i = 0; i < game.size(); i++) {
+      order.add(i);
+    }
+    Collections.shuffle(order, new Random(42));
+    for (int i : order) {
+      assertSameTick("random, tick " + i, game.get(i), store.get(i));
+    }
+  }
+}